@@ -0,0 +1,94 @@
+package com.nathanahrens.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * <p>Fills a table of an embedded database (H2 or HSQLDB) with the rows of a {@link SyntheticResultSet}, so the whole
+ * pipeline from query to export can be measured without a database server.</p>
+ * <p>The table has a BIGINT primary key column ID, numbering the rows from 1, followed by the generated columns C1,
+ * C2, ... Rows are inserted in batches of {@link #BATCH_SIZE}.</p>
+ * @author nahrens
+ *
+ */
+public class DataGenerator {
+	public static final int BATCH_SIZE = 1000;
+
+	private final Connection connection;
+
+	/**
+	 *
+	 * @param connection Connection to the database to create tables in.
+	 */
+	public DataGenerator(Connection connection) {
+		this.connection = connection;
+	}
+
+	/**
+	 * Create a table of generated rows, replacing any table of the same name.
+	 * @param table Name of the table.
+	 * @param data  Rows to insert.
+	 * @return long Number of rows inserted.
+	 * @throws SQLException When unable to create or fill the table.
+	 */
+	public long createTable(String table, SyntheticResultSet.Data data) throws SQLException {
+		SyntheticResultSet rs = data.newResultSet();
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int colCount = rsmd.getColumnCount();
+		StringBuilder columns = new StringBuilder("ID BIGINT PRIMARY KEY");
+		StringBuilder markers = new StringBuilder("?");
+		for (int i = 1; i <= colCount; i++) {
+			columns.append(", ").append(rsmd.getColumnName(i)).append(' ').append(getColumnDefinition(rsmd, i));
+			markers.append(", ?");
+		}
+		try (Statement stmt = this.connection.createStatement()) {
+			stmt.execute("DROP TABLE IF EXISTS " + table);
+			stmt.execute("CREATE TABLE " + table + " (" + columns + ")");
+		}
+
+		boolean autoCommit = this.connection.getAutoCommit();
+		this.connection.setAutoCommit(false);
+		long rows = 0;
+		try (PreparedStatement insert = this.connection
+				.prepareStatement("INSERT INTO " + table + " VALUES (" + markers + ")")) {
+			while (rs.next()) {
+				insert.setLong(1, ++rows);
+				for (int i = 1; i <= colCount; i++) {
+					Object value = rs.getObject(i);
+					if (value == null) {
+						insert.setNull(i + 1, rsmd.getColumnType(i));
+					} else {
+						insert.setObject(i + 1, value);
+					}
+				}
+				insert.addBatch();
+				if (rows % BATCH_SIZE == 0) {
+					insert.executeBatch();
+				}
+			}
+			// HSQLDB fails to execute an empty batch
+			if (rows % BATCH_SIZE != 0) {
+				insert.executeBatch();
+			}
+			this.connection.commit();
+		} finally {
+			this.connection.setAutoCommit(autoCommit);
+		}
+		return rows;
+	}
+
+	private static String getColumnDefinition(ResultSetMetaData rsmd, int column) throws SQLException {
+		switch (rsmd.getColumnType(column)) {
+		case Types.VARCHAR:
+			return "VARCHAR(" + rsmd.getColumnDisplaySize(column) + ")";
+		case Types.DECIMAL:
+			return "DECIMAL(" + rsmd.getPrecision(column) + "," + rsmd.getScale(column) + ")";
+		default:
+			return rsmd.getColumnTypeName(column);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.nathanahrens.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nathanahrens.resultset.DataExportExcelWriter;
+import com.nathanahrens.resultset.ResultSetUtil;
+
+/**
+ * <p>Time to export a {@link SyntheticResultSet} of several sizes and column types to an Excel file and to stdout.</p>
+ * <p>The Excel file is streamed with the default row access window, as {@link com.nathanahrens.client.Client} does,
+ * and overwritten by every invocation. Stdout is discarded while the benchmarks run.</p>
+ * @author nahrens
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+	@Param({ "1000", "100000" })
+	private long rows;
+
+	@Param({ "4", "32" })
+	private int columns;
+
+	@Param({ "NUMBERS", "STRINGS", "MIXED" })
+	private SyntheticResultSet.ColumnMix mix;
+
+	private SyntheticResultSet.Data data;
+	private File excelFile;
+	private PrintStream stdout;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.data = new SyntheticResultSet.Data(this.rows, this.columns, this.mix);
+		this.excelFile = File.createTempFile("ExportBenchmark", ".xlsx");
+		this.stdout = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(this.stdout);
+		this.excelFile.delete();
+	}
+
+	@Benchmark
+	public long saveExcel() throws IOException, SQLException {
+		DataExportExcelWriter excel = new DataExportExcelWriter(DataExportExcelWriter.DEFAULT_ROW_ACCESS_WINDOW);
+		excel.saveExcel(this.data.newResultSet(), this.excelFile.getPath(), false, null);
+		return this.excelFile.length();
+	}
+
+	@Benchmark
+	public void printResultSet() throws SQLException {
+		ResultSetUtil.printResultSet(this.data.newResultSet(), "\t");
+	}
+}
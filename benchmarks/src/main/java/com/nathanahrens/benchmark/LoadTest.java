@@ -0,0 +1,340 @@
+package com.nathanahrens.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import com.nathanahrens.client.Client;
+import com.nathanahrens.client.IClient;
+import com.nathanahrens.client.Source;
+import com.nathanahrens.client.SourceType;
+import com.nathanahrens.client.User;
+import com.nathanahrens.client.cli.DbCliClient;
+import com.nathanahrens.client.cli.QueryTestDriver;
+import com.nathanahrens.log.Logger;
+
+/**
+ * <p>End-to-end load test of the client against an embedded database: generates a table, then exports it repeatedly
+ * through each entry point, reporting throughput, latency percentiles and peak heap usage of each.</p>
+ * <p>Entry points (modes) are:</p>
+ * <ul>
+ * <li>client: a {@link Client} running the query and saving its results.</li>
+ * <li>cli: {@link DbCliClient#main(String[])} with the JDBC URL of the embedded database.</li>
+ * <li>driver: {@link QueryTestDriver#main(String[])} running one QueryTest per thread, all at the same time.</li>
+ * </ul>
+ * <p>The cli and driver modes shut the connection pool down after each run, as their processes would, so they include
+ * connecting to the database. Everything runs headless, in this process.</p>
+ * @author nahrens
+ *
+ */
+public class LoadTest {
+	private static final String TABLE = "LOADTEST";
+	private static final long HEAP_SAMPLE_MILLIS = 10;
+
+	private String url = "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1";
+	private String user = "sa";
+	private String password = "";
+	private long rows = 100000;
+	private int columns = 16;
+	private SyntheticResultSet.ColumnMix mix = SyntheticResultSet.ColumnMix.MIXED;
+	private String format = "csv";
+	private int warmup = 2;
+	private int runs = 10;
+	private int threads = 4;
+	private String[] modes = { "client", "cli", "driver" };
+	private File result;
+
+	private final Logger logger = new Logger();
+	private final Logger quietLogger = new Logger();
+	private File workDir;
+
+	/**
+	 *
+	 * @param args --url VAL JDBC URL of the embedded database (default an in-memory H2 database).
+	 *             --user VAL and --password VAL to connect to it with (default sa, without a password).
+	 *             --rows VAL number of rows of the table (default 100000).
+	 *             --columns VAL number of generated columns (default 16).
+	 *             --mix VAL types of the columns: numbers, strings or mixed (default).
+	 *             --format VAL extension of the output files, i.e. csv (default), xlsx, parquet or arrow.
+	 *             --warmup VAL number of runs of each mode before measuring (default 2).
+	 *             --runs VAL number of measured runs of each mode (default 10).
+	 *             --threads VAL number of QueryTests the driver mode runs at the same time (default 4).
+	 *             --modes VAL comma separated modes to run: client, cli and driver (default all).
+	 *             --result VAL file to write the results to as JSON.
+	 */
+	public static void main(String[] args) throws Exception {
+		// QueryTests show dialogs unless headless
+		System.setProperty("java.awt.headless", "true");
+		LoadTest test = new LoadTest();
+		test.parseArgs(args);
+		test.run();
+	}
+
+	private void parseArgs(String[] args) {
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "--url":
+				this.url = value;
+				break;
+			case "--user":
+				this.user = value;
+				break;
+			case "--password":
+				this.password = value;
+				break;
+			case "--rows":
+				this.rows = Long.parseLong(value);
+				break;
+			case "--columns":
+				this.columns = Integer.parseInt(value);
+				break;
+			case "--mix":
+				this.mix = SyntheticResultSet.ColumnMix.valueOf(value.toUpperCase(Locale.ROOT));
+				break;
+			case "--format":
+				this.format = value;
+				break;
+			case "--warmup":
+				this.warmup = Integer.parseInt(value);
+				break;
+			case "--runs":
+				this.runs = Integer.parseInt(value);
+				break;
+			case "--threads":
+				this.threads = Integer.parseInt(value);
+				break;
+			case "--modes":
+				this.modes = value.split(",");
+				break;
+			case "--result":
+				this.result = new File(value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void run() throws Exception {
+		this.quietLogger.setPrintStream(new PrintStream(OutputStream.nullOutputStream()));
+		this.workDir = Files.createTempDirectory("LoadTest").toFile();
+		File sqlFile = new File(this.workDir, "query.sql");
+		Files.writeString(sqlFile.toPath(), "SELECT * FROM " + TABLE);
+
+		// Keep a connection open, so an in-memory database lives until the end
+		try (Connection connection = DriverManager.getConnection(this.url, this.user, this.password)) {
+			this.logger.log(String.format("Generating %,d rows of %d %s columns in %s...", this.rows, this.columns,
+					this.mix.name().toLowerCase(Locale.ROOT), this.url));
+			long startTime = System.nanoTime();
+			new DataGenerator(connection).createTable(TABLE,
+					new SyntheticResultSet.Data(this.rows, this.columns, this.mix));
+			this.logger.log(String.format("Table generated in %,.3f seconds", (System.nanoTime() - startTime) / 1e9));
+
+			JSONArray results = new JSONArray();
+			for (String mode : this.modes) {
+				results.add(this.measure(mode.trim(), sqlFile));
+			}
+			if (this.result != null) {
+				JSONObject report = new JSONObject();
+				report.put("url", this.url);
+				report.put("rows", this.rows);
+				report.put("columns", this.columns);
+				report.put("mix", this.mix.name());
+				report.put("format", this.format);
+				report.put("runs", this.runs);
+				report.put("threads", this.threads);
+				report.put("results", results);
+				try (FileWriter writer = new FileWriter(this.result)) {
+					writer.write(report.toJSONString());
+				}
+				this.logger.log("Results written to " + this.result);
+			}
+		} finally {
+			delete(this.workDir);
+		}
+	}
+
+	/**
+	 * Run a mode for the warmup and measured runs, and report its measurements.
+	 */
+	@SuppressWarnings("unchecked")
+	private JSONObject measure(String mode, File sqlFile) throws Exception {
+		long rowsPerRun = "driver".equals(mode) ? this.rows * this.threads : this.rows;
+		for (int i = 0; i < this.warmup; i++) {
+			this.runOnce(mode, sqlFile);
+		}
+		System.gc();
+		HeapSampler heap = new HeapSampler();
+		long[] latencies = new long[this.runs];
+		long totalNanos = 0;
+		try {
+			for (int i = 0; i < this.runs; i++) {
+				long startTime = System.nanoTime();
+				this.runOnce(mode, sqlFile);
+				latencies[i] = System.nanoTime() - startTime;
+				totalNanos += latencies[i];
+			}
+		} finally {
+			heap.stop();
+		}
+		Arrays.sort(latencies);
+		double rowsPerSecond = totalNanos == 0 ? 0 : rowsPerRun * this.runs * 1e9 / totalNanos;
+		this.logger.log(String.format(
+				"%s: %d runs of %,d rows, %,.0f rows/s, latency p50 %,.1f ms, p90 %,.1f ms, p99 %,.1f ms, max %,.1f ms, peak heap %,d MB",
+				mode, this.runs, rowsPerRun, rowsPerSecond, millis(percentile(latencies, 50)),
+				millis(percentile(latencies, 90)), millis(percentile(latencies, 99)),
+				millis(latencies[latencies.length - 1]), heap.getPeak() / (1024 * 1024)));
+
+		JSONObject result = new JSONObject();
+		result.put("mode", mode);
+		result.put("rowsPerRun", rowsPerRun);
+		result.put("rowsPerSecond", rowsPerSecond);
+		result.put("p50Millis", millis(percentile(latencies, 50)));
+		result.put("p90Millis", millis(percentile(latencies, 90)));
+		result.put("p99Millis", millis(percentile(latencies, 99)));
+		result.put("maxMillis", millis(latencies[latencies.length - 1]));
+		result.put("peakHeapBytes", heap.getPeak());
+		return result;
+	}
+
+	private void runOnce(String mode, File sqlFile) throws Exception {
+		switch (mode) {
+		case "client":
+			this.runClient(sqlFile);
+			break;
+		case "cli":
+			this.runCli(sqlFile);
+			break;
+		case "driver":
+			this.runDriver(sqlFile);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown mode, expected client, cli or driver: " + mode);
+		}
+	}
+
+	private void runClient(File sqlFile) throws IOException, SQLException {
+		Source source = new Source(this.url, new User(this.user, this.password), SourceType.ofUrl(this.url));
+		IClient client = new Client(source, this.quietLogger);
+		if (!client.query(Files.readString(sqlFile.toPath()))) {
+			throw new SQLException("Query failed: " + sqlFile);
+		}
+		if (!client.save(this.getOutputFile("client").getPath())) {
+			throw new IOException("Save failed: " + this.getOutputFile("client"));
+		}
+	}
+
+	private void runCli(File sqlFile) throws Exception {
+		DbCliClient.main(new String[] { "--jdbcUrl", this.url, "--jdbcUser", this.user, "--jdbcPassword",
+				this.password, "--sqlFile", sqlFile.getPath(), "--outputFile", this.getOutputFile("cli").getPath(),
+				"--log", new File(this.workDir, "cli.log").getPath() });
+	}
+
+	@SuppressWarnings("unchecked")
+	private void runDriver(File sqlFile) throws IOException {
+		File testDir = new File(this.workDir, "querytests");
+		if (!testDir.isDirectory()) {
+			testDir.mkdir();
+			String sql = Files.readString(sqlFile.toPath());
+			for (int i = 1; i <= this.threads; i++) {
+				JSONObject test = new JSONObject();
+				test.put("title", "LoadTest " + i);
+				test.put("sql", sql);
+				test.put("jdbcUrl", this.url);
+				test.put("jdbcUser", this.user);
+				test.put("jdbcPassword", this.password);
+				test.put("outputFile", this.getOutputFile("driver" + i).getPath());
+				Files.writeString(new File(testDir, "loadtest" + i + ".json").toPath(), test.toJSONString());
+			}
+		}
+		File logDir = new File(this.workDir, "logs");
+		logDir.mkdir();
+		// QueryTestDriver lists the QueryTests it runs on stdout
+		PrintStream stdout = System.out;
+		System.setOut(this.quietLogger.getPrintStream());
+		try {
+			QueryTestDriver.main(new String[] { "--dir", testDir.getPath(), "--threads",
+					Integer.toString(this.threads), "--hostThreads", Integer.toString(this.threads), "--log",
+					logDir.getPath() });
+		} finally {
+			System.setOut(stdout);
+		}
+		// Drop the logs of this run, rather than one set per run
+		delete(logDir);
+	}
+
+	private File getOutputFile(String name) {
+		return new File(this.workDir, name + "." + this.format);
+	}
+
+	/**
+	 * Nearest-rank percentile of sorted values.
+	 */
+	private static long percentile(long[] sorted, int percent) {
+		int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * Samples the heap usage until stopped, keeping the highest.
+	 */
+	private static class HeapSampler {
+		private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		private final AtomicLong peak = new AtomicLong();
+		private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "LoadTest-heap");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		private HeapSampler() {
+			this.sampler.scheduleAtFixedRate(this::sample, 0, HEAP_SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+		}
+
+		private void sample() {
+			this.peak.accumulateAndGet(this.memory.getHeapMemoryUsage().getUsed(), Math::max);
+		}
+
+		private void stop() {
+			this.sampler.shutdownNow();
+			this.sample();
+		}
+
+		private long getPeak() {
+			return this.peak.get();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.nathanahrens.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pwsafe.lib.Util;
+
+/**
+ * <p>Time to stretch a passphrase into the key of a V3 vault, which every load of a vault pays once. 2048 iterations
+ * is the default of new vaults, vaults written by recent Password Safe versions use more.</p>
+ * @author nahrens
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PassphraseBenchmark {
+	@Param({ "2048", "262144" })
+	private int iterations;
+
+	private byte[] passphrase;
+	private byte[] salt;
+
+	@Setup
+	public void setUp() {
+		this.passphrase = VaultBenchmark.PASSPHRASE.getBytes(StandardCharsets.UTF_8);
+		this.salt = new byte[32];
+		for (int i = 0; i < this.salt.length; i++) {
+			this.salt[i] = (byte) (i * 37);
+		}
+	}
+
+	@Benchmark
+	public byte[] stretchPassphrase() {
+		return Util.stretchPassphrase(this.passphrase, this.salt, this.iterations);
+	}
+}
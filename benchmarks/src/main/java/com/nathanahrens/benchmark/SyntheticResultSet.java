@@ -0,0 +1,342 @@
+package com.nathanahrens.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import com.nathanahrens.resultset.ForwardOnlyResultSet;
+
+/**
+ * <p>In-memory {@link java.sql.ResultSet} of generated rows, so exports can be measured without a source. Values are
+ * generated once for a cycle of {@link #CYCLE} rows and repeated, so reading a row costs about what reading it from a
+ * buffered result would, and every run reads the same values.</p>
+ * <p>About one value in {@link #NULL_RATE} is null.</p>
+ * @author nahrens
+ *
+ */
+public class SyntheticResultSet extends ForwardOnlyResultSet {
+	public static final int CYCLE = 64;
+	public static final int NULL_RATE = 29;
+
+	/**
+	 * Types of the columns of the generated rows.
+	 */
+	public static enum ColumnMix {
+		/**
+		 * INTEGER, BIGINT, DECIMAL and DOUBLE columns.
+		 */
+		NUMBERS(Types.INTEGER, Types.BIGINT, Types.DECIMAL, Types.DOUBLE),
+		/**
+		 * VARCHAR columns of 8 to 64 characters.
+		 */
+		STRINGS(Types.VARCHAR),
+		/**
+		 * Numbers, strings, dates, timestamps and booleans, as a typical query returns.
+		 */
+		MIXED(Types.INTEGER, Types.VARCHAR, Types.DECIMAL, Types.TIMESTAMP, Types.VARCHAR, Types.DATE, Types.BIGINT,
+				Types.BOOLEAN);
+
+		private final int[] types;
+
+		private ColumnMix(int... types) {
+			this.types = types;
+		}
+
+		int getType(int column) {
+			return this.types[(column - 1) % this.types.length];
+		}
+	}
+
+	/**
+	 * Generated values of a set of columns, shared by the ResultSets reading them.
+	 */
+	public static class Data {
+		private final long rows;
+		private final int[] types;
+		private final Object[][] values;
+
+		/**
+		 *
+		 * @param rows    Number of rows.
+		 * @param columns Number of columns.
+		 * @param mix     Types of the columns.
+		 */
+		public Data(long rows, int columns, ColumnMix mix) {
+			this.rows = rows;
+			this.types = new int[columns];
+			this.values = new Object[CYCLE][columns];
+			long day = 24L * 60 * 60 * 1000;
+			long epoch = Timestamp.valueOf("2024-01-01 00:00:00").getTime();
+			for (int column = 1; column <= columns; column++) {
+				int type = mix.getType(column);
+				this.types[column - 1] = type;
+				for (int row = 0; row < CYCLE; row++) {
+					Object value;
+					switch (type) {
+					case Types.INTEGER:
+						value = row * 31 + column;
+						break;
+					case Types.BIGINT:
+						value = row * 1000003L + column;
+						break;
+					case Types.DECIMAL:
+						value = BigDecimal.valueOf(row * 1234567L + column, 2);
+						break;
+					case Types.DOUBLE:
+						value = row / 7.0 + column;
+						break;
+					case Types.TIMESTAMP:
+						value = new Timestamp(epoch + row * day + column * 60000L);
+						break;
+					case Types.DATE:
+						value = new Date(epoch + row * day);
+						break;
+					case Types.BOOLEAN:
+						value = (row + column) % 2 == 0;
+						break;
+					default:
+						StringBuilder text = new StringBuilder();
+						for (int i = 0; i < 8 + (row * 7 + column) % 57; i++) {
+							text.append((char) ('a' + (row + column + i) % 26));
+						}
+						value = text.toString();
+					}
+					this.values[row][column - 1] = (row + column) % NULL_RATE == 0 ? null : value;
+				}
+			}
+		}
+
+		/**
+		 *
+		 * @return SyntheticResultSet New ResultSet positioned before the first row.
+		 */
+		public SyntheticResultSet newResultSet() {
+			return new SyntheticResultSet(this);
+		}
+	}
+
+	private final Data data;
+	private final ResultSetMetaData metaData;
+	private long row = -1;
+	private Object[] values;
+
+	private SyntheticResultSet(Data data) {
+		this.data = data;
+		this.metaData = new MetaData(data.types);
+	}
+
+	@Override
+	protected boolean advance() {
+		if (++this.row >= this.data.rows) {
+			return false;
+		}
+		this.values = this.data.values[(int) (this.row % CYCLE)];
+		return true;
+	}
+
+	@Override
+	protected Object getValue(int column) {
+		return this.values[column - 1];
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() {
+		return this.metaData;
+	}
+
+	/**
+	 * Metadata of generated columns, named C1, C2, ...
+	 */
+	private static class MetaData implements ResultSetMetaData {
+		private final int[] types;
+
+		private MetaData(int[] types) {
+			this.types = types;
+		}
+
+		@Override
+		public int getColumnCount() {
+			return this.types.length;
+		}
+
+		@Override
+		public boolean isAutoIncrement(int column) {
+			return false;
+		}
+
+		@Override
+		public boolean isCaseSensitive(int column) {
+			return this.getColumnType(column) == Types.VARCHAR;
+		}
+
+		@Override
+		public boolean isSearchable(int column) {
+			return true;
+		}
+
+		@Override
+		public boolean isCurrency(int column) {
+			return false;
+		}
+
+		@Override
+		public int isNullable(int column) {
+			return columnNullable;
+		}
+
+		@Override
+		public boolean isSigned(int column) {
+			switch (this.getColumnType(column)) {
+			case Types.INTEGER:
+			case Types.BIGINT:
+			case Types.DECIMAL:
+			case Types.DOUBLE:
+				return true;
+			default:
+				return false;
+			}
+		}
+
+		@Override
+		public int getColumnDisplaySize(int column) {
+			switch (this.getColumnType(column)) {
+			case Types.BOOLEAN:
+				return 5;
+			case Types.DATE:
+				return 10;
+			case Types.TIMESTAMP:
+				return 29;
+			case Types.VARCHAR:
+				return 64;
+			default:
+				return 20;
+			}
+		}
+
+		@Override
+		public String getColumnLabel(int column) {
+			return this.getColumnName(column);
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			return "C" + column;
+		}
+
+		@Override
+		public String getSchemaName(int column) {
+			return "";
+		}
+
+		@Override
+		public int getPrecision(int column) {
+			switch (this.getColumnType(column)) {
+			case Types.INTEGER:
+				return 10;
+			case Types.BIGINT:
+				return 19;
+			case Types.DECIMAL:
+				return 18;
+			case Types.DOUBLE:
+				return 17;
+			default:
+				return this.getColumnDisplaySize(column);
+			}
+		}
+
+		@Override
+		public int getScale(int column) {
+			return this.getColumnType(column) == Types.DECIMAL ? 2 : 0;
+		}
+
+		@Override
+		public String getTableName(int column) {
+			return "";
+		}
+
+		@Override
+		public String getCatalogName(int column) {
+			return "";
+		}
+
+		@Override
+		public int getColumnType(int column) {
+			return this.types[column - 1];
+		}
+
+		@Override
+		public String getColumnTypeName(int column) {
+			switch (this.getColumnType(column)) {
+			case Types.INTEGER:
+				return "INTEGER";
+			case Types.BIGINT:
+				return "BIGINT";
+			case Types.DECIMAL:
+				return "DECIMAL";
+			case Types.DOUBLE:
+				return "DOUBLE";
+			case Types.TIMESTAMP:
+				return "TIMESTAMP";
+			case Types.DATE:
+				return "DATE";
+			case Types.BOOLEAN:
+				return "BOOLEAN";
+			default:
+				return "VARCHAR";
+			}
+		}
+
+		@Override
+		public boolean isReadOnly(int column) {
+			return true;
+		}
+
+		@Override
+		public boolean isWritable(int column) {
+			return false;
+		}
+
+		@Override
+		public boolean isDefinitelyWritable(int column) {
+			return false;
+		}
+
+		@Override
+		public String getColumnClassName(int column) {
+			switch (this.getColumnType(column)) {
+			case Types.INTEGER:
+				return Integer.class.getName();
+			case Types.BIGINT:
+				return Long.class.getName();
+			case Types.DECIMAL:
+				return BigDecimal.class.getName();
+			case Types.DOUBLE:
+				return Double.class.getName();
+			case Types.TIMESTAMP:
+				return Timestamp.class.getName();
+			case Types.DATE:
+				return Date.class.getName();
+			case Types.BOOLEAN:
+				return Boolean.class.getName();
+			default:
+				return String.class.getName();
+			}
+		}
+
+		@Override
+		public <T> T unwrap(Class<T> iface) throws SQLException {
+			if (iface.isInstance(this)) {
+				return iface.cast(this);
+			}
+			throw new SQLException("Not a wrapper for " + iface.getName());
+		}
+
+		@Override
+		public boolean isWrapperFor(Class<?> iface) {
+			return iface.isInstance(this);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.nathanahrens.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pwsafe.lib.file.PwsFieldTypeV3;
+import org.pwsafe.lib.file.PwsFile;
+import org.pwsafe.lib.file.PwsFileFactory;
+import org.pwsafe.lib.file.PwsFileStorage;
+import org.pwsafe.lib.file.PwsRecord;
+import org.pwsafe.lib.file.PwsRecordV3;
+import org.pwsafe.lib.file.PwsStringUnicodeField;
+
+import com.nathanahrens.pwsafe.Credential;
+import com.nathanahrens.pwsafe.SafeWrapper;
+
+/**
+ * <p>Time to load a generated Password Safe vault, and to look up or decrypt one of its records once loaded.</p>
+ * <p>Records are spread over ten groups (every other record has none), and titled T0, T1, ... Lookups visit records
+ * in a fixed scattered order, so every run reads the same records.</p>
+ * @author nahrens
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VaultBenchmark {
+	public static final String PASSPHRASE = "benchmark";
+	private static final int GROUPS = 10;
+	// Prime step between looked up records, so lookups do not walk the records in order
+	private static final int STEP = 7919;
+
+	@Param({ "10", "1000", "100000" })
+	private int records;
+
+	private File vaultFile;
+	private PwsFile vault;
+	private SafeWrapper safe;
+	private int next;
+
+	@Setup
+	public void setUp() throws Exception {
+		this.vaultFile = File.createTempFile("VaultBenchmark", ".psafe3");
+		generate(this.vaultFile, this.records);
+		this.vault = PwsFileFactory.loadFile(this.vaultFile.getPath(), new StringBuilder(PASSPHRASE));
+		this.safe = new SafeWrapper(this.vaultFile.getPath(), new StringBuilder(PASSPHRASE));
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.vaultFile.delete();
+	}
+
+	/**
+	 * Write a vault of records with a username, a password and notes of up to 200 characters.
+	 */
+	static void generate(File file, int records) throws Exception {
+		PwsFile vault = PwsFileFactory.newFile();
+		vault.setPassphrase(new StringBuilder(PASSPHRASE));
+		vault.setStorage(new PwsFileStorage(file.getPath()));
+		for (int i = 0; i < records; i++) {
+			PwsRecordV3 rec = (PwsRecordV3) vault.newRecord();
+			if (i % 2 == 0) {
+				rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.GROUP, "G" + (i / 2 % GROUPS)));
+			}
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.TITLE, "T" + i));
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.USERNAME, "user" + i));
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.PASSWORD, "password" + i));
+			StringBuilder notes = new StringBuilder();
+			for (int k = 0; k < i % 201; k++) {
+				notes.append((char) ('a' + k % 26));
+			}
+			rec.setField(new PwsStringUnicodeField(PwsFieldTypeV3.NOTES, notes.toString()));
+			vault.add(rec);
+		}
+		vault.save();
+	}
+
+	private int nextRecord() {
+		this.next = (this.next + STEP) % this.records;
+		return this.next;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public PwsFile loadFile() throws Exception {
+		return PwsFileFactory.loadFile(this.vaultFile.getPath(), new StringBuilder(PASSPHRASE));
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Credential getCredential() {
+		int i = this.nextRecord();
+		return this.safe.getCredential(i % 2 == 0 ? "G" + (i / 2 % GROUPS) : null, "T" + i);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public PwsRecord getRecord() {
+		return this.vault.getRecord(this.nextRecord());
+	}
+}
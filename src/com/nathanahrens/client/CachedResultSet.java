@@ -0,0 +1,112 @@
+package com.nathanahrens.client;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.zip.GZIPInputStream;
+
+import com.nathanahrens.resultset.ForwardOnlyResultSet;
+import com.nathanahrens.resultset.ResultSetMetaDataSnapshot;
+
+/**
+ * <p>Reads a result stored by the {@link ResultCache}: the time it was cached, followed by a gzip-compressed stream of
+ * its metadata and its batches of rows, ending with null.</p>
+ * @author nahrens
+ *
+ */
+class CachedResultSet extends ForwardOnlyResultSet {
+	/**
+	 * Only the types a {@link com.nathanahrens.resultset.RowReader} returns may be read back from a cache file.
+	 */
+	private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+			"java.lang.*;java.math.*;java.sql.*;java.time.*;java.util.Date;com.nathanahrens.resultset.ResultSetMetaDataSnapshot;!*");
+
+	private final ObjectInputStream in;
+	private final long createdAt;
+	private final ResultSetMetaDataSnapshot metaData;
+	private Object[][] batch;
+	private Object[] row;
+	private int index;
+	private boolean end;
+
+	CachedResultSet(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		try {
+			this.createdAt = data.readLong();
+			this.in = new ObjectInputStream(new GZIPInputStream(data));
+			this.in.setObjectInputFilter(FILTER);
+			this.metaData = (ResultSetMetaDataSnapshot) this.in.readObject();
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			data.close();
+			throw e instanceof IOException ? (IOException) e : new IOException("Invalid cache file", e);
+		}
+	}
+
+	/**
+	 * Read when a result was cached, without reading its rows.
+	 */
+	static long readCreatedAt(File file) throws IOException {
+		try (DataInputStream data = new DataInputStream(new FileInputStream(file))) {
+			return data.readLong();
+		}
+	}
+
+	/**
+	 *
+	 * @return long Time the result was cached, in milliseconds since the epoch.
+	 */
+	long getCreatedAt() {
+		return this.createdAt;
+	}
+
+	@Override
+	protected boolean advance() throws SQLException {
+		while (this.batch == null || this.index >= this.batch.length) {
+			if (this.end) {
+				return false;
+			}
+			try {
+				this.batch = (Object[][]) this.in.readObject();
+			} catch (IOException | ClassNotFoundException | ClassCastException e) {
+				throw new SQLException("Unable to read cached results", e);
+			}
+			this.index = 0;
+			if (this.batch == null) {
+				this.end = true;
+				return false;
+			}
+		}
+		this.row = this.batch[this.index++];
+		return true;
+	}
+
+	@Override
+	protected Object getValue(int column) {
+		return this.row[column - 1];
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() {
+		return this.metaData;
+	}
+
+	@Override
+	public void close() {
+		try {
+			this.in.close();
+		} catch (IOException e) {
+			// Nothing left to read from it
+		}
+		try {
+			super.close();
+		} catch (SQLException e) {
+			// Never thrown by ForwardOnlyResultSet
+		}
+	}
+}
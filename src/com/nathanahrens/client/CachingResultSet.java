@@ -0,0 +1,144 @@
+package com.nathanahrens.client;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import com.nathanahrens.resultset.ForwardOnlyResultSet;
+import com.nathanahrens.resultset.ResultSetMetaDataSnapshot;
+import com.nathanahrens.resultset.RowReader;
+
+/**
+ * <p>Returns the rows of a query while writing them to a temporary file in the format {@link CachedResultSet} reads.
+ * The file is handed to the {@link ResultCache} once all rows were read, and deleted if the ResultSet is closed
+ * earlier. Failing to write the file only stops the recording, not the query.</p>
+ * @author nahrens
+ *
+ */
+class CachingResultSet extends ForwardOnlyResultSet {
+	private static final int BATCH_SIZE = 1024;
+
+	private final ResultCache cache;
+	private final String key;
+	private final ResultSet rs;
+	private final File temp;
+	private final ResultSetMetaDataSnapshot metaData;
+	private final RowReader reader;
+	private ObjectOutputStream out;
+	private List<Object[]> batch = new ArrayList<Object[]>(BATCH_SIZE);
+	private Object[] row;
+
+	CachingResultSet(ResultCache cache, String key, ResultSet rs, File temp) throws SQLException {
+		this.cache = cache;
+		this.key = key;
+		this.rs = rs;
+		this.temp = temp;
+		this.metaData = ResultSetMetaDataSnapshot.of(rs.getMetaData());
+		this.reader = new RowReader(this.metaData);
+		try {
+			DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			data.writeLong(System.currentTimeMillis());
+			this.out = new ObjectOutputStream(new GZIPOutputStream(data, 64 * 1024));
+			this.out.writeObject(this.metaData);
+		} catch (IOException e) {
+			this.abandon(e);
+		}
+	}
+
+	@Override
+	protected boolean advance() throws SQLException {
+		if (!this.rs.next()) {
+			this.commit();
+			return false;
+		}
+		this.row = this.reader.read(this.rs);
+		if (this.out != null) {
+			this.batch.add(this.row);
+			if (this.batch.size() == BATCH_SIZE) {
+				this.writeBatch();
+			}
+		}
+		return true;
+	}
+
+	private void writeBatch() {
+		try {
+			this.out.writeObject(this.batch.toArray(new Object[this.batch.size()][]));
+			// Forget the rows written so far, rather than keeping references to all of them
+			this.out.reset();
+			this.batch.clear();
+		} catch (IOException e) {
+			this.abandon(e);
+		}
+	}
+
+	private void commit() {
+		if (this.out == null) {
+			return;
+		}
+		if (!this.batch.isEmpty()) {
+			this.writeBatch();
+		}
+		try {
+			if (this.out != null) {
+				this.out.writeObject(null);
+				this.out.close();
+				this.out = null;
+				this.cache.commit(this.key, this.temp);
+			}
+		} catch (IOException e) {
+			this.abandon(e);
+		}
+	}
+
+	/**
+	 * Stop recording, deleting the incomplete file.
+	 */
+	private void abandon(IOException e) {
+		if (e != null) {
+			this.cache.log("Unable to cache results: " + e.getMessage());
+		}
+		if (this.out != null) {
+			try {
+				this.out.close();
+			} catch (IOException closeFailure) {
+				// The file is deleted anyway
+			}
+			this.out = null;
+		}
+		this.batch = null;
+		this.temp.delete();
+	}
+
+	@Override
+	protected Object getValue(int column) {
+		return this.row[column - 1];
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() {
+		return this.metaData;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (this.out != null) {
+			// Not all rows were read, so the result is incomplete
+			this.abandon(null);
+		}
+		try {
+			this.rs.close();
+		} finally {
+			super.close();
+		}
+	}
+}
@@ -3,22 +3,82 @@ package com.nathanahrens.client;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.nathanahrens.log.Logger;
+import com.nathanahrens.resultset.ArrowResultBuffer;
+import com.nathanahrens.resultset.DataExportDelimitedWriter;
 import com.nathanahrens.resultset.DataExportExcelWriter;
+import com.nathanahrens.resultset.DataExportParquetWriter;
+import com.nathanahrens.resultset.ExportMetrics;
+import com.nathanahrens.resultset.MergedResultSet;
+import com.nathanahrens.resultset.ProgressResultSet;
+import com.nathanahrens.resultset.ResultSetFanOut;
 import com.nathanahrens.resultset.ResultSetUtil;
 
 public class Client implements IClient {
+	/**
+	 * Amount of row data the adaptive fetch size aims to transfer per round trip.
+	 */
+	private static final int ADAPTIVE_FETCH_BYTES = 1024 * 1024;
+	private static final int MIN_FETCH_SIZE = 10;
+	private static final int MAX_FETCH_SIZE = 10000;
+	/**
+	 * Width assumed for columns without a meaningful display size (i.e., LOBs).
+	 */
+	private static final int MAX_COLUMN_WIDTH = 4000;
+	/**
+	 * Runs the queries started by {@link #queryAsync(String)}. Threads are daemons, so pending queries do not keep the
+	 * process alive.
+	 */
+	private static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "Client-query-" + this.threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
 
 	private final Source source;
 	private Connection connection;
+	// Connection borrowed for this client by its parent, used by its next query
+	private Connection reservedConnection;
+	// Read by cancel() from other threads
+	private volatile PreparedStatement stmt;
+	private volatile List<Client> partitionClients;
+	private volatile boolean cancelRequested;
+	private String stmtSql;
 	private ResultSet rs;
 	private String sql;
 	private Logger logger;
+	private int rowAccessWindowSize = DataExportExcelWriter.DEFAULT_ROW_ACCESS_WINDOW;
+	private int maxRowsPerSheet = DataExportExcelWriter.MAX_ROWS_PER_SHEET;
+	private long maxRowsPerFile;
+	private QueryPartitioner partitioner;
+	private boolean bufferResults;
+	private ArrowResultBuffer buffer;
+	private String parquetCompression;
+	private long parquetRowGroupSize;
+	private ProgressResultSet.Listener progressListener;
+	private long cacheTtlMillis;
+	private QueryParameters parameters;
+	private boolean metricsEnabled;
+	private ExportMetrics.Listener metricsListener;
+	private ExportMetrics metrics;
 
 	public Client(Source source, Logger logger) {
 		this.logger = logger;
@@ -40,79 +100,554 @@ public class Client implements IClient {
 
 	private Connection getConnection() throws SQLException {
 		if (this.connection == null) {
-			try {
-				Class.forName(this.source.getSourceTypeDriver());
-			} catch (ClassNotFoundException e) {
-				e.printStackTrace();
-				this.logger.log("Please ensure the driver class is in the classpath...");
-			}
-			Connection conn = DriverManager.getConnection(this.source.getSourceURL(),
-					this.source.getUser().getUserName(), this.source.getUser().getPassword());
-			return conn;
+			Connection reserved = this.takeReservedConnection();
+			return reserved != null ? reserved : ConnectionPool.getInstance().borrow(this.source);
 		}
 		return this.connection;
 	}
 
+	public void close() {
+		this.closeStatement();
+		if (this.buffer != null) {
+			this.buffer.close();
+			this.buffer = null;
+		}
+		if (this.metrics != null) {
+			this.metrics.finish();
+			this.logger.log("Run metrics: " + this.metrics.getSummary());
+			this.metrics = null;
+		}
+	}
+
+	private synchronized Connection takeReservedConnection() {
+		Connection reserved = this.reservedConnection;
+		this.reservedConnection = null;
+		return reserved;
+	}
+
+	private void releaseReservedConnection() {
+		Connection reserved = this.takeReservedConnection();
+		if (reserved != null) {
+			ConnectionPool.getInstance().release(reserved);
+		}
+	}
+
+	/**
+	 * Close the {@link ResultSet} and statement of the query and return the connection to the pool.
+	 */
+	private void closeStatement() {
+		try {
+			if (this.rs != null) {
+				this.rs.close();
+			}
+		} catch (SQLException e) {
+			e.printStackTrace(this.logger.getPrintStream());
+		} finally {
+			if (this.stmt != null) {
+				// Keep the statement open on the connection for the next run of the same SQL
+				ConnectionPool.getInstance().releaseStatement(this.connection, this.stmtSql, this.stmt);
+			}
+			this.rs = null;
+			this.stmt = null;
+			this.stmtSql = null;
+			this.partitionClients = null;
+		}
+		if (this.connection != null) {
+			ConnectionPool.getInstance().release(this.connection);
+			this.connection = null;
+		}
+	}
+
 	public boolean query(String sql) {
+		return this.query(sql, null);
+	}
+
+	public QueryHandle queryAsync(String sql) {
+		QueryHandle handle = new QueryHandle(this);
+		ASYNC_EXECUTOR.execute(() -> this.query(sql, handle));
+		return handle;
+	}
+
+	/**
+	 * Run the query, completing the handle (if any) with its {@link ResultSet} or its failure.
+	 */
+	private boolean query(String sql, QueryHandle handle) {
+		this.close();
 		this.sql = sql;
-		if (this.connect()) {
-			this.logger.log("Sending query to source...");
-			PreparedStatement stmt;
-			try {
-				stmt = this.connection.prepareStatement(sql);
-				
-				// Execute query
+		this.cancelRequested = false;
+		if (this.metricsEnabled || this.metricsListener != null) {
+			this.metrics = new ExportMetrics(this.source.getSourceURL(), this.metricsListener,
+					ExportMetrics.DEFAULT_INTERVAL);
+			this.metrics.start();
+		}
+		String cacheKey = this.cacheTtlMillis > 0 ? ResultCache.getKey(sql, this.parameters, this.source) : null;
+		if (cacheKey != null) {
+			this.rs = ResultCache.getInstance().get(cacheKey, this.cacheTtlMillis);
+			if (this.rs != null) {
+				this.logger.log("Serving results from cache...");
+			}
+		}
+		if (this.rs == null && !this.connect()) {
+			if (handle != null) {
+				handle.completeExceptionally(new SQLException("Could not create connection to " + this.source.getSourceURL()));
+			}
+			return false;
+		}
+		try {
+			if (this.rs == null) {
+				this.logger.log("Sending query to source...");
+				if (this.partitioner != null) {
+					this.executePartitions(sql);
+				} else {
+					this.execute(sql);
+				}
+				if (cacheKey != null) {
+					// Cache the rows as the first action reads them
+					this.rs = ResultCache.getInstance().record(cacheKey, this.rs);
+				}
+			}
+			
+			if (handle != null || this.progressListener != null || this.metrics != null) {
+				ProgressResultSet progress = new ProgressResultSet(this.rs, this.progressListener,
+						ProgressResultSet.DEFAULT_INTERVAL);
+				progress.setMetrics(this.metrics);
+				this.rs = progress;
+				if (handle != null) {
+					handle.setProgress(progress);
+				}
+			}
+			
+			if (this.bufferResults) {
+				// Read all rows now, so the connection can go back to the pool before any action runs
 				long startTime = System.nanoTime();
-				stmt.executeQuery();
+				this.buffer = ArrowResultBuffer.load(this.rs);
 				long endTime = System.nanoTime();
 				double delta = (double) ((endTime - startTime)/1000000000.0);
-				this.logger.log(String.format("Query executed in %,.3f seconds... ",delta));
-				
-				// Fetch ResultSet
-				this.rs = stmt.getResultSet();
-				
-				return true;
-			} catch (SQLException e) {
+				this.closeStatement();
+				this.logger.log(String.format("%,d rows buffered in %,.3f seconds (%,d bytes)...",
+						this.buffer.getRowCount(), delta, this.buffer.getAllocatedMemory()));
+			}
+			
+			if (handle != null && !handle.complete(this.getResultSet())) {
+				// Cancelled while the query was executing
+				this.close();
+				return false;
+			}
+			return true;
+		} catch (SQLException e) {
+			if (handle == null || !handle.isCancelRequested()) {
 				e.printStackTrace();
-				this.logger.log("Failed to execute query...");
+			}
+			this.logger.log("Failed to execute query...");
+			this.close();
+			if (handle != null) {
+				handle.completeExceptionally(e);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			this.logger.log("Failed to buffer results...");
+			this.close();
+			if (handle != null) {
+				handle.completeExceptionally(e);
 			}
 		}
 		return false;
 	}
 
-	public void saveExcel(String path) {
-		this.saveExcel(path, false);
+	public void cancel() {
+		this.logger.log("Cancelling query...");
+		this.cancelRequested = true;
+		PreparedStatement stmt = this.stmt;
+		if (stmt != null) {
+			try {
+				stmt.cancel();
+			} catch (SQLException e) {
+				// The statement may have completed or been closed in the meantime
+				this.logger.log("Unable to cancel statement: " + e.getMessage());
+			}
+		}
+		List<Client> partitionClients = this.partitionClients;
+		if (partitionClients != null) {
+			for (Client client : partitionClients) {
+				client.cancel();
+			}
+		}
+	}
+
+	private void execute(String sql) throws SQLException {
+		List<String> names = new ArrayList<String>();
+		String jdbcSql = this.parameters == null || this.parameters.isEmpty() ? sql
+				: QueryParameters.toJdbc(sql, names);
+		// The ResultSet is only ever iterated once, so use a streaming cursor. Statements are reused from earlier
+		// runs of the same SQL on the connection, so every setting is applied again
+		this.stmt = ConnectionPool.getInstance().prepareStatement(this.connection, jdbcSql);
+		this.stmtSql = jdbcSql;
+		if (!names.isEmpty()) {
+			this.parameters.bind(this.stmt, names);
+			this.logger.log(String.format("Binding %d parameters...", names.size()));
+		}
+		this.stmt.setMaxRows(this.source.getMaxRows());
+		this.stmt.setQueryTimeout(this.source.getQueryTimeout());
+		if (this.source.isAdaptiveFetchSize()) {
+			// Size the first fetch already if the driver can describe the query before executing it
+			ResultSetMetaData rsmd = this.stmt.getMetaData();
+			if (rsmd != null) {
+				this.stmt.setFetchSize(getAdaptiveFetchSize(rsmd));
+			}
+		} else {
+			this.stmt.setFetchSize(this.source.getFetchSize());
+		}
+		
+		// Execute query, keeping its ResultSet: not every driver returns it again from getResultSet (HSQLDB does not)
+		long startTime = System.nanoTime();
+		this.rs = stmt.executeQuery();
+		long endTime = System.nanoTime();
+		double delta = (double) ((endTime - startTime)/1000000000.0);
+		this.logger.log(String.format("Query executed in %,.3f seconds... ",delta));
+		
+		if (this.source.isAdaptiveFetchSize()) {
+			int fetchSize = getAdaptiveFetchSize(this.rs.getMetaData());
+			this.rs.setFetchSize(fetchSize);
+			this.logger.log(String.format("Fetching %,d rows per round trip...", fetchSize));
+		}
+		if (this.metrics != null) {
+			this.metrics.add(ExportMetrics.Phase.EXECUTE, endTime - startTime);
+			// Not every driver reports the fetch size of the ResultSet, so fall back on the statement's
+			int fetchSize = this.rs.getFetchSize();
+			this.metrics.setFetchSize(fetchSize > 0 ? fetchSize : this.stmt.getFetchSize());
+		}
+	}
+
+	/**
+	 * Split the query with the {@link QueryPartitioner}, then run every partition on a pooled connection of its own,
+	 * merging their rows into one {@link ResultSet}.
+	 */
+	private void executePartitions(String sql) throws SQLException {
+		List<String> queries = this.partitioner.split(sql, this.parameters, this.connection);
+		// The connection was only needed to find the bounds of the partitions
+		ConnectionPool.getInstance().release(this.connection);
+		this.connection = null;
+
+		this.logger.log(String.format("Sending query to source in %d partitions...", queries.size()));
+		// An ordered merge needs a row of every partition before it returns any, so every partition must be connected
+		// at the same time. Borrow all their connections at once, rather than deadlock waiting on the pool for some.
+		List<Connection> reserved = this.partitioner.isOrdered()
+				? ConnectionPool.getInstance().borrow(this.source, queries.size())
+				: null;
+		List<MergedResultSet.Partition> partitions = new ArrayList<MergedResultSet.Partition>(queries.size());
+		List<Client> partitionClients = new ArrayList<Client>(queries.size());
+		for (int i = 0; i < queries.size(); i++) {
+			String query = queries.get(i);
+			Client client = new Client(this.source, this.logger);
+			client.setParameters(this.parameters);
+			if (reserved != null) {
+				client.reservedConnection = reserved.get(i);
+			}
+			partitionClients.add(client);
+			partitions.add(new MergedResultSet.Partition() {
+				@Override
+				public ResultSet open() throws SQLException {
+					if (!client.query(query)) {
+						throw new SQLException("Failed to execute partition: " + query);
+					}
+					return client.getResultSet();
+				}
+
+				@Override
+				public void close() {
+					client.close();
+					client.releaseReservedConnection();
+				}
+			});
+		}
+		this.partitionClients = partitionClients;
+		long startTime = System.nanoTime();
+		try {
+			this.rs = new MergedResultSet(partitions,
+					this.partitioner.isOrdered() ? this.partitioner.getColumnLabel() : null);
+		} catch (SQLException | RuntimeException e) {
+			// Partitions that never started still hold their connection
+			for (Client client : partitionClients) {
+				client.releaseReservedConnection();
+			}
+			throw e;
+		}
+		long endTime = System.nanoTime();
+		double delta = (double) ((endTime - startTime)/1000000000.0);
+		this.logger.log(String.format("First partition executed in %,.3f seconds... ",delta));
+		if (this.metrics != null) {
+			this.metrics.add(ExportMetrics.Phase.EXECUTE, endTime - startTime);
+		}
+	}
+
+	/**
+	 * Pick a fetch size that transfers roughly {@link #ADAPTIVE_FETCH_BYTES} per round trip, based on the estimated
+	 * width of a row.
+	 */
+	private static int getAdaptiveFetchSize(ResultSetMetaData rsmd) throws SQLException {
+		int colCount = rsmd.getColumnCount();
+		long rowWidth = 0;
+		for (int i = 1; i <= colCount; i++) {
+			int width = rsmd.getColumnDisplaySize(i);
+			if (width <= 0 || width > MAX_COLUMN_WIDTH) {
+				width = MAX_COLUMN_WIDTH;
+			}
+			rowWidth += width;
+		}
+		long fetchSize = ADAPTIVE_FETCH_BYTES / Math.max(rowWidth, 1);
+		return (int) Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, fetchSize));
+	}
+
+	public boolean saveExcel(String path) {
+		return this.saveExcel(path, false);
 	}
 	
 	public ResultSet getResultSet() {
+		if (this.buffer != null) {
+			return this.buffer.newResultSet();
+		}
 		return this.rs;
 	}
 
-	public void saveExcel(String path, boolean saveSql) {
-		this.logger.log("Saving to Excel...");
-		DataExportExcelWriter excel = new DataExportExcelWriter();
+	public void setPartitioner(QueryPartitioner partitioner) {
+		this.partitioner = partitioner;
+	}
+
+	public void setProgressListener(ProgressResultSet.Listener listener) {
+		this.progressListener = listener;
+	}
+
+	public void setMetrics(boolean metricsEnabled) {
+		this.metricsEnabled = metricsEnabled;
+	}
+
+	public void setMetricsListener(ExportMetrics.Listener listener) {
+		this.metricsListener = listener;
+	}
+
+	public void setParameters(QueryParameters parameters) {
+		this.parameters = parameters;
+	}
+
+	public void setCacheTtl(long cacheTtlSeconds) {
+		this.cacheTtlMillis = cacheTtlSeconds * 1000;
+	}
+
+	public void setBufferResults(boolean bufferResults) {
+		this.bufferResults = bufferResults;
+	}
+
+	/**
+	 * Release the query once an action has consumed its {@link ResultSet}, unless the results are buffered for further
+	 * actions.
+	 */
+	private void finishAction() {
+		if (this.buffer == null) {
+			this.close();
+		}
+	}
+
+	public void setRowAccessWindowSize(int rowAccessWindowSize) {
+		this.rowAccessWindowSize = rowAccessWindowSize;
+	}
+
+	public void setMaxRowsPerSheet(int maxRowsPerSheet) {
+		this.maxRowsPerSheet = maxRowsPerSheet;
+	}
+
+	public void setMaxRowsPerFile(long maxRowsPerFile) {
+		this.maxRowsPerFile = maxRowsPerFile;
+	}
+
+	public void setParquetCompression(String compression) {
+		// Reject unknown codecs before the query runs
+		DataExportParquetWriter.getCompression(compression);
+		this.parquetCompression = compression;
+	}
+
+	public void setParquetRowGroupSize(long rowGroupSize) {
+		this.parquetRowGroupSize = rowGroupSize;
+	}
+
+	public boolean saveExcel(String path, boolean saveSql) {
+		return this.run(rs -> this.writeExcel(rs, path, saveSql));
+	}
+
+	public boolean saveDelimited(String path) {
+		DataExportDelimitedWriter writer = DataExportDelimitedWriter.forFile(path);
+		if (writer == null) {
+			this.logger.log("Unknown delimited file type, expected .csv, .tsv, .csv.gz or .tsv.gz: " + path);
+			this.close();
+			return false;
+		}
+		return this.run(rs -> this.writeDelimited(writer, rs, path));
+	}
+
+	public boolean saveDelimited(String path, char delimiter, boolean gzip) {
+		DataExportDelimitedWriter writer = new DataExportDelimitedWriter(delimiter, gzip);
+		return this.run(rs -> this.writeDelimited(writer, rs, path));
+	}
+
+	public boolean saveParquet(String path) {
+		return this.saveParquet(path, this.parquetCompression, this.parquetRowGroupSize);
+	}
+
+	public boolean saveParquet(String path, String compression, long rowGroupSize) {
+		try {
+			DataExportParquetWriter.getCompression(compression);
+		} catch (IllegalArgumentException e) {
+			this.logger.log("Unknown Parquet compression: " + compression);
+			this.close();
+			return false;
+		}
+		return this.run(rs -> this.writeParquet(rs, path, compression, rowGroupSize));
+	}
+
+	public boolean saveArrow(String path) {
+		return this.saveArrow(path, path.toLowerCase().endsWith(".arrows"));
+	}
+
+	public boolean saveArrow(String path, boolean stream) {
+		return this.run(rs -> this.writeArrow(rs, path, stream));
+	}
+
+	public boolean print() {
+		return this.run(rs -> ResultSetUtil.printResultSet(rs, "\t"));
+	}
+
+	public boolean save(String path) {
+		return this.run(this.getSink(path));
+	}
+
+	public ResultSetFanOut.Sink getSink(String path) {
+		String name = path.toLowerCase();
+		if (path.equals(STDOUT)) {
+			return rs -> ResultSetUtil.printResultSet(rs, "\t");
+		}
+		DataExportDelimitedWriter delimited = DataExportDelimitedWriter.forFile(path);
+		if (delimited != null) {
+			return rs -> this.writeDelimited(delimited, rs, path);
+		}
+		if (name.endsWith(".parquet")) {
+			return rs -> this.writeParquet(rs, path, this.parquetCompression, this.parquetRowGroupSize);
+		}
+		if (name.endsWith(".arrow") || name.endsWith(".arrows")) {
+			return rs -> this.writeArrow(rs, path, name.endsWith(".arrows"));
+		}
+		return rs -> this.writeExcel(rs, path, true);
+	}
+
+	public boolean fanOut(ResultSetFanOut fanOut) {
+		this.logger.log(String.format("Reading results into %d outputs...", fanOut.getSinkCount()));
 		try {
 			long startTime = System.nanoTime();
-			excel.saveExcel(rs, path, saveSql, this.sql);
+			long rows = fanOut.run(this.getResultSet());
 			long endTime = System.nanoTime();
 			double delta = (double) ((endTime - startTime)/1000000000.0);
-			this.logger.log(String.format("Excel file written successfully in %,.3f seconds: %s",delta,path));
+			this.logger.log(String.format("%,d rows read into %d outputs in %,.3f seconds",rows,fanOut.getSinkCount(),delta));
+			for (Map.Entry<String, Exception> failure : fanOut.getFailures().entrySet()) {
+				failure.getValue().printStackTrace(this.logger.getPrintStream());
+				this.logger.log("Output failed: " + failure.getKey() + ": " + failure.getValue().getMessage());
+			}
+			this.finishAction();
+			return fanOut.getFailures().isEmpty();
+		} catch (SQLException e) {
+			// Reading the source failed, so every output is incomplete
+			this.logFailure(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.logger.log("Interrupted while writing outputs...");
+		}
+		this.close();
+		return false;
+	}
+
+	/**
+	 * Run an action on the {@link ResultSet} of the query. A failure, including the query being cancelled or timing
+	 * out while its rows are read, is logged and closes the query, so other queries of the process carry on.
+	 */
+	private boolean run(ResultSetFanOut.Sink action) {
+		try {
+			action.consume(this.getResultSet());
+			this.finishAction();
+			return true;
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 			this.logger.log("Unable to open file...");
-			System.exit(-1);
 		} catch (IOException e) {
 			e.printStackTrace();
 			this.logger.log("Unable to save file...");
-			System.exit(-1);
 		} catch (SQLException e) {
+			this.logFailure(e);
+		}
+		this.close();
+		return false;
+	}
+
+	/**
+	 * Log a failure to read the results, without a stack trace when the query was cancelled or timed out.
+	 */
+	private void logFailure(SQLException e) {
+		if (this.cancelRequested) {
+			this.logger.log("Query was cancelled: " + e.getMessage());
+		} else if (e instanceof SQLTimeoutException) {
+			this.logger.log("Query timed out: " + e.getMessage());
+		} else {
 			e.printStackTrace();
 			this.logger.log("Unable to parse ResultSet...");
-			System.exit(-1);
 		}
 	}
 
-	public void print() {
-		ResultSetUtil.printResultSet(this.rs, "\t");
+	private void writeExcel(ResultSet rs, String path, boolean saveSql) throws IOException, SQLException {
+		this.logger.log("Saving to Excel...");
+		DataExportExcelWriter excel = new DataExportExcelWriter(this.rowAccessWindowSize);
+		excel.setMaxRowsPerSheet(this.maxRowsPerSheet);
+		excel.setMaxRowsPerFile(this.maxRowsPerFile);
+		excel.setMetrics(this.metrics);
+		long startTime = System.nanoTime();
+		excel.saveExcel(rs, path, saveSql, this.sql);
+		long endTime = System.nanoTime();
+		double delta = (double) ((endTime - startTime)/1000000000.0);
+		if (excel.getFilesWritten().size() > 1) {
+			this.logger.log(String.format("%d Excel files written successfully in %,.3f seconds: %s",
+					excel.getFilesWritten().size(), delta, String.join(", ", excel.getFilesWritten())));
+		} else {
+			this.logger.log(String.format("Excel file written successfully in %,.3f seconds: %s",delta,path));
+		}
+	}
+
+	private void writeDelimited(DataExportDelimitedWriter writer, ResultSet rs, String path)
+			throws IOException, SQLException {
+		this.logger.log("Saving to delimited file...");
+		long startTime = System.nanoTime();
+		long rows = writer.saveDelimited(rs, path);
+		long endTime = System.nanoTime();
+		double delta = (double) ((endTime - startTime)/1000000000.0);
+		this.logger.log(String.format("%,d rows written successfully in %,.3f seconds: %s",rows,delta,path));
+	}
+
+	private void writeParquet(ResultSet rs, String path, String compression, long rowGroupSize)
+			throws IOException, SQLException {
+		this.logger.log("Saving to Parquet...");
+		DataExportParquetWriter parquet = new DataExportParquetWriter(DataExportParquetWriter.getCompression(compression));
+		if (rowGroupSize > 0) {
+			parquet.setRowGroupSize(rowGroupSize);
+		}
+		long startTime = System.nanoTime();
+		long rows = parquet.saveParquet(rs, path, this.sql);
+		long endTime = System.nanoTime();
+		double delta = (double) ((endTime - startTime)/1000000000.0);
+		this.logger.log(String.format("%,d rows written successfully in %,.3f seconds: %s",rows,delta,path));
+	}
+
+	private void writeArrow(ResultSet rs, String path, boolean stream) throws IOException, SQLException {
+		this.logger.log("Saving to Arrow...");
+		long startTime = System.nanoTime();
+		// Buffered results are written as they are, without converting them again
+		long rows = this.buffer != null ? this.buffer.saveArrow(path, stream)
+				: ArrowResultBuffer.saveArrow(rs, path, stream);
+		long endTime = System.nanoTime();
+		double delta = (double) ((endTime - startTime)/1000000000.0);
+		this.logger.log(String.format("%,d rows written successfully in %,.3f seconds: %s",rows,delta,path));
 	}
 }
@@ -0,0 +1,517 @@
+package com.nathanahrens.client;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.nathanahrens.log.Logger;
+
+/**
+ * <p>Process-wide pool of JDBC connections, keyed by {@link Source} (JDBC URL, user and {@link SourceType}).</p>
+ * <p>Connections are validated when they are borrowed, idle connections above the minimum size are evicted after
+ * the idle timeout, and connections that have been borrowed for longer than the leak threshold are reported to the
+ * {@link Logger} together with the stack trace of the borrower.</p>
+ * <p>Every connection obtained from {@link #borrow(Source)} must be handed back through {@link #release(Connection)}
+ * (or {@link #invalidate(Connection)} if it is known to be broken).</p>
+ * @author nahrens
+ *
+ */
+public class ConnectionPool {
+	public static final int DEFAULT_MIN_SIZE = 0;
+	public static final int DEFAULT_MAX_SIZE = 8;
+	public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	public static final long DEFAULT_LEAK_THRESHOLD_MILLIS = TimeUnit.MINUTES.toMillis(30);
+	public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 20;
+
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+	private static final long MAINTENANCE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+	private static ConnectionPool instance;
+
+	private final ConcurrentHashMap<Source, SourcePool> pools = new ConcurrentHashMap<Source, SourcePool>();
+	private final ConcurrentHashMap<Connection, PooledConnection> borrowed = new ConcurrentHashMap<Connection, PooledConnection>();
+	private final ScheduledExecutorService maintenance;
+
+	private volatile int minSize = DEFAULT_MIN_SIZE;
+	private volatile int maxSize = DEFAULT_MAX_SIZE;
+	private volatile long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+	private volatile long leakThresholdMillis = DEFAULT_LEAK_THRESHOLD_MILLIS;
+	private volatile long borrowTimeoutMillis = DEFAULT_BORROW_TIMEOUT_MILLIS;
+	private volatile int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+	private volatile Logger logger = new Logger();
+	private volatile boolean shutdown;
+
+	/**
+	 *
+	 * @return The pool shared by every {@link Client} in this process.
+	 */
+	public static synchronized ConnectionPool getInstance() {
+		if (instance == null) {
+			instance = new ConnectionPool();
+		}
+		return instance;
+	}
+
+	ConnectionPool() {
+		this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ConnectionPool-maintenance");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.maintenance.scheduleWithFixedDelay(this::maintain, MAINTENANCE_INTERVAL_MILLIS,
+				MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Borrow a connection to the source, reusing an idle one if there is a valid one available.
+	 * @param source Source to connect to.
+	 * @return Connection Connection that must be returned through {@link #release(Connection)}.
+	 * @throws SQLException If a new connection could not be created, or none became available before the borrow
+	 *                      timeout.
+	 */
+	public Connection borrow(Source source) throws SQLException {
+		SourcePool pool = this.pools.computeIfAbsent(source, SourcePool::new);
+		return this.lend(pool.borrow());
+	}
+
+	/**
+	 * Borrow several connections to the source at once, all or none. Callers that need all of them at the same time
+	 * (i.e., an ordered merge of partitions) cannot then deadlock each other, each holding part of what it needs.
+	 * @param source Source to connect to.
+	 * @param count  Number of connections to borrow.
+	 * @return List Connections that must each be returned through {@link #release(Connection)}.
+	 * @throws SQLException If more connections are requested than the pool holds for a source, if a new connection
+	 *                      could not be created, or if not enough became available before the borrow timeout.
+	 */
+	public List<Connection> borrow(Source source, int count) throws SQLException {
+		SourcePool pool = this.pools.computeIfAbsent(source, SourcePool::new);
+		List<Connection> connections = new ArrayList<Connection>(count);
+		for (PooledConnection pooled : pool.borrow(count)) {
+			connections.add(this.lend(pooled));
+		}
+		return connections;
+	}
+
+	private Connection lend(PooledConnection pooled) {
+		pooled.borrowedAt = System.currentTimeMillis();
+		pooled.borrower = new Throwable("Connection to " + pooled.pool.source + " borrowed by "
+				+ Thread.currentThread().getName());
+		pooled.leakReported = false;
+		this.borrowed.put(pooled.connection, pooled);
+		return pooled.connection;
+	}
+
+	/**
+	 * Return a borrowed connection to the pool so it can be reused.
+	 * @param connection Connection obtained from {@link #borrow(Source)}.
+	 */
+	public void release(Connection connection) {
+		PooledConnection pooled = this.borrowed.remove(connection);
+		if (pooled == null) {
+			this.logger.log("Attempted to release a connection that is not borrowed from the pool...");
+			return;
+		}
+		pooled.borrower = null;
+		pooled.lastUsed = System.currentTimeMillis();
+		if (this.shutdown) {
+			pooled.pool.discard(pooled);
+		} else {
+			pooled.pool.giveBack(pooled);
+		}
+	}
+
+	/**
+	 * Prepare a forward-only, read-only statement on a borrowed connection, reusing the statement the connection
+	 * prepared for the same SQL before if it is still cached. A reused statement keeps its settings (i.e., fetch size
+	 * and max rows), and is not parsed again by the driver or the source.
+	 * @param connection Connection obtained from {@link #borrow(Source)}.
+	 * @param sql        SQL to prepare.
+	 * @return PreparedStatement Statement that must be handed back through
+	 *         {@link #releaseStatement(Connection, String, PreparedStatement)} before the connection is released.
+	 * @throws SQLException If the statement could not be prepared.
+	 */
+	public PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+		PooledConnection pooled = this.borrowed.get(connection);
+		if (pooled != null) {
+			PreparedStatement stmt = pooled.takeStatement(sql);
+			if (stmt != null) {
+				return stmt;
+			}
+		}
+		return connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+	}
+
+	/**
+	 * Hand back a statement obtained from {@link #prepareStatement(Connection, String)} once its ResultSet is closed.
+	 * The statement stays open for the next query with the same SQL on the connection, up to the statement cache
+	 * size per connection; the least recently used statements are closed first.
+	 * @param connection Connection the statement was prepared on.
+	 * @param sql        SQL the statement was prepared from.
+	 * @param stmt       Statement to hand back.
+	 */
+	public void releaseStatement(Connection connection, String sql, PreparedStatement stmt) {
+		PooledConnection pooled = this.borrowed.get(connection);
+		if (pooled != null && this.statementCacheSize > 0) {
+			try {
+				stmt.clearParameters();
+				stmt = pooled.putStatement(sql, stmt, this.statementCacheSize);
+			} catch (SQLException e) {
+				// The statement is broken, so do not reuse it
+			}
+		}
+		closeStatement(stmt);
+	}
+
+	private static void closeStatement(Statement stmt) {
+		if (stmt == null) {
+			return;
+		}
+		try {
+			stmt.close();
+		} catch (SQLException e) {
+			// Statement is being thrown away anyway
+		}
+	}
+
+	/**
+	 * Discard a borrowed connection instead of returning it to the pool (i.e., after a fatal error).
+	 * @param connection Connection obtained from {@link #borrow(Source)}.
+	 */
+	public void invalidate(Connection connection) {
+		PooledConnection pooled = this.borrowed.remove(connection);
+		if (pooled != null) {
+			pooled.pool.discard(pooled);
+		}
+	}
+
+	/**
+	 * Close all idle connections and stop the maintenance thread. Borrowed connections are closed when they are
+	 * released.
+	 */
+	public void shutdown() {
+		this.shutdown = true;
+		this.maintenance.shutdownNow();
+		for (SourcePool pool : this.pools.values()) {
+			pool.closeIdle(0, 0);
+		}
+		synchronized (ConnectionPool.class) {
+			if (instance == this) {
+				instance = null;
+			}
+		}
+	}
+
+	private void maintain() {
+		long now = System.currentTimeMillis();
+		for (SourcePool pool : this.pools.values()) {
+			pool.closeIdle(this.minSize, this.idleTimeoutMillis);
+			pool.fillToMinimum(this.minSize);
+		}
+		for (PooledConnection pooled : this.borrowed.values()) {
+			Throwable borrower = pooled.borrower;
+			if (!pooled.leakReported && borrower != null && now - pooled.borrowedAt > this.leakThresholdMillis) {
+				pooled.leakReported = true;
+				this.logger.log(String.format("Possible connection leak: connection to %s has been borrowed for %,d seconds...",
+						pooled.pool.source, (now - pooled.borrowedAt) / 1000));
+				borrower.printStackTrace(this.logger.getPrintStream());
+			}
+		}
+	}
+
+	public void setMinSize(int minSize) {
+		this.minSize = minSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	public void setLeakThresholdMillis(long leakThresholdMillis) {
+		this.leakThresholdMillis = leakThresholdMillis;
+	}
+
+	public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+	}
+
+	/**
+	 * @param statementCacheSize Number of prepared statements each connection keeps open for reuse, or 0 to close
+	 *                           statements once their results are read.
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	public void setLogger(Logger logger) {
+		this.logger = logger;
+	}
+
+	private static class PooledConnection {
+		private final SourcePool pool;
+		private final Connection connection;
+		private long lastUsed;
+		private volatile long borrowedAt;
+		private volatile Throwable borrower;
+		private volatile boolean leakReported;
+		// Open statements by SQL, least recently used first
+		private final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(
+				16, 0.75f, true);
+
+		private PooledConnection(SourcePool pool, Connection connection) {
+			this.pool = pool;
+			this.connection = connection;
+			this.lastUsed = System.currentTimeMillis();
+		}
+
+		/**
+		 * Remove the cached statement for the SQL, if there is an open one.
+		 */
+		private synchronized PreparedStatement takeStatement(String sql) throws SQLException {
+			PreparedStatement stmt = this.statements.remove(sql);
+			if (stmt != null && stmt.isClosed()) {
+				return null;
+			}
+			return stmt;
+		}
+
+		/**
+		 * Cache a statement, returning the statement evicted to make room for it, if any.
+		 */
+		private synchronized PreparedStatement putStatement(String sql, PreparedStatement stmt, int maxSize) {
+			PreparedStatement replaced = this.statements.put(sql, stmt);
+			if (replaced != null && replaced != stmt) {
+				return replaced;
+			}
+			if (this.statements.size() > maxSize) {
+				Iterator<PreparedStatement> eldest = this.statements.values().iterator();
+				PreparedStatement evicted = eldest.next();
+				eldest.remove();
+				return evicted;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Idle connections and the connection count of a single {@link Source}. Idle connections are reused most
+	 * recently used first, so that the least recently used ones age out.
+	 */
+	private class SourcePool {
+		private final Source source;
+		private final ArrayDeque<PooledConnection> idle = new ArrayDeque<PooledConnection>();
+		private int total;
+
+		private SourcePool(Source source) {
+			this.source = source;
+			try {
+				// Loaded once per type of source, so failing here means every connection will fail
+				source.getSourceType().getDriver();
+			} catch (SQLException e) {
+				e.printStackTrace(logger.getPrintStream());
+				logger.log("Please ensure the driver class is in the classpath...");
+			}
+		}
+
+		private PooledConnection borrow() throws SQLException {
+			long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
+			for (;;) {
+				PooledConnection pooled = null;
+				synchronized (this) {
+					while (this.idle.isEmpty() && this.total >= maxSize) {
+						long remaining = deadline - System.currentTimeMillis();
+						if (remaining <= 0) {
+							throw new SQLException("Timed out waiting for a connection to " + this.source);
+						}
+						try {
+							this.wait(remaining);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new SQLException("Interrupted while waiting for a connection to " + this.source, e);
+						}
+					}
+					if (!this.idle.isEmpty()) {
+						pooled = this.idle.pop();
+					} else {
+						// Reserve the slot before connecting outside of the lock
+						this.total++;
+					}
+				}
+				if (pooled == null) {
+					return this.create();
+				}
+				if (this.isValid(pooled)) {
+					return pooled;
+				}
+				this.discard(pooled);
+			}
+		}
+
+		private List<PooledConnection> borrow(int count) throws SQLException {
+			if (count > maxSize) {
+				throw new SQLException(String.format("%d connections to %s are needed at once, but the pool holds at most %d",
+						count, this.source, maxSize));
+			}
+			long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
+			List<PooledConnection> reserved = new ArrayList<PooledConnection>(count);
+			int pending;
+			synchronized (this) {
+				// Wait until all of them are available, rather than holding some while waiting for the others
+				while (this.idle.size() + maxSize - this.total < count) {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
+						throw new SQLException(String.format("Timed out waiting for %d connections to %s", count,
+								this.source));
+					}
+					try {
+						this.wait(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for connections to " + this.source, e);
+					}
+				}
+				while (reserved.size() < count && !this.idle.isEmpty()) {
+					reserved.add(this.idle.pop());
+				}
+				// Reserve the slots of the new connections before connecting outside of the lock
+				pending = count - reserved.size();
+				this.total += pending;
+			}
+			List<PooledConnection> borrowed = new ArrayList<PooledConnection>(count);
+			try {
+				for (PooledConnection pooled : reserved) {
+					if (this.isValid(pooled)) {
+						borrowed.add(pooled);
+					} else {
+						// Replace it in the same slot
+						close(pooled);
+						pending++;
+					}
+				}
+				while (pending > 0) {
+					pending--;
+					borrowed.add(this.create());
+				}
+				return borrowed;
+			} catch (SQLException | RuntimeException e) {
+				synchronized (this) {
+					this.total -= pending;
+					this.notifyAll();
+				}
+				for (PooledConnection pooled : borrowed) {
+					this.giveBack(pooled);
+				}
+				throw e;
+			}
+		}
+
+		private PooledConnection create() throws SQLException {
+			try {
+				Connection connection = this.source.getSourceType().connect(this.source.getSourceURL(),
+						this.source.getUser());
+				return new PooledConnection(this, connection);
+			} catch (SQLException | RuntimeException e) {
+				synchronized (this) {
+					this.total--;
+					this.notifyAll();
+				}
+				throw e;
+			}
+		}
+
+		private boolean isValid(PooledConnection pooled) {
+			try {
+				return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+
+		private void giveBack(PooledConnection pooled) {
+			boolean open;
+			try {
+				open = !pooled.connection.isClosed();
+			} catch (SQLException e) {
+				open = false;
+			}
+			if (!open) {
+				this.discard(pooled);
+				return;
+			}
+			synchronized (this) {
+				this.idle.push(pooled);
+				this.notifyAll();
+			}
+		}
+
+		private void discard(PooledConnection pooled) {
+			synchronized (this) {
+				this.total--;
+				this.notifyAll();
+			}
+			close(pooled);
+		}
+
+		private void closeIdle(int keep, long idleTimeout) {
+			long now = System.currentTimeMillis();
+			ArrayDeque<PooledConnection> evicted = new ArrayDeque<PooledConnection>();
+			synchronized (this) {
+				// Oldest connections are at the tail of the deque
+				Iterator<PooledConnection> it = this.idle.descendingIterator();
+				while (it.hasNext() && this.total > keep) {
+					PooledConnection pooled = it.next();
+					if (now - pooled.lastUsed < idleTimeout) {
+						break;
+					}
+					it.remove();
+					this.total--;
+					evicted.add(pooled);
+				}
+			}
+			for (PooledConnection pooled : evicted) {
+				close(pooled);
+			}
+		}
+
+		private void fillToMinimum(int min) {
+			for (;;) {
+				synchronized (this) {
+					if (this.total >= min) {
+						return;
+					}
+					this.total++;
+				}
+				try {
+					PooledConnection pooled = this.create();
+					this.giveBack(pooled);
+				} catch (SQLException e) {
+					logger.log("Unable to pre-connect to " + this.source + ": " + e.getMessage());
+					return;
+				}
+			}
+		}
+
+		private void close(PooledConnection pooled) {
+			try {
+				pooled.connection.close();
+			} catch (SQLException e) {
+				// Connection is being thrown away anyway
+			}
+		}
+	}
+}
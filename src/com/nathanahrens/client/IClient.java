@@ -2,15 +2,27 @@ package com.nathanahrens.client;
 
 import java.sql.ResultSet;
 
+import com.nathanahrens.resultset.DataExportDelimitedWriter;
+import com.nathanahrens.resultset.ExportMetrics;
+import com.nathanahrens.resultset.ProgressResultSet;
+import com.nathanahrens.resultset.ResultSetFanOut;
+
 /**
  * <p>Interface to encapsulate a source client (such as a client to a database).</p>
  * <p>It is expected that, once instantiated, a client must execute {@link #query(String)} prior to calling any other action (such as {@link #saveExcel(String)}).<p>
  * <p>Only one action should be called per instance of an {@link IClient} (that is, after {@link #query(String)} has been called). That is because
- * a {@link ResultSet} can only be iterated one time.</p>
+ * a {@link ResultSet} can only be iterated one time. To run several actions on the results of one query, call {@link #setBufferResults(boolean)}
+ * before {@link #query(String)}, then {@link #close()} once done, or write all outputs at once with {@link #fanOut(ResultSetFanOut)}.</p>
+ * <p>Connections are borrowed from the shared {@link ConnectionPool}. Actions that consume the {@link ResultSet} return the
+ * connection to the pool when they finish; when using {@link #getResultSet()}, call {@link #close()} once done with it.</p>
  * @author nahrens
  *
  */
-public interface IClient {
+public interface IClient extends AutoCloseable {
+	/**
+	 * Output path that {@link #save(String)} writes to stdout.
+	 */
+	public static final String STDOUT = "-";
 
 	/**
 	 * Send query to source to obtain {@link ResultSet} with data.
@@ -19,27 +31,219 @@ public interface IClient {
 	 */
 	public boolean query(String sql);
 	
+	/**
+	 * Send query to source on a background thread, so several queries can run at the same time. The actions of the
+	 * client (such as {@link #save(String)}) can be called once the handle has completed.
+	 * @param sql SQL query to run in source.
+	 * @return QueryHandle Handle completing with the {@link ResultSet} of the query, that can also cancel it.
+	 */
+	public QueryHandle queryAsync(String sql);
+	
+	/**
+	 * Cancel the statement of the running query, if the driver supports it. Safe to call from any thread; the thread
+	 * running the query or reading its rows then gets an exception.
+	 */
+	public void cancel();
+	
+	/**
+	 * Set a listener to report the number of rows (and approximate bytes) read from the following queries to, every
+	 * {@link ProgressResultSet#DEFAULT_INTERVAL} rows and once all rows are read.
+	 * @param listener Listener to report progress to, or null for none.
+	 */
+	public void setProgressListener(ProgressResultSet.Listener listener);
+	
+	/**
+	 * Set whether the following queries measure where their time goes (executing, fetching, converting and writing
+	 * Excel cells and files), along with rows and bytes per second, fetch round trips and peak heap usage. The metrics
+	 * of a run are available through JMX while it runs (see {@link ExportMetrics}), and logged once the client is
+	 * closed.
+	 * @param metricsEnabled If true, measure the following queries.
+	 */
+	public void setMetrics(boolean metricsEnabled);
+	
+	/**
+	 * Set a listener to report the {@link ExportMetrics} of the following queries to, every
+	 * {@link ExportMetrics#DEFAULT_INTERVAL} rows and once the run is finished. Setting a listener measures the
+	 * queries, as {@link #setMetrics(boolean)} does.
+	 * @param listener Listener to report the metrics to, or null for none.
+	 */
+	public void setMetricsListener(ExportMetrics.Listener listener);
+	
+	/**
+	 * Set how {@link #query(String)} splits queries into partitions that run at the same time, each on a pooled
+	 * connection of its own. Their rows are returned as one {@link ResultSet}: as they arrive, or merged by the
+	 * partition column if the partitioner is ordered. A limit on the number of rows applies to each partition.
+	 * @param partitioner Partitioner splitting the following queries, or null to run them on one connection.
+	 */
+	public void setPartitioner(QueryPartitioner partitioner);
+	
+	/**
+	 * Set the values of the bind parameters (<code>:name</code> or <code>?</code>) of the following queries. Queries
+	 * that only differ in their parameter values share one statement, which the source parses once and each pooled
+	 * connection keeps prepared for the next run.
+	 * @param parameters Values of the parameters, or null to run queries as they are.
+	 */
+	public void setParameters(QueryParameters parameters);
+	
+	/**
+	 * Set how long the results of the following queries may be served from the {@link ResultCache}. A query without a
+	 * fresh enough cached result runs against the source, and its results are cached once an action has read all of
+	 * them.
+	 * @param cacheTtlSeconds Age in seconds a cached result may have, or 0 to always run the query without caching it.
+	 */
+	public void setCacheTtl(long cacheTtlSeconds);
+	
+	/**
+	 * Set whether {@link #query(String)} reads all rows into an off-heap Arrow buffer. The connection is then returned
+	 * to the pool right away, and any number of actions can read the results until {@link #close()} is called.
+	 * @param bufferResults If true, buffer the results of the following queries.
+	 */
+	public void setBufferResults(boolean bufferResults);
+	
 	/**
 	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to an Excel file. 
 	 * @param filePath Path of the Excel file to write.
 	 * @param saveSql If true, adds a sheet to the Excel file with the query SQL.
+	 * @return boolean True if the results were written, else false (the failure is logged and the query closed).
 	 */
-	public void saveExcel(String filePath, boolean saveSql);
+	public boolean saveExcel(String filePath, boolean saveSql);
 	
 	/**
 	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to an Excel file. 
 	 * @param filePath Path of the Excel file to write.
+	 * @return boolean True if the results were written, else false (the failure is logged and the query closed).
+	 */
+	public boolean saveExcel(String filePath);
+	
+	/**
+	 * Set how many rows {@link #saveExcel(String, boolean)} keeps in memory. Rows outside of this window are
+	 * flushed to temporary storage, so memory usage stays flat regardless of the size of the {@link ResultSet}.
+	 * @param rowAccessWindowSize Number of rows to keep in memory, or 0 to build the whole workbook in memory.
+	 */
+	public void setRowAccessWindowSize(int rowAccessWindowSize);
+	
+	/**
+	 * Set how many rows {@link #saveExcel(String, boolean)} writes to a sheet before continuing on a new sheet.
+	 * @param maxRowsPerSheet Number of data rows per sheet, at most (and by default) the Excel row limit.
+	 */
+	public void setMaxRowsPerSheet(int maxRowsPerSheet);
+	
+	/**
+	 * Set how many rows {@link #saveExcel(String, boolean)} writes to a file before continuing in a new file (i.e.,
+	 * results_2.xlsx). Files are written in the background while the next one is filled.
+	 * @param maxRowsPerFile Number of data rows per file, or 0 to write a single file.
+	 */
+	public void setMaxRowsPerFile(long maxRowsPerFile);
+	
+	/**
+	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to a delimited text file.
+	 * @param filePath  Path of the file to write.
+	 * @param delimiter Character to separate fields with, i.e. {@link DataExportDelimitedWriter#CSV}.
+	 * @param gzip      If true, the file is compressed with gzip.
+	 * @return boolean True if the results were written, else false (the failure is logged and the query closed).
+	 */
+	public boolean saveDelimited(String filePath, char delimiter, boolean gzip);
+	
+	/**
+	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to a delimited text file, in the
+	 * format given by the extension of the file path (.csv, .tsv, .csv.gz or .tsv.gz).
+	 * @param filePath Path of the file to write.
+	 * @see DataExportDelimitedWriter#forFile(String)
+	 * @return boolean True if the results were written, else false (the failure is logged and the query closed).
+	 */
+	public boolean saveDelimited(String filePath);
+	
+	/**
+	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to a Parquet file, with the query
+	 * SQL in its metadata.
+	 * @param filePath     Path of the Parquet file to write.
+	 * @param compression  Compression codec (snappy, zstd, gzip, lz4_raw or uncompressed), or null for snappy.
+	 * @param rowGroupSize Size of a row group in bytes, or 0 for the default (128 MB).
+	 * @return boolean True if the results were written, else false (the failure is logged and the query closed).
+	 */
+	public boolean saveParquet(String filePath, String compression, long rowGroupSize);
+	
+	/**
+	 * Set the compression of the Parquet files written by {@link #saveParquet(String)} and {@link #save(String)}.
+	 * @param compression Compression codec (snappy, zstd, gzip, lz4_raw or uncompressed), or null for snappy.
+	 * @throws IllegalArgumentException If the compression codec is unknown.
+	 */
+	public void setParquetCompression(String compression);
+	
+	/**
+	 * Set the row group size of the Parquet files written by {@link #saveParquet(String)} and {@link #save(String)}.
+	 * @param rowGroupSize Size of a row group in bytes, or 0 for the default (128 MB).
+	 */
+	public void setParquetRowGroupSize(long rowGroupSize);
+	
+	/**
+	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to a Parquet file, with the query
+	 * SQL in its metadata, using the options set by {@link #setParquetCompression(String)} and
+	 * {@link #setParquetRowGroupSize(long)}.
+	 * @param filePath Path of the Parquet file to write.
+	 * @return boolean True if the results were written, else false (the failure is logged and the query closed).
+	 */
+	public boolean saveParquet(String filePath);
+	
+	/**
+	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to an Arrow IPC file, which other
+	 * processes can read without converting the data.
+	 * @param filePath Path of the file to write.
+	 * @param stream   If true, writes the IPC stream format, else the IPC file format.
+	 * @return boolean True if the results were written, else false (the failure is logged and the query closed).
+	 */
+	public boolean saveArrow(String filePath, boolean stream);
+	
+	/**
+	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to an Arrow IPC file, in the
+	 * stream format if the file path ends with .arrows, else in the file format (.arrow).
+	 * @param filePath Path of the file to write.
+	 * @return boolean True if the results were written, else false (the failure is logged and the query closed).
 	 */
-	public void saveExcel(String filePath);
+	public boolean saveArrow(String filePath);
 	
 	/**
 	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to stdout. 
+	 * @return boolean True if the results were written, else false (the failure is logged and the query closed).
+	 */
+	public boolean print();
+	
+	/**
+	 * Write the {@link ResultSet} the instance obtained from {@link #query(String)} to the output given by the
+	 * extension of the path: delimited text (.csv, .tsv, .csv.gz or .tsv.gz), Parquet (.parquet), Arrow IPC (.arrow
+	 * or .arrows), stdout ({@link #STDOUT}), otherwise an Excel file with a sheet for the query SQL.
+	 * @param path Path of the file to write.
+	 * @return boolean True if the results were written, else false (the failure is logged and the query closed).
 	 */
-	public void print();
+	public boolean save(String path);
+	
+	/**
+	 * Get a sink that writes the rows it is given to an output like {@link #save(String)}, to add to a
+	 * {@link ResultSetFanOut}.
+	 * @param path Path of the file to write.
+	 * @return ResultSetFanOut.Sink Sink writing the file.
+	 */
+	public ResultSetFanOut.Sink getSink(String path);
+	
+	/**
+	 * Read the {@link ResultSet} the instance obtained from {@link #query(String)} once, feeding its rows to every sink
+	 * of the fan-out at the same time. A failed sink is logged and does not stop the others.
+	 * @param fanOut Fan-out with the sinks to feed (see {@link #getSink(String)}).
+	 * @return boolean True if every sink succeeded, else false (also when reading the results failed, which is logged
+	 *         and closes the query).
+	 */
+	public boolean fanOut(ResultSetFanOut fanOut);
 	
 	/**
 	 * 
-	 * @return ResultSet ResultSet of executed query.
+	 * @return ResultSet ResultSet of executed query. When results are buffered, each call returns a new cursor
+	 *         positioned before the first row.
 	 */
 	public ResultSet getResultSet();
+	
+	/**
+	 * Close the {@link ResultSet}, release buffered results and return the connection to the {@link ConnectionPool}.
+	 */
+	@Override
+	public void close();
 }
@@ -0,0 +1,77 @@
+package com.nathanahrens.client;
+
+import java.sql.ResultSet;
+import java.util.concurrent.CompletableFuture;
+
+import com.nathanahrens.resultset.ProgressResultSet;
+
+/**
+ * <p>Handle on a query started by {@link IClient#queryAsync(String)}. It completes with the {@link ResultSet} of the
+ * query once the query has executed (and its rows are buffered, if results are buffered), or exceptionally if the
+ * query fails or runs longer than the query timeout of the {@link Source}.</p>
+ * <p>{@link #cancel(boolean)} cancels the statement on the source and stops its rows from being read, even after the
+ * handle has completed, so a slow query can be aborted at any point.</p>
+ * @author nahrens
+ *
+ */
+public class QueryHandle extends CompletableFuture<ResultSet> {
+	private final IClient client;
+	private volatile ProgressResultSet progress;
+	private volatile boolean cancelRequested;
+
+	QueryHandle(IClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Track the rows of the query as they are read. Called once the query has executed.
+	 */
+	void setProgress(ProgressResultSet progress) {
+		this.progress = progress;
+		if (this.cancelRequested) {
+			progress.cancel();
+		}
+	}
+
+	/**
+	 * Cancel the query, whether it is still executing or its rows are being read.
+	 * @param mayInterruptIfRunning Ignored, the statement is cancelled through the driver instead.
+	 * @return boolean True if the handle had not completed yet.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		this.cancelRequested = true;
+		ProgressResultSet progress = this.progress;
+		if (progress != null) {
+			progress.cancel();
+		}
+		this.client.cancel();
+		return super.cancel(mayInterruptIfRunning);
+	}
+
+	/**
+	 *
+	 * @return boolean True once {@link #cancel(boolean)} has been called, even if the handle had already completed.
+	 */
+	public boolean isCancelRequested() {
+		return this.cancelRequested;
+	}
+
+	/**
+	 *
+	 * @return long Number of rows read from the query so far.
+	 */
+	public long getRowsFetched() {
+		ProgressResultSet progress = this.progress;
+		return progress == null ? 0 : progress.getRows();
+	}
+
+	/**
+	 *
+	 * @return long Approximate size of the values read from the query so far, in bytes.
+	 */
+	public long getBytesFetched() {
+		ProgressResultSet progress = this.progress;
+		return progress == null ? 0 : progress.getBytes();
+	}
+}
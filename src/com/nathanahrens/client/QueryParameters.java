@@ -0,0 +1,174 @@
+package com.nathanahrens.client;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>Values of the bind parameters of a query, so the same SQL can run with different values without being parsed
+ * again by the source (see {@link IClient#setParameters(QueryParameters)}).</p>
+ * <p>Parameters are either named (<code>:since</code>, names ignore case) or positional (<code>?</code>, named by
+ * their position starting at 1). Named parameters can appear several times in the query. Markers inside literals,
+ * quoted identifiers and comments are not parameters.</p>
+ * @author nahrens
+ *
+ */
+public class QueryParameters {
+	private final Map<String, Object> values = new LinkedHashMap<String, Object>();
+
+	/**
+	 * Set the value of a parameter.
+	 * @param name  Name of the parameter (without the colon), or the position of a <code>?</code> parameter.
+	 * @param value Value to bind: a String, a number, a Boolean, a java.sql date or time, or null.
+	 * @return QueryParameters This instance.
+	 */
+	public QueryParameters set(String name, Object value) {
+		String key = normalize(name);
+		if (key.isEmpty()) {
+			throw new IllegalArgumentException("Parameter name is empty");
+		}
+		this.values.put(key, value);
+		return this;
+	}
+
+	/**
+	 * Set the value of a parameter from an assignment, as given on the command line.
+	 * @param assignment Assignment of the form name=value, where value is bound as a String.
+	 * @return QueryParameters This instance.
+	 * @throws IllegalArgumentException If the assignment has no name.
+	 */
+	public QueryParameters set(String assignment) {
+		int equals = assignment.indexOf('=');
+		if (equals <= 0) {
+			throw new IllegalArgumentException("Expected name=value: " + assignment);
+		}
+		return this.set(assignment.substring(0, equals), assignment.substring(equals + 1));
+	}
+
+	/**
+	 * Create parameters from JSON: an object of named (or numbered) parameters, or an array of positional ones.
+	 * @param json Parsed JSON (a {@link Map} or a {@link List}), or null for no parameters.
+	 * @return QueryParameters The parameters.
+	 * @throws IllegalArgumentException If the JSON is neither an object nor an array.
+	 */
+	public static QueryParameters fromJson(Object json) {
+		QueryParameters parameters = new QueryParameters();
+		if (json instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) json).entrySet()) {
+				parameters.set(String.valueOf(entry.getKey()), entry.getValue());
+			}
+		} else if (json instanceof List) {
+			List<?> list = (List<?>) json;
+			for (int i = 0; i < list.size(); i++) {
+				parameters.set(Integer.toString(i + 1), list.get(i));
+			}
+		} else if (json != null) {
+			throw new IllegalArgumentException("Parameters must be a JSON object or array: " + json);
+		}
+		return parameters;
+	}
+
+	public boolean isEmpty() {
+		return this.values.isEmpty();
+	}
+
+	private static String normalize(String name) {
+		String key = name.trim();
+		return (key.startsWith(":") ? key.substring(1) : key).toUpperCase(Locale.ROOT);
+	}
+
+	/**
+	 * Replace the parameters of a query by JDBC <code>?</code> markers.
+	 * @param sql   Query with named or positional parameters.
+	 * @param names Receives the name of the parameter of each marker, in order.
+	 * @return String Query to prepare.
+	 */
+	static String toJdbc(String sql, List<String> names) {
+		StringBuilder out = new StringBuilder(sql.length());
+		int position = 0;
+		int i = 0;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			int end = i + 1;
+			if (c == '\'' || c == '"') {
+				end = sql.indexOf(c, i + 1);
+				end = end < 0 ? sql.length() : end + 1;
+			} else if (c == '-' && sql.startsWith("--", i)) {
+				end = sql.indexOf('\n', i);
+				end = end < 0 ? sql.length() : end;
+			} else if (c == '/' && sql.startsWith("/*", i)) {
+				end = sql.indexOf("*/", i + 2);
+				end = end < 0 ? sql.length() : end + 2;
+			} else if (c == '?') {
+				names.add(Integer.toString(++position));
+				out.append('?');
+				i = end;
+				continue;
+			} else if (c == ':' && end < sql.length() && isNameStart(sql.charAt(end))
+					&& (i == 0 || sql.charAt(i - 1) != ':')) {
+				while (end < sql.length() && isNamePart(sql.charAt(end))) {
+					end++;
+				}
+				names.add(sql.substring(i + 1, end).toUpperCase(Locale.ROOT));
+				out.append('?');
+				i = end;
+				continue;
+			}
+			out.append(sql, i, end);
+			i = end;
+		}
+		return out.toString();
+	}
+
+	private static boolean isNameStart(char c) {
+		return Character.isLetterOrDigit(c);
+	}
+
+	private static boolean isNamePart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+	}
+
+	/**
+	 * Bind the value of each marker of a prepared query.
+	 * @param stmt  Statement prepared from {@link #toJdbc(String, List)}.
+	 * @param names Name of the parameter of each marker.
+	 * @throws SQLException When a parameter has no value, or its value cannot be bound.
+	 */
+	void bind(PreparedStatement stmt, List<String> names) throws SQLException {
+		for (int i = 0; i < names.size(); i++) {
+			String name = names.get(i);
+			if (!this.values.containsKey(name)) {
+				throw new SQLException("No value for bind parameter " + (Character.isDigit(name.charAt(0)) ? "#" : ":") + name);
+			}
+			Object value = this.values.get(name);
+			if (value == null) {
+				// Not every driver can infer the type of a null from setObject
+				stmt.setNull(i + 1, Types.VARCHAR);
+			} else if (value instanceof String) {
+				stmt.setString(i + 1, (String) value);
+			} else {
+				stmt.setObject(i + 1, value);
+			}
+		}
+	}
+
+	/**
+	 * @return String Names and values of the parameters, sorted by name, so equal parameters have equal keys.
+	 */
+	String getKey() {
+		return new TreeMap<String, Object>(this.values).toString();
+	}
+
+	/**
+	 * @return String Names and values of the parameters, in the order they were set.
+	 */
+	@Override
+	public String toString() {
+		return this.values.toString();
+	}
+}
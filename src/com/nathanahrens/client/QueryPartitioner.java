@@ -0,0 +1,250 @@
+package com.nathanahrens.client;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Splits a query into sub-queries that each return one partition of its rows, so they can run on separate
+ * connections at the same time (see {@link IClient#setPartitioner(QueryPartitioner)}).</p>
+ * <p>The query is wrapped as an inline view and filtered on a column of its select list, in one of these ways:</p>
+ * <ul>
+ * <li>{@link Strategy#RANGE}: equal ranges between the minimum and maximum of a numeric column.</li>
+ * <li>{@link Strategy#ROWID}: ranges of a ROWID column (i.e., <code>SELECT t.ROWID AS RID, t.* FROM t</code>)
+ * holding the same number of rows each.</li>
+ * <li>{@link Strategy#HASH}: buckets of <code>ORA_HASH</code> of any column.</li>
+ * </ul>
+ * <p>Rows with a null partition column are returned by the first partition.</p>
+ * @author nahrens
+ *
+ */
+public class QueryPartitioner {
+	/**
+	 * How rows are assigned to partitions.
+	 */
+	public static enum Strategy {
+		RANGE, ROWID, HASH
+	}
+
+	private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z][A-Za-z0-9_$#]*|\"[^\"]+\"");
+	private static final Pattern ROWID = Pattern.compile("[A-Za-z0-9+/]+");
+	private static final String ALIAS = "q";
+
+	private final Strategy strategy;
+	private final String column;
+	private final int partitions;
+	private final boolean ordered;
+
+	/**
+	 *
+	 * @param strategy   How rows are assigned to partitions.
+	 * @param column     Column of the query's select list to partition on.
+	 * @param partitions Number of partitions.
+	 * @param ordered    If true, each partition is sorted by the column, so they can be merged into rows sorted by
+	 *                   the column.
+	 */
+	public QueryPartitioner(Strategy strategy, String column, int partitions, boolean ordered) {
+		if (column == null || !IDENTIFIER.matcher(column).matches()) {
+			throw new IllegalArgumentException("Invalid partition column: " + column);
+		}
+		if (partitions < 1) {
+			throw new IllegalArgumentException("Number of partitions must be at least 1: " + partitions);
+		}
+		this.strategy = strategy;
+		this.column = column;
+		this.partitions = partitions;
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Parse a partitioning strategy, ignoring case.
+	 * @param name Name of the strategy: range, rowid or hash.
+	 * @return Strategy The strategy.
+	 * @throws IllegalArgumentException If the strategy is unknown.
+	 */
+	public static Strategy getStrategy(String name) {
+		return Strategy.valueOf(name.trim().toUpperCase(Locale.ROOT));
+	}
+
+	public Strategy getStrategy() {
+		return this.strategy;
+	}
+
+	/**
+	 *
+	 * @return String Column to partition on, as it appears in the query's select list.
+	 */
+	public String getColumn() {
+		return this.column;
+	}
+
+	/**
+	 *
+	 * @return String Label the column has in the {@link java.sql.ResultSetMetaData} of the query.
+	 */
+	public String getColumnLabel() {
+		return this.column.startsWith("\"") ? this.column.substring(1, this.column.length() - 1) : this.column;
+	}
+
+	public int getPartitions() {
+		return this.partitions;
+	}
+
+	public boolean isOrdered() {
+		return this.ordered;
+	}
+
+	/**
+	 * Split a query into the sub-queries of each partition. {@link Strategy#RANGE} and {@link Strategy#ROWID} first
+	 * query the bounds of the partitions.
+	 * @param sql        Query to split.
+	 * @param parameters Values of the bind parameters of the query, or null. Each sub-query has the same parameters.
+	 * @param connection Connection to query the bounds of the partitions on.
+	 * @return List Sub-query of each partition. Fewer partitions are returned if there are not enough distinct values.
+	 * @throws SQLException When unable to query the bounds of the partitions.
+	 */
+	public List<String> split(String sql, QueryParameters parameters, Connection connection) throws SQLException {
+		String view = "SELECT * FROM (\n" + stripTerminator(sql) + "\n) " + ALIAS;
+		String key = ALIAS + "." + this.column;
+		List<String> predicates;
+		switch (this.strategy) {
+		case HASH:
+			predicates = this.getHashPredicates(key);
+			break;
+		case RANGE:
+			predicates = this.getRangePredicates(view, key, parameters, connection);
+			break;
+		case ROWID:
+			predicates = this.getRowidPredicates(view, key, parameters, connection);
+			break;
+		default:
+			throw new IllegalStateException("Unknown strategy: " + this.strategy);
+		}
+
+		List<String> queries = new ArrayList<>(predicates.size());
+		for (String predicate : predicates) {
+			StringBuilder query = new StringBuilder(view);
+			if (predicate != null) {
+				query.append(" WHERE ").append(predicate);
+			}
+			if (this.ordered) {
+				query.append(" ORDER BY ").append(key).append(" NULLS LAST");
+			}
+			queries.add(query.toString());
+		}
+		return queries;
+	}
+
+	private List<String> getHashPredicates(String key) {
+		List<String> predicates = new ArrayList<>(this.partitions);
+		if (this.partitions == 1) {
+			predicates.add(null);
+			return predicates;
+		}
+		for (int i = 0; i < this.partitions; i++) {
+			String predicate = "ORA_HASH(" + key + ", " + (this.partitions - 1) + ") = " + i;
+			predicates.add(i == 0 ? "(" + predicate + " OR " + key + " IS NULL)" : predicate);
+		}
+		return predicates;
+	}
+
+	private List<String> getRangePredicates(String view, String key, QueryParameters parameters, Connection connection)
+			throws SQLException {
+		List<String> bounds = new ArrayList<>();
+		String sql = "SELECT MIN(" + key + "), MAX(" + key + ") FROM (" + view + ") " + ALIAS;
+		try (PreparedStatement stmt = prepare(sql, parameters, connection); ResultSet rs = stmt.executeQuery()) {
+			rs.next();
+			BigDecimal min = rs.getBigDecimal(1);
+			BigDecimal max = rs.getBigDecimal(2);
+			if (min != null) {
+				BigDecimal width = max.subtract(min);
+				for (int i = 1; i < this.partitions; i++) {
+					BigDecimal bound = min.add(width.multiply(BigDecimal.valueOf(i))
+							.divide(BigDecimal.valueOf(this.partitions), 10, RoundingMode.HALF_UP)).stripTrailingZeros();
+					String text = bound.toPlainString();
+					if (bound.compareTo(min) > 0 && (bounds.isEmpty() || !bounds.get(bounds.size() - 1).equals(text))) {
+						bounds.add(text);
+					}
+				}
+			}
+		}
+		return getBoundPredicates(key, bounds, "%s < %s", "%s >= %s");
+	}
+
+	private List<String> getRowidPredicates(String view, String key, QueryParameters parameters, Connection connection)
+			throws SQLException {
+		List<String> bounds = new ArrayList<>();
+		// Upper bound of each of the partitions but the last, splitting the rows evenly
+		String sql = "SELECT ROWIDTOCHAR(MAX(rid)) FROM (SELECT " + key + " rid, NTILE(" + this.partitions
+				+ ") OVER (ORDER BY " + key + ") tile FROM (" + view + ") " + ALIAS + " WHERE " + key
+				+ " IS NOT NULL) GROUP BY tile ORDER BY MAX(rid)";
+		try (PreparedStatement stmt = prepare(sql, parameters, connection); ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				String rowid = rs.getString(1);
+				if (rowid == null || !ROWID.matcher(rowid).matches()) {
+					throw new SQLException("Partition column is not a ROWID: " + this.column);
+				}
+				bounds.add("CHARTOROWID('" + rowid + "')");
+			}
+		}
+		if (!bounds.isEmpty()) {
+			bounds.remove(bounds.size() - 1);
+		}
+		return getBoundPredicates(key, bounds, "%s <= %s", "%s > %s");
+	}
+
+	/**
+	 * Prepare a query for the bounds of the partitions, binding the parameters of the query being split.
+	 */
+	private static PreparedStatement prepare(String sql, QueryParameters parameters, Connection connection)
+			throws SQLException {
+		if (parameters == null || parameters.isEmpty()) {
+			return connection.prepareStatement(sql);
+		}
+		List<String> names = new ArrayList<>();
+		PreparedStatement stmt = connection.prepareStatement(QueryParameters.toJdbc(sql, names));
+		try {
+			parameters.bind(stmt, names);
+		} catch (SQLException e) {
+			stmt.close();
+			throw e;
+		}
+		return stmt;
+	}
+
+	/**
+	 * Create the predicates of the ranges between the bounds, the first range also returning null values.
+	 */
+	private static List<String> getBoundPredicates(String key, List<String> bounds, String below, String above) {
+		List<String> predicates = new ArrayList<>(bounds.size() + 1);
+		if (bounds.isEmpty()) {
+			predicates.add(null);
+			return predicates;
+		}
+		predicates.add("(" + String.format(below, key, bounds.get(0)) + " OR " + key + " IS NULL)");
+		for (int i = 1; i < bounds.size(); i++) {
+			predicates.add(String.format(above, key, bounds.get(i - 1)) + " AND "
+					+ String.format(below, key, bounds.get(i)));
+		}
+		predicates.add(String.format(above, key, bounds.get(bounds.size() - 1)));
+		return predicates;
+	}
+
+	/**
+	 * Remove the trailing semicolon a SQL file may end with, which the driver rejects inside an inline view.
+	 */
+	private static String stripTerminator(String sql) {
+		String trimmed = sql.strip();
+		while (trimmed.endsWith(";") || trimmed.endsWith("/")) {
+			trimmed = trimmed.substring(0, trimmed.length() - 1).strip();
+		}
+		return trimmed;
+	}
+}
@@ -0,0 +1,346 @@
+package com.nathanahrens.client;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import com.nathanahrens.log.Logger;
+
+/**
+ * <p>Process-wide cache of query results, so a query that runs again against the same source (i.e., the same
+ * monitoring SQL in several QueryTests) can be answered without a round trip to the database.</p>
+ * <p>Results are keyed by a fingerprint of the SQL (ignoring comments, case and whitespace outside of quotes), the
+ * values of its bind parameters, the JDBC URL and user of the {@link Source}, and its row limit. Each result is
+ * stored on disk as gzip-compressed batches of rows, the most recently used ones also in memory; both are bounded in
+ * size, evicting the least recently used results first. Results are recorded while the query is read, and only
+ * cached once all rows were read.</p>
+ * <p>Whether a cached result is fresh enough is decided by each lookup, so queries can use different TTLs.</p>
+ * <p>Results hold data read with the credentials of the vault, so the directory is only readable by its owner, and is
+ * not used if it belongs to another user (i.e., planted in the shared temporary directory).</p>
+ * @author nahrens
+ *
+ */
+public class ResultCache {
+	public static final long DEFAULT_MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+	public static final long DEFAULT_MAX_DISK_BYTES = 1024L * 1024 * 1024;
+
+	static final String SUFFIX = ".rows.gz";
+
+	private static final ResultCache INSTANCE = new ResultCache();
+	private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+	private volatile File directory = new File(System.getProperty("java.io.tmpdir"),
+			"dbclient-cache-" + System.getProperty("user.name"));
+	// Directory last checked by openDirectory()
+	private volatile File checkedDirectory;
+	private volatile long maxMemoryBytes = DEFAULT_MAX_MEMORY_BYTES;
+	private volatile long maxDiskBytes = DEFAULT_MAX_DISK_BYTES;
+	private volatile Logger logger = new Logger();
+
+	// Guarded by this; iterates from least to most recently used
+	private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+	private long memoryBytes;
+
+	/**
+	 *
+	 * @return The cache shared by every {@link Client} in this process.
+	 */
+	public static ResultCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Set the directory results are stored in (by default dbclient-cache-&lt;user name&gt; in the temporary directory).
+	 * @param directory Directory to store results in. Created when the first result is stored, and made readable by
+	 *                  its owner only.
+	 */
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @param maxMemoryBytes Total size of the compressed results kept in memory.
+	 */
+	public void setMaxMemoryBytes(long maxMemoryBytes) {
+		this.maxMemoryBytes = maxMemoryBytes;
+		synchronized (this) {
+			this.evictMemory();
+		}
+	}
+
+	/**
+	 * @param maxDiskBytes Total size of the compressed results kept on disk.
+	 */
+	public void setMaxDiskBytes(long maxDiskBytes) {
+		this.maxDiskBytes = maxDiskBytes;
+	}
+
+	public void setLogger(Logger logger) {
+		this.logger = logger;
+	}
+
+	/**
+	 * Get the key a query is cached under.
+	 * @param sql        SQL of the query.
+	 * @param parameters Values of the bind parameters of the query, or null.
+	 * @param source     Source the query runs against.
+	 * @return String Key of the query.
+	 */
+	public static String getKey(String sql, QueryParameters parameters, Source source) {
+		String user = source.getUser() == null ? "" : source.getUser().getUserName();
+		String text = fingerprint(sql) + "\n" + source.getSourceURL() + "\n" + user + "\n" + source.getMaxRows()
+				+ (parameters == null || parameters.isEmpty() ? "" : "\n" + parameters.getKey());
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			// Every JRE provides SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Normalise SQL so queries that only differ in comments, case or whitespace outside of quotes, or in a trailing
+	 * terminator, have the same fingerprint.
+	 * @param sql SQL to normalise.
+	 * @return String The normalised SQL.
+	 */
+	public static String fingerprint(String sql) {
+		StringBuilder out = new StringBuilder(sql.length());
+		boolean space = false;
+		int i = 0;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			if (c == '-' && sql.startsWith("--", i)) {
+				int end = sql.indexOf('\n', i);
+				i = end < 0 ? sql.length() : end;
+				space = true;
+			} else if (c == '/' && sql.startsWith("/*", i)) {
+				int end = sql.indexOf("*/", i + 2);
+				i = end < 0 ? sql.length() : end + 2;
+				space = true;
+			} else if (Character.isWhitespace(c)) {
+				i++;
+				space = true;
+			} else {
+				if (space && out.length() > 0) {
+					out.append(' ');
+				}
+				space = false;
+				if (c == '\'' || c == '"') {
+					// Copy literals and quoted identifiers as they are
+					int end = sql.indexOf(c, i + 1);
+					end = end < 0 ? sql.length() : end + 1;
+					out.append(sql, i, end);
+					i = end;
+				} else {
+					out.append(Character.toUpperCase(c));
+					i++;
+				}
+			}
+		}
+		int length = out.length();
+		while (length > 0 && (out.charAt(length - 1) == ';' || out.charAt(length - 1) == '/'
+				|| out.charAt(length - 1) == ' ')) {
+			length--;
+		}
+		out.setLength(length);
+		return out.toString();
+	}
+
+	/**
+	 * Get the cached result of a query, if it was cached recently enough.
+	 * @param key       Key of the query (see {@link #getKey(String, QueryParameters, Source)}).
+	 * @param ttlMillis How long ago the result may have been cached, in milliseconds.
+	 * @return ResultSet Cached rows of the query, or null if there is no fresh result.
+	 */
+	public ResultSet get(String key, long ttlMillis) {
+		long oldest = System.currentTimeMillis() - ttlMillis;
+		byte[] data;
+		synchronized (this) {
+			data = this.memory.get(key);
+		}
+		try {
+			if (data == null) {
+				File file = new File(this.openDirectory().toFile(), key + SUFFIX);
+				if (!file.isFile() || CachedResultSet.readCreatedAt(file) < oldest) {
+					return null;
+				}
+				// Mark the file as recently used
+				file.setLastModified(System.currentTimeMillis());
+				if (file.length() > this.maxMemoryBytes) {
+					return this.open(new BufferedInputStream(new FileInputStream(file)), oldest);
+				}
+				data = Files.readAllBytes(file.toPath());
+				this.putMemory(key, data);
+			}
+			return this.open(new ByteArrayInputStream(data), oldest);
+		} catch (IOException e) {
+			this.logger.log("Unable to read cached results, running query: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private ResultSet open(InputStream in, long oldest) throws IOException {
+		CachedResultSet rs = new CachedResultSet(in);
+		if (rs.getCreatedAt() < oldest) {
+			rs.close();
+			return null;
+		}
+		return rs;
+	}
+
+	/**
+	 * Record the rows of a query as they are read, caching them once all rows were read.
+	 * @param key Key of the query (see {@link #getKey(String, QueryParameters, Source)}).
+	 * @param rs  Rows of the query.
+	 * @return ResultSet Result set returning the same rows, to read instead of rs.
+	 * @throws SQLException When unable to read the metadata of the ResultSet.
+	 */
+	public ResultSet record(String key, ResultSet rs) throws SQLException {
+		File temp;
+		try {
+			// Only readable by the owner, unlike File.createTempFile
+			temp = Files.createTempFile(this.openDirectory(), key, ".tmp").toFile();
+		} catch (IOException e) {
+			this.logger.log("Unable to cache results in " + this.directory + ": " + e.getMessage());
+			return rs;
+		}
+		return new CachingResultSet(this, key, rs, temp);
+	}
+
+	/**
+	 * Create the directory of the results if needed, readable by its owner only, and check that it belongs to the user
+	 * running this process.
+	 * @throws IOException When the directory cannot be created, is not a directory or belongs to another user.
+	 */
+	private Path openDirectory() throws IOException {
+		File directory = this.directory;
+		Path path = directory.toPath();
+		if (directory.equals(this.checkedDirectory)) {
+			return path;
+		}
+		boolean posix = path.getFileSystem().supportedFileAttributeViews().contains("posix");
+		if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+			if (posix) {
+				Files.createDirectories(path, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+			} else {
+				Files.createDirectories(path);
+			}
+		}
+		if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+			throw new IOException(directory + " is not a directory");
+		}
+		if (posix) {
+			UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+					.lookupPrincipalByName(System.getProperty("user.name"));
+			if (!user.equals(Files.getOwner(path, LinkOption.NOFOLLOW_LINKS))) {
+				throw new IOException(directory + " belongs to another user");
+			}
+			Files.setPosixFilePermissions(path, OWNER_ONLY);
+		}
+		this.checkedDirectory = directory;
+		return path;
+	}
+
+	/**
+	 * Store a completely recorded result, replacing any older result of the query.
+	 */
+	void commit(String key, File temp) throws IOException {
+		File file = new File(temp.getParentFile(), key + SUFFIX);
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		if (file.length() <= this.maxMemoryBytes) {
+			this.putMemory(key, Files.readAllBytes(file.toPath()));
+		} else {
+			synchronized (this) {
+				byte[] stale = this.memory.remove(key);
+				if (stale != null) {
+					this.memoryBytes -= stale.length;
+				}
+			}
+		}
+		this.evictDisk(temp.getParentFile());
+	}
+
+	void log(String message) {
+		this.logger.log(message);
+	}
+
+	private synchronized void putMemory(String key, byte[] data) {
+		byte[] previous = this.memory.put(key, data);
+		this.memoryBytes += data.length - (previous == null ? 0 : previous.length);
+		this.evictMemory();
+	}
+
+	/**
+	 * Drop the least recently used results from memory until they fit. Must hold the lock.
+	 */
+	private void evictMemory() {
+		for (Iterator<byte[]> it = this.memory.values().iterator(); it.hasNext() && this.memoryBytes > this.maxMemoryBytes;) {
+			this.memoryBytes -= it.next().length;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Delete the least recently used results from disk until they fit.
+	 */
+	private synchronized void evictDisk(File directory) {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		if (files == null) {
+			return;
+		}
+		long total = 0;
+		for (File file : files) {
+			total += file.length();
+		}
+		if (total <= this.maxDiskBytes) {
+			return;
+		}
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (File file : files) {
+			if (total <= this.maxDiskBytes) {
+				break;
+			}
+			long length = file.length();
+			if (file.delete()) {
+				total -= length;
+			}
+		}
+	}
+
+	/**
+	 * Drop every cached result, in memory and on disk.
+	 */
+	public synchronized void clear() {
+		this.memory.clear();
+		this.memoryBytes = 0;
+		File[] files = this.directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package com.nathanahrens.client;
 
+import java.util.Objects;
+
 /**
  * Class defining a source (such as source of database). 
  * @author nahrens
@@ -9,13 +11,10 @@ public class Source {
 	private User user;
 	private String sourceURL;
 	private SourceType type;
-
-	/**
-	 * Defines the driver to use when connecting to the source.
-	 */
-	public static enum SourceType {
-		ORACLE, COMPOSITE
-	}
+	private int fetchSize;
+	private int maxRows;
+	private boolean adaptiveFetchSize;
+	private int queryTimeout;
 
 	/**
 	 * 
@@ -53,20 +52,111 @@ public class Source {
 		return this.type;
 	}
 
+	/**
+	 * 
+	 * @return Return the number of rows fetched per round trip, or 0 for the driver default.
+	 */
+	public int getFetchSize() {
+		return this.fetchSize;
+	}
+
+	/**
+	 * 
+	 * @param fetchSize Number of rows to fetch per round trip, or 0 for the driver default (the defaultRowPrefetch
+	 *                  property of {@link SourceType#ORACLE} for Oracle).
+	 */
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * 
+	 * @return Return the maximum number of rows a query returns, or 0 for no limit.
+	 */
+	public int getMaxRows() {
+		return this.maxRows;
+	}
+
+	/**
+	 * 
+	 * @param maxRows Maximum number of rows a query returns, or 0 for no limit.
+	 */
+	public void setMaxRows(int maxRows) {
+		this.maxRows = maxRows;
+	}
+
+	/**
+	 * 
+	 * @return Return true if the fetch size is picked from the column count and width of each query.
+	 */
+	public boolean isAdaptiveFetchSize() {
+		return this.adaptiveFetchSize;
+	}
+
+	/**
+	 * 
+	 * @param adaptiveFetchSize If true, the fetch size is picked from the column count and width of each query
+	 *                          (read from its {@link java.sql.ResultSetMetaData}) instead of {@link #getFetchSize()}.
+	 */
+	public void setAdaptiveFetchSize(boolean adaptiveFetchSize) {
+		this.adaptiveFetchSize = adaptiveFetchSize;
+	}
+
+	/**
+	 * 
+	 * @return Return the number of seconds a query may run before it is cancelled, or 0 for no limit.
+	 */
+	public int getQueryTimeout() {
+		return this.queryTimeout;
+	}
+
+	/**
+	 * 
+	 * @param queryTimeout Number of seconds a query may run before the driver cancels it (see
+	 *                     {@link java.sql.Statement#setQueryTimeout(int)}), or 0 for no limit.
+	 */
+	public void setQueryTimeout(int queryTimeout) {
+		this.queryTimeout = queryTimeout;
+	}
+
 	/**
 	 * 
 	 * @return Return the driver class depending on the type of source.
 	 */
 	public String getSourceTypeDriver() {
-		switch (this.type) {
-		case ORACLE:
-			System.getProperties().setProperty("oracle.jdbc.J2EE13Compliant", "true");
-			return "oracle.jdbc.driver.OracleDriver";
-		case COMPOSITE:
-			return "cs.jdbc.driver.CompositeDriver";
-		default:
-			return null;
+		return this.type.getDriverClass();
+	}
+
+	/**
+	 * Two sources are equal when they connect to the same JDBC URL, as the same
+	 * user, with the same {@link SourceType}. Connections to equal sources may be
+	 * shared through the {@link ConnectionPool}.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
 		}
+		if (!(obj instanceof Source)) {
+			return false;
+		}
+		Source other = (Source) obj;
+		return Objects.equals(this.sourceURL, other.sourceURL) && Objects.equals(this.getUserName(), other.getUserName())
+				&& this.type == other.type;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.sourceURL, this.getUserName(), this.type);
+	}
+
+	@Override
+	public String toString() {
+		return this.getUserName() + "@" + this.sourceURL;
+	}
+
+	private String getUserName() {
+		return this.user == null ? null : this.user.getUserName();
 	}
 
 }
@@ -0,0 +1,349 @@
+package com.nathanahrens.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Type of database a {@link Source} connects to: its JDBC driver, how to build its JDBC URL and the connection
+ * properties tuning the driver. Types are registered once, when this class is loaded, and looked up by name or by the
+ * subprotocol of a JDBC URL (the oracle of jdbc:oracle:thin:...) in constant time.</p>
+ * <p>Besides the built-in types, every dbclient-sources.properties file on the classpath is read, so a database is
+ * added by putting its driver and such a file on the classpath, without changing code. Keys are prefixed with the
+ * name of the type:</p>
+ * <pre>
+ * POSTGRESQL.driver=org.postgresql.Driver
+ * POSTGRESQL.subprotocol=postgresql
+ * POSTGRESQL.url=jdbc:postgresql://{host}:{port}/{dataSource}
+ * POSTGRESQL.property.tcpKeepAlive=true
+ * </pre>
+ * <p>The url is optional, and only needed to build URLs from a host (see {@link #getUrl(Map)}). Properties of a
+ * built-in type may be set the same way, i.e. ORACLE.property.oracle.net.networkCompression=off.</p>
+ * <p>Each driver is loaded once, on first use or through {@link #preload()}, and connected to directly rather than
+ * through {@link java.sql.DriverManager}, which would try every registered driver on each connection.</p>
+ * @author nahrens
+ *
+ */
+public final class SourceType {
+	public static final String DESCRIPTOR = "dbclient-sources.properties";
+
+	private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\w+)\\}");
+	private static final Map<String, SourceType> byName = new ConcurrentHashMap<String, SourceType>();
+	private static final Map<String, SourceType> bySubprotocol = new ConcurrentHashMap<String, SourceType>();
+
+	/**
+	 * Oracle, through an LDAP directory of hosts. Uses the driver's statement cache for statements the
+	 * {@link ConnectionPool} does not cache, prefetches 500 rows per round trip unless the {@link Source} sets a fetch
+	 * size, and compresses network traffic when the server supports it.
+	 */
+	public static final SourceType ORACLE = register(new SourceType("ORACLE", "oracle.jdbc.driver.OracleDriver",
+			"oracle", "jdbc:oracle:thin:@ldap://{ldapServer}/{host},{ldapContext}",
+			properties("oracle.jdbc.J2EE13Compliant", "true",
+					"oracle.jdbc.implicitStatementCacheSize", Integer.toString(ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE),
+					"defaultRowPrefetch", "500",
+					"oracle.net.networkCompression", "auto")));
+	public static final SourceType COMPOSITE = register(new SourceType("COMPOSITE", "cs.jdbc.driver.CompositeDriver",
+			"compositesw", "jdbc:compositesw:dbapi@{host}:{port}?domain={domain}&dataSource={dataSource}",
+			new Properties()));
+	/**
+	 * H2 and HSQLDB are embedded databases, that can run in the same process (i.e., to test or benchmark the client
+	 * without a database server).
+	 */
+	public static final SourceType H2 = register(new SourceType("H2", "org.h2.Driver", "h2", null, new Properties()));
+	public static final SourceType HSQLDB = register(new SourceType("HSQLDB", "org.hsqldb.jdbc.JDBCDriver", "hsqldb",
+			null, new Properties()));
+
+	static {
+		loadDescriptors();
+	}
+
+	private final String name;
+	private final String driverClass;
+	private final String subprotocol;
+	private final String urlTemplate;
+	private final Properties properties;
+	private volatile Driver driver;
+
+	private SourceType(String name, String driverClass, String subprotocol, String urlTemplate, Properties properties) {
+		this.name = name;
+		this.driverClass = driverClass;
+		this.subprotocol = subprotocol;
+		this.urlTemplate = urlTemplate;
+		this.properties = properties;
+	}
+
+	/**
+	 * Register a type of source.
+	 * @param name        Name of the type, i.e. ORACLE.
+	 * @param driverClass Class name of its JDBC driver.
+	 * @param subprotocol Subprotocol of its JDBC URLs, i.e. oracle for jdbc:oracle:thin:...
+	 * @param urlTemplate JDBC URL with {host}, {port}, {ldapServer}, {ldapContext}, {domain} or {dataSource}
+	 *                    placeholders (see {@link #getUrl(Map)}), or null.
+	 * @param properties  Connection properties tuning the driver.
+	 * @return SourceType The registered type.
+	 * @throws IllegalArgumentException If a type of that name or subprotocol is already registered.
+	 */
+	public static SourceType register(String name, String driverClass, String subprotocol, String urlTemplate,
+			Properties properties) {
+		Properties copy = new Properties();
+		copy.putAll(properties);
+		return register(new SourceType(name, driverClass, subprotocol, urlTemplate, copy));
+	}
+
+	private static synchronized SourceType register(SourceType type) {
+		if (byName.containsKey(type.name)) {
+			throw new IllegalArgumentException("Source type already registered: " + type.name);
+		}
+		if (bySubprotocol.containsKey(type.subprotocol)) {
+			throw new IllegalArgumentException("Source type already registered for jdbc:" + type.subprotocol + ":");
+		}
+		bySubprotocol.put(type.subprotocol, type);
+		byName.put(type.name, type);
+		return type;
+	}
+
+	/**
+	 * Get a registered type by name.
+	 * @param name Name of the type, i.e. ORACLE.
+	 * @return SourceType The type of that name.
+	 * @throws IllegalArgumentException If no type of that name is registered.
+	 */
+	public static SourceType valueOf(String name) {
+		SourceType type = byName.get(name);
+		if (type == null) {
+			throw new IllegalArgumentException("Unknown type of source: " + name);
+		}
+		return type;
+	}
+
+	/**
+	 * Get the type of source a JDBC URL connects to.
+	 * @param sourceURL JDBC URL of the source.
+	 * @return SourceType Type of the source.
+	 * @throws IllegalArgumentException If the URL is not for a registered type of source.
+	 */
+	public static SourceType ofUrl(String sourceURL) {
+		int end = sourceURL.startsWith("jdbc:") ? sourceURL.indexOf(':', 5) : -1;
+		SourceType type = end < 0 ? null : bySubprotocol.get(sourceURL.substring(5, end));
+		if (type == null) {
+			throw new IllegalArgumentException("Unknown type of source: " + sourceURL);
+		}
+		return type;
+	}
+
+	/**
+	 *
+	 * @return Every registered type.
+	 */
+	public static Collection<SourceType> values() {
+		return Collections.unmodifiableCollection(byName.values());
+	}
+
+	private static Properties properties(String... keyValues) {
+		Properties properties = new Properties();
+		for (int i = 0; i + 1 < keyValues.length; i += 2) {
+			properties.setProperty(keyValues[i], keyValues[i + 1]);
+		}
+		return properties;
+	}
+
+	/**
+	 * Register the types of every descriptor on the classpath. Properties of already registered types are added to
+	 * theirs. A descriptor that cannot be read, or a type that conflicts with one already registered, is reported and
+	 * skipped, and the other types are still loaded.
+	 */
+	private static void loadDescriptors() {
+		Enumeration<URL> descriptors;
+		try {
+			descriptors = SourceType.class.getClassLoader().getResources(DESCRIPTOR);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		while (descriptors.hasMoreElements()) {
+			URL url = descriptors.nextElement();
+			Properties descriptor = new Properties();
+			try (InputStream in = url.openStream()) {
+				descriptor.load(in);
+			} catch (IOException | IllegalArgumentException e) {
+				System.err.println("Unable to read source types from " + url + ": " + e.getMessage());
+				continue;
+			}
+			for (String key : descriptor.stringPropertyNames()) {
+				if (key.endsWith(".driver")) {
+					String name = key.substring(0, key.length() - ".driver".length());
+					if (!byName.containsKey(name)) {
+						try {
+							register(new SourceType(name, descriptor.getProperty(key),
+									descriptor.getProperty(name + ".subprotocol", name.toLowerCase()),
+									descriptor.getProperty(name + ".url"), new Properties()));
+						} catch (IllegalArgumentException e) {
+							System.err.println("Skipping " + key + " of " + url + ": " + e.getMessage());
+						}
+					}
+				}
+			}
+			for (String key : descriptor.stringPropertyNames()) {
+				int property = key.indexOf(".property.");
+				SourceType type = property < 0 ? null : byName.get(key.substring(0, property));
+				if (type != null) {
+					type.properties.setProperty(key.substring(property + ".property.".length()),
+							descriptor.getProperty(key));
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return Return the name of the type, i.e. ORACLE.
+	 */
+	public String name() {
+		return this.name;
+	}
+
+	/**
+	 *
+	 * @return Return the class name of the JDBC driver.
+	 */
+	public String getDriverClass() {
+		return this.driverClass;
+	}
+
+	/**
+	 *
+	 * @return Return a copy of the connection properties tuning the driver.
+	 */
+	public Properties getProperties() {
+		Properties copy = new Properties();
+		copy.putAll(this.properties);
+		return copy;
+	}
+
+	/**
+	 * Build the JDBC URL of a source from its address, replacing each {name} placeholder of the URL template with the
+	 * value of that name (or nothing when the address has none).
+	 * @param address Parts of the address, i.e. host, port, ldapServer, ldapContext, domain and dataSource.
+	 * @return String JDBC URL of the source.
+	 * @throws IllegalStateException If the type has no URL template (i.e. embedded databases, whose URL is given).
+	 */
+	public String getUrl(Map<String, ?> address) {
+		if (this.urlTemplate == null) {
+			throw new IllegalStateException(this.name + " sources have no URL template, their JDBC URL must be given.");
+		}
+		Matcher matcher = PLACEHOLDER.matcher(this.urlTemplate);
+		StringBuilder url = new StringBuilder();
+		while (matcher.find()) {
+			Object value = address.get(matcher.group(1));
+			matcher.appendReplacement(url, Matcher.quoteReplacement(value == null ? "" : value.toString()));
+		}
+		matcher.appendTail(url);
+		return url.toString();
+	}
+
+	/**
+	 * Build the JDBC URL of a source from the parts of its address the command line clients take (see
+	 * {@link #getUrl(Map)}).
+	 * @param host        Host of the source.
+	 * @param port        Port of the source.
+	 * @param ldapServer  LDAP server resolving the host (Oracle).
+	 * @param ldapContext LDAP context of the host (Oracle).
+	 * @param domain      Domain of the source (Composite).
+	 * @param dataSource  Data source of the source (Composite).
+	 * @return String JDBC URL of the source.
+	 */
+	public String getUrl(String host, int port, String ldapServer, String ldapContext, String domain,
+			String dataSource) {
+		Map<String, Object> address = new HashMap<String, Object>();
+		address.put("host", host);
+		address.put("port", port);
+		address.put("ldapServer", ldapServer);
+		address.put("ldapContext", ldapContext);
+		address.put("domain", domain);
+		address.put("dataSource", dataSource);
+		return this.getUrl(address);
+	}
+
+	/**
+	 * Load the driver, once.
+	 * @return Driver The JDBC driver of the type.
+	 * @throws SQLException When the driver is not in the classpath or cannot be instantiated.
+	 */
+	public Driver getDriver() throws SQLException {
+		Driver driver = this.driver;
+		if (driver == null) {
+			synchronized (this) {
+				driver = this.driver;
+				if (driver == null) {
+					try {
+						driver = (Driver) Class.forName(this.driverClass).getDeclaredConstructor().newInstance();
+					} catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+						throw new SQLException("Could not load the driver " + this.driverClass + " of " + this.name
+								+ " sources, please ensure it is in the classpath.", e);
+					}
+					this.driver = driver;
+				}
+			}
+		}
+		return driver;
+	}
+
+	/**
+	 * Load the driver in the background, so it is ready by the time the first connection is made (i.e. while the
+	 * vault is being opened). Failures are reported by the first connection instead.
+	 */
+	public void preload() {
+		if (this.driver == null) {
+			CompletableFuture.runAsync(() -> {
+				try {
+					this.getDriver();
+				} catch (SQLException e) {
+					// Reported when connecting
+				}
+			});
+		}
+	}
+
+	/**
+	 * Connect to a source of this type with the tuning properties of the type.
+	 * @param sourceURL JDBC URL of the source.
+	 * @param user      User to connect as, or null.
+	 * @return Connection A new connection.
+	 * @throws SQLException When unable to connect.
+	 */
+	public Connection connect(String sourceURL, User user) throws SQLException {
+		Properties info = this.getProperties();
+		if (user != null) {
+			if (user.getUserName() != null) {
+				info.setProperty("user", user.getUserName());
+			}
+			if (user.getPassword() != null) {
+				info.setProperty("password", user.getPassword());
+			}
+		}
+		Connection connection = this.getDriver().connect(sourceURL, info);
+		if (connection == null) {
+			throw new SQLException("The driver " + this.driverClass + " does not accept the URL " + sourceURL);
+		}
+		return connection;
+	}
+
+	@Override
+	public String toString() {
+		return this.name;
+	}
+
+}
@@ -13,12 +13,20 @@ import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
 import com.nathanahrens.client.Client;
+import com.nathanahrens.client.ConnectionPool;
 import com.nathanahrens.client.IClient;
+import com.nathanahrens.client.QueryParameters;
+import com.nathanahrens.client.QueryPartitioner;
+import com.nathanahrens.client.ResultCache;
 import com.nathanahrens.client.Source;
+import com.nathanahrens.client.SourceType;
 import com.nathanahrens.client.User;
-import com.nathanahrens.log.Logger;
+import com.nathanahrens.log.AsyncLogger;
 import com.nathanahrens.pwsafe.Credential;
 import com.nathanahrens.pwsafe.SafeWrapper;
+import com.nathanahrens.pwsafe.VaultCache;
+import com.nathanahrens.resultset.DataExportExcelWriter;
+import com.nathanahrens.resultset.ResultSetFanOut;
 
 public class DbCliClient {
 
@@ -29,19 +37,40 @@ public class DbCliClient {
 	private String domain;
 	private String dataSource;
 	private int port;
+	private String jdbcUrl;
+	private String jdbcUser = "sa";
+	private String jdbcPassword = "";
 	private String vaultFile;
 	private String vaultPassword;
 	private String vaultGroup;
 	private String vaultTitle;
 	private Credential sourceCred;
 	private String outputFile;
+	private int rowWindow = DataExportExcelWriter.DEFAULT_ROW_ACCESS_WINDOW;
+	private int sheetRows = DataExportExcelWriter.MAX_ROWS_PER_SHEET;
+	private long fileRows;
+	private String compression;
+	private long rowGroupSize;
+	private int fetchSize;
+	private int maxRows;
+	private boolean adaptiveFetch;
+	private int queryTimeout;
+	private long cacheTtl;
+	private boolean metrics;
+	private QueryParameters parameters = new QueryParameters();
+	private int partitions;
+	private String partitionColumn;
+	private String partitionStrategy = "hash";
+	private boolean orderedPartitions;
 	private boolean showStatus;
-	private Logger logger;
+	private LinkedList<String> schedulerArgs = new LinkedList<String>();
+	private AsyncLogger logger;
+	private AsyncLogger.OverflowPolicy logOverflow;
 	private String logFile;
 	private boolean help;
 	
 	public DbCliClient() {
-		this.logger = new Logger();
+		this.logger = new AsyncLogger();
 	}
 	
 	private String getSqlFromFile(String filePath) {
@@ -54,33 +83,88 @@ public class DbCliClient {
 		return null;
 	}
 	
-	private void runClient(Source.SourceType type,String jdbcUrl) {
+	private void runClient(SourceType type,String jdbcUrl) {
 		Source source = new Source(jdbcUrl, new User(this.sourceCred.getUsername(), this.sourceCred.getPassword()),
 				type);
+		source.setFetchSize(this.fetchSize);
+		source.setMaxRows(this.maxRows);
+		source.setQueryTimeout(this.queryTimeout);
+		source.setAdaptiveFetchSize(this.adaptiveFetch);
 		IClient cli = new Client(source,this.logger);
+		cli.setRowAccessWindowSize(this.rowWindow);
+		cli.setMaxRowsPerSheet(this.sheetRows);
+		cli.setMaxRowsPerFile(this.fileRows);
+		try {
+			cli.setParquetCompression(this.compression);
+		} catch (IllegalArgumentException e) {
+			this.logger.log("Unknown Parquet compression: " + this.compression);
+			System.exit(-1);
+		}
+		cli.setParquetRowGroupSize(this.rowGroupSize * 1024 * 1024);
+		cli.setCacheTtl(this.cacheTtl);
+		cli.setMetrics(this.metrics);
+		cli.setParameters(this.parameters);
+		if (this.partitions > 1) {
+			try {
+				cli.setPartitioner(new QueryPartitioner(QueryPartitioner.getStrategy(this.partitionStrategy),
+						this.partitionColumn, this.partitions, this.orderedPartitions));
+			} catch (IllegalArgumentException e) {
+				this.logger.log("Invalid partitioning: " + e.getMessage());
+				System.exit(-1);
+			}
+		}
 		cli.query(getSqlFromFile(this.sqlFile));
-		cli.saveExcel(this.outputFile, true);
+		String[] outputFiles = this.outputFile.split(",");
+		if (outputFiles.length == 1) {
+			if (!cli.save(this.outputFile.trim())) {
+				System.exit(-1);
+			}
+		} else {
+			// Read the results once and write all files at the same time
+			ResultSetFanOut fanOut = new ResultSetFanOut();
+			for (String outputFile : outputFiles) {
+				fanOut.addSink(outputFile.trim(), cli.getSink(outputFile.trim()));
+			}
+			if (!cli.fanOut(fanOut)) {
+				System.exit(-1);
+			}
+		}
 	}
 
 	public void driveOracle() {
 		this.logger.log("Oracle source...");
-		String jdbcUrl = "jdbc:oracle:thin:@ldap://" + this.ldapServer + "/" + this.host + "," + this.ldapContext;
+		String jdbcUrl = SourceType.ORACLE.getUrl(this.host, this.port, this.ldapServer, this.ldapContext,
+				this.domain, this.dataSource);
 		this.logger.log("JDBC URL: " + jdbcUrl);
 
-		this.runClient(Source.SourceType.ORACLE, jdbcUrl);
+		this.runClient(SourceType.ORACLE, jdbcUrl);
 	}
 
 	public void driveComposite() {
 		this.logger.log("Composite source...");
-		String jdbcUrl = "jdbc:compositesw:dbapi@" + this.host + ":" + this.port + "?domain=" + this.domain
-				+ "&dataSource=" + this.dataSource;
+		String jdbcUrl = SourceType.COMPOSITE.getUrl(this.host, this.port, this.ldapServer, this.ldapContext,
+				this.domain, this.dataSource);
 		this.logger.log("JDBC URL: " + jdbcUrl);
 		
-		this.runClient(Source.SourceType.COMPOSITE, jdbcUrl);
+		this.runClient(SourceType.COMPOSITE, jdbcUrl);
+	}
+
+	public void driveEmbedded() {
+		SourceType type = null;
+		try {
+			type = SourceType.ofUrl(this.jdbcUrl);
+		} catch (IllegalArgumentException e) {
+			this.logger.log(e.getMessage());
+			System.exit(-1);
+		}
+		this.logger.log("Embedded " + type + " source...");
+		this.logger.log("JDBC URL: " + this.jdbcUrl);
+
+		this.runClient(type, this.jdbcUrl);
 	}
 
 	private void setCredential(String group, String title) {
-		SafeWrapper sw = new SafeWrapper(this.vaultFile, new StringBuilder(this.vaultPassword));
+		SafeWrapper sw = VaultCache.getInstance().get(this.vaultFile, new StringBuilder(this.vaultPassword));
 		this.sourceCred = sw.getCredential(group, title);
 	}
 
@@ -95,9 +179,9 @@ public class DbCliClient {
 				this.logger.log("QueryTest mode means the details of the query to run and the output are described in .json files in the local directory.");
 				this.logger.log("Usage:");
 				parser.printUsage(this.logger.getPrintStream());
-			} else if (args.length < 1 || this.showStatus) {
+			} else if (args.length < 1 || this.showStatus || !this.schedulerArgs.isEmpty()) {
 				// Run QueryTest version
-				LinkedList<String> arr = new LinkedList<String>();
+				LinkedList<String> arr = new LinkedList<String>(this.schedulerArgs);
 				if (this.showStatus) {
 					arr.add("--showStatus");
 				}
@@ -105,14 +189,26 @@ public class DbCliClient {
 					arr.add("--log");
 					arr.add(this.logFile);
 				}
+				if (this.logOverflow != null) {
+					arr.add("--logOverflow");
+					arr.add(this.logOverflow.name());
+				}
 				QueryTestDriver.main(arr.toArray(new String[arr.size()]));
 			} else {
 				// Run CLI version
+				if (this.logOverflow != null) {
+					this.logger.close();
+					this.logger = new AsyncLogger(AsyncLogger.DEFAULT_CAPACITY, this.logOverflow);
+				}
 				if (this.logFile != null) {
 					this.logger.setLogFile(new File(this.logFile));
 				}
+				ConnectionPool.getInstance().setLogger(this.logger);
+				ResultCache.getInstance().setLogger(this.logger);
 				this.execute();
+				ConnectionPool.getInstance().shutdown();
 			}
+			this.logger.close();
 		} catch (CmdLineException e) {
 			this.logger.log("ERROR: Unable to parse command line options: " + e);
 			this.logger.log("Usage:");
@@ -124,11 +220,23 @@ public class DbCliClient {
 	}
 
 	private void execute() {
-		this.setCredential(this.vaultGroup, this.vaultTitle);
+		if (this.jdbcUrl != null) {
+			// Embedded databases are not in the vault
+			this.sourceCred = new Credential(this.jdbcUser, this.jdbcPassword);
+			this.driveEmbedded();
+			return;
+		}
+		if (this.host == null) {
+			this.logger.log("Must provide the host and vault record of the source, or the JDBC URL of an embedded source.");
+			System.exit(-1);
+		}
 		if (this.ldapServer == null && this.domain == null) {
 			this.logger.log("Must provide details for either Oracle source or Composite source."); 
 			System.exit(-1);
 		}
+		// Load the driver while the vault is opened
+		(this.domain != null ? SourceType.COMPOSITE : SourceType.ORACLE).preload();
+		this.setCredential(this.vaultGroup, this.vaultTitle);
 		if (this.domain != null) {
 			this.driveComposite();
 		} else {
@@ -142,7 +250,7 @@ public class DbCliClient {
 		client.parseArgs(args);
 	}
 
-	@Option(name = "--sqlFile", depends= {"--host","--vaultFile","--vaultPassword","--vaultPassword","--vaultTitle","--outputFile"}, usage = "Required: Set the file to be used as the SQL to query the source.")
+	@Option(name = "--sqlFile", depends= {"--outputFile"}, usage = "Required: Set the file to be used as the SQL to query the source.")
 	public void setSqlFile(String sqlFilePath) {
 		this.sqlFile = sqlFilePath;
 	}
@@ -182,6 +290,22 @@ public class DbCliClient {
 		this.port = port;
 	}
 
+	@Option(name = "--jdbcUrl", depends = { "--sqlFile", "--outputFile" }, forbids = { "--host", "--ldapServer",
+			"--domain", "--vaultFile" }, usage = "Embedded: Set the JDBC URL of an embedded H2 (jdbc:h2:...) or HSQLDB (jdbc:hsqldb:...) source, or of any source type registered by a dbclient-sources.properties file, instead of the host and vault record of a source. The driver must be in the classpath.")
+	public void setJdbcUrl(String jdbcUrl) {
+		this.jdbcUrl = jdbcUrl;
+	}
+
+	@Option(name = "--jdbcUser", depends = { "--jdbcUrl" }, usage = "Embedded: Set the user to connect to the embedded source as (default sa).")
+	public void setJdbcUser(String jdbcUser) {
+		this.jdbcUser = jdbcUser;
+	}
+
+	@Option(name = "--jdbcPassword", depends = { "--jdbcUrl" }, usage = "Embedded: Set the password of the user of the embedded source (default empty).")
+	public void setJdbcPassword(String jdbcPassword) {
+		this.jdbcPassword = jdbcPassword;
+	}
+
 	@Option(name = "--vaultFile", depends= {"--host","--sqlFile","--vaultPassword","--vaultPassword","--vaultTitle","--outputFile"}, usage = "Required: Set the file path of the password vault (.psafe3).")
 	public void setVaultFile(String vaultFile) {
 		this.vaultFile = vaultFile;
@@ -202,16 +326,142 @@ public class DbCliClient {
 		this.vaultTitle = vaultTitle;
 	}
 
-	@Option(name = "--outputFile", depends= {"--sqlFile","--vaultFile","--vaultPassword","--vaultPassword","--vaultTitle","--host"}, usage = "Required: Set the output file XLSX to write the SQL results to (.xlsx).")
+	@Option(name = "--outputFile", depends= {"--sqlFile"}, usage = "Required: Set the output file to write the SQL results to: XLSX (.xlsx), delimited text (.csv, .tsv, optionally gzipped as .csv.gz or .tsv.gz), Parquet (.parquet) or Arrow IPC (.arrow, or .arrows for the stream format). Use - for stdout. Separate several outputs with commas to write them all at once from one query.")
 	public void setOutputFile(String filePath) {
 		this.outputFile = filePath;
 	}
 	
+	@Option(name = "--rowWindow",usage="Optional: Set the number of rows kept in memory while writing the XLSX file. Older rows are flushed to temporary files. Use 0 to build the whole file in memory (default 100).")
+	public void setRowWindow(int rowWindow) {
+		this.rowWindow = rowWindow;
+	}
+	
+	@Option(name = "--sheetRows",usage="Optional: Set the number of rows written to a sheet of the XLSX file before continuing on a new sheet (default and maximum 1048575).")
+	public void setSheetRows(int sheetRows) {
+		this.sheetRows = sheetRows;
+	}
+	
+	@Option(name = "--fileRows",usage="Optional: Set the number of rows written to an XLSX file before continuing in a new file (i.e., output_2.xlsx). Defaults to a single file.")
+	public void setFileRows(long fileRows) {
+		this.fileRows = fileRows;
+	}
+	
+	@Option(name = "--compression",usage="Optional: Set the compression of a Parquet output file: snappy (default), zstd, gzip, lz4_raw or uncompressed.")
+	public void setCompression(String compression) {
+		this.compression = compression;
+	}
+	
+	@Option(name = "--rowGroupSize",usage="Optional: Set the size in MB of the row groups of a Parquet output file (default 128).")
+	public void setRowGroupSize(long rowGroupSize) {
+		this.rowGroupSize = rowGroupSize;
+	}
+	
+	@Option(name = "--fetchSize",forbids = { "--adaptiveFetch" },usage="Optional: Set the number of rows fetched from the source per round trip. Defaults to the driver default (500 for Oracle, set through its defaultRowPrefetch connection property).")
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+	
+	@Option(name = "--adaptiveFetch",forbids = { "--fetchSize" },usage="Optional: Pick the number of rows fetched per round trip from the column count and width of the query.")
+	public void setAdaptiveFetch(boolean adaptiveFetch) {
+		this.adaptiveFetch = adaptiveFetch;
+	}
+	
+	@Option(name = "--maxRows",usage="Optional: Set the maximum number of rows to fetch from the source. Defaults to no limit.")
+	public void setMaxRows(int maxRows) {
+		this.maxRows = maxRows;
+	}
+	
+	@Option(name = "--queryTimeout",usage="Optional: Set the number of seconds the query may run before it is cancelled. Defaults to no limit.")
+	public void setQueryTimeout(int queryTimeout) {
+		this.queryTimeout = queryTimeout;
+	}
+	
+	@Option(name = "--param",usage="Optional: Bind a parameter of the query, as NAME=VALUE for :NAME, or N=VALUE for the Nth ? of the query. Repeat for each parameter.")
+	public void setParam(String assignment) {
+		this.parameters.set(assignment);
+	}
+	
+	@Option(name = "--cacheTtl",usage="Optional: Serve the query from the result cache if it ran against the same source within this many seconds, otherwise cache its results. Defaults to no caching.")
+	public void setCacheTtl(long cacheTtl) {
+		this.cacheTtl = cacheTtl;
+	}
+	
+	@Option(name = "--cacheDir",usage="Optional: Set the directory of the result cache (default dbclient-cache-<user name> in the temporary directory, readable by its owner only). Also used by QueryTests with a \"cacheTtl\".")
+	public void setCacheDir(String cacheDir) {
+		ResultCache.getInstance().setDirectory(new File(cacheDir));
+	}
+	
+	@Option(name = "--metrics",usage="Optional: Measure where the run spends its time (executing, fetching, converting, writing Excel cells and files), its throughput and peak heap usage, and log a summary at the end. Also available through JMX while running.")
+	public void setMetrics(boolean metrics) {
+		this.metrics = metrics;
+	}
+	
+	@Option(name = "--partitions",depends = { "--partitionColumn" },usage="Optional: Split the query into this many partitions that run at the same time, each on its own connection. Beyond 8 (the size of the connection pool per source), partitions wait for a free connection. With --orderedPartitions, every partition needs its connection at the same time, so at most 8 are allowed and the run waits until that many connections are free.")
+	public void setPartitions(int partitions) {
+		this.partitions = partitions;
+	}
+	
+	@Option(name = "--partitionColumn",depends = { "--partitions" },usage="Optional: Set the column of the query's select list to partition on.")
+	public void setPartitionColumn(String partitionColumn) {
+		this.partitionColumn = partitionColumn;
+	}
+	
+	@Option(name = "--partitionStrategy",depends = { "--partitions" },usage="Optional: Set how rows are split into partitions: hash (default, ORA_HASH buckets of any column), range (equal ranges of a numeric column) or rowid (ranges of a ROWID column with the same number of rows).")
+	public void setPartitionStrategy(String partitionStrategy) {
+		this.partitionStrategy = partitionStrategy;
+	}
+	
+	@Option(name = "--orderedPartitions",depends = { "--partitions" },usage="Optional: Sort the rows by the partition column. By default, rows are written in the order partitions return them, which is faster.")
+	public void setOrderedPartitions(boolean orderedPartitions) {
+		this.orderedPartitions = orderedPartitions;
+	}
+	
 	@Option(name = "--showStatus",usage="Show a status message when app starts to show that it is running. Only used when executing in QueryTest mode (using .json files).")
 	public void setShowStatus(boolean status) {
 		this.showStatus = status;
 	}
 	
+	@Option(name = "--threads",usage="QueryTest mode: Set the maximum number of QueryTests to run at the same time (default 4).")
+	public void setThreads(int threads) {
+		this.schedulerArgs.add("--threads");
+		this.schedulerArgs.add(Integer.toString(threads));
+	}
+	
+	@Option(name = "--hostThreads",usage="QueryTest mode: Set the maximum number of QueryTests to run against the same host at the same time (default 2).")
+	public void setHostThreads(int hostThreads) {
+		this.schedulerArgs.add("--hostThreads");
+		this.schedulerArgs.add(Integer.toString(hostThreads));
+	}
+	
+	@Option(name = "--order",usage="QueryTest mode: Set the order QueryTests are started in: name (default), size (largest .json file first) or priority (highest \"priority\" first).")
+	public void setOrder(String order) {
+		this.schedulerArgs.add("--order");
+		this.schedulerArgs.add(order);
+	}
+	
+	@Option(name = "--dir",usage="QueryTest mode: Run the .json files of this directory instead of the current directory.")
+	public void setDir(String dir) {
+		this.schedulerArgs.add("--dir");
+		this.schedulerArgs.add(dir);
+	}
+	
+	@Option(name = "--virtualThreads",usage="QueryTest mode: Run QueryTests on virtual threads when the JDK supports them.")
+	public void setVirtualThreads(boolean virtualThreads) {
+		if (virtualThreads) {
+			this.schedulerArgs.add("--virtualThreads");
+		}
+	}
+	
+	@Option(name = "--logOverflow",usage="Set what happens to log messages when the log writer falls behind: block (default, wait for it), drop or sample (keep 1 in 16 messages while it is behind).")
+	public void setLogOverflow(String logOverflow) {
+		try {
+			this.logOverflow = AsyncLogger.OverflowPolicy.of(logOverflow);
+		} catch (IllegalArgumentException e) {
+			this.logger.log("Unknown log overflow policy, expected block, drop or sample: " + logOverflow);
+			System.exit(-1);
+		}
+	}
+	
 	@Option(name = "--log",usage="Set log file. For CLI mode, this should be a file (i.e., dbclient.log). For QueryTest mode, this should be a directory to write logs to.")
 	public void setLogFile(String filePath) {
 		this.logFile = filePath;
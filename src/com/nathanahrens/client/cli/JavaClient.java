@@ -10,16 +10,21 @@ import java.sql.SQLException;
 import javax.swing.JOptionPane;
 
 import com.nathanahrens.client.Client;
+import com.nathanahrens.client.ConnectionPool;
 import com.nathanahrens.client.IClient;
+import com.nathanahrens.client.QueryParameters;
 import com.nathanahrens.client.Source;
+import com.nathanahrens.client.SourceType;
 import com.nathanahrens.client.User;
 import com.nathanahrens.log.Logger;
 import com.nathanahrens.pwsafe.Credential;
 import com.nathanahrens.pwsafe.SafeWrapper;
+import com.nathanahrens.pwsafe.VaultCache;
 
 public class JavaClient {
 
 	private String sql;
+	private QueryParameters parameters;
 	private String host;
 	private String ldapServer;
 	private String ldapContext;
@@ -31,6 +36,7 @@ public class JavaClient {
 	private String vaultGroup;
 	private String vaultTitle;
 	private Credential sourceCred;
+	private IClient cli;
 	private ResultSet rs;
 
 	private void evaluateResultSet() {
@@ -63,33 +69,35 @@ public class JavaClient {
 		
 	}
 
-	private void runClient(Source.SourceType type, String jdbcUrl) {
+	private void runClient(SourceType type, String jdbcUrl) {
 		Source source = new Source(jdbcUrl, new User(this.sourceCred.getUsername(), this.sourceCred.getPassword()),
 				type);
-		IClient cli = new Client(source,new Logger());
-		cli.query(this.sql);
-		this.rs = cli.getResultSet();
+		this.cli = new Client(source,new Logger());
+		this.cli.setParameters(this.parameters);
+		this.cli.query(this.sql);
+		this.rs = this.cli.getResultSet();
 	}
 
 	public void driveOracle() {
 		System.out.println("Oracle source...");
-		String jdbcUrl = "jdbc:oracle:thin:@ldap://" + this.ldapServer + "/" + this.host + "," + this.ldapContext;
+		String jdbcUrl = SourceType.ORACLE.getUrl(this.host, this.port, this.ldapServer, this.ldapContext,
+				this.domain, this.dataSource);
 		System.out.println("JDBC URL: " + jdbcUrl);
 
-		this.runClient(Source.SourceType.ORACLE, jdbcUrl);
+		this.runClient(SourceType.ORACLE, jdbcUrl);
 	}
 
 	public void driveComposite() {
 		System.out.println("Composite source...");
-		String jdbcUrl = "jdbc:compositesw:dbapi@" + this.host + ":" + this.port + "?domain=" + this.domain
-				+ "&dataSource=" + this.dataSource;
+		String jdbcUrl = SourceType.COMPOSITE.getUrl(this.host, this.port, this.ldapServer, this.ldapContext,
+				this.domain, this.dataSource);
 		System.out.println("JDBC URL: " + jdbcUrl);
 
-		this.runClient(Source.SourceType.COMPOSITE, jdbcUrl);
+		this.runClient(SourceType.COMPOSITE, jdbcUrl);
 	}
 
 	private void setCredential(String group, String title) {
-		SafeWrapper sw = new SafeWrapper(this.vaultFile, new StringBuilder(this.vaultPassword));
+		SafeWrapper sw = VaultCache.getInstance().get(this.vaultFile, new StringBuilder(this.vaultPassword));
 		this.sourceCred = sw.getCredential(group, title);
 	}
 
@@ -101,8 +109,9 @@ public class JavaClient {
 				+ "   and l.invoice_id in (\r\n" + "SELECT invoice_id FROM jmsuser.jms_scm_invoice\r\n"
 				+ "where scm_trx_id in (\r\n" + "SELECT scm_trx_id FROM \r\n" + "jmsuser.jms_scm_trx\r\n"
 				+ "where partner_send_recv_id = 'LCLPRODEDI'\r\n"
-				+ "and created_date > to_date('1/11/2022 16:30:00', 'MM/DD/YYYY HH24:MI:SS')\r\n"
+				+ "and created_date > to_date(:since, 'MM/DD/YYYY HH24:MI:SS')\r\n"
 				+ "and trx_type = 'INV')))";
+		this.parameters = new QueryParameters().set("since", "1/11/2022 16:30:00");
 		this.host = "aomprod";
 		this.ldapServer = "orrproda.na.jmsmucker.com:389";
 		this.ldapContext = "cn=OracleContext,dc=na,dc=jmsmucker,dc=com";
@@ -116,17 +125,21 @@ public class JavaClient {
 	}
 
 	public void execute() {
-		this.setCredential(this.vaultGroup, this.vaultTitle);
 		if (this.ldapServer == null && this.domain == null) {
 			System.out.println("Must provide details for either Oracle source or Composite source.");
 			System.exit(-1);
 		}
+		// Load the driver while the vault is opened
+		(this.domain != null ? SourceType.COMPOSITE : SourceType.ORACLE).preload();
+		this.setCredential(this.vaultGroup, this.vaultTitle);
 		if (this.domain != null) {
 			this.driveComposite();
 		} else {
 			this.driveOracle();
 		}
 		this.evaluateResultSet();
+		this.cli.close();
+		ConnectionPool.getInstance().shutdown();
 	}
 
 	public static void main(String[] args) {
@@ -1,5 +1,6 @@
 package com.nathanahrens.client.cli;
 
+import java.awt.GraphicsEnvironment;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -7,8 +8,10 @@ import java.io.IOException;
 import java.io.Reader;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.function.Supplier;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -16,13 +19,21 @@ import org.json.simple.parser.ParseException;
 
 import com.nathanahrens.client.Client;
 import com.nathanahrens.client.IClient;
+import com.nathanahrens.client.QueryParameters;
+import com.nathanahrens.client.QueryPartitioner;
 import com.nathanahrens.client.Source;
+import com.nathanahrens.client.SourceType;
 import com.nathanahrens.client.User;
+import com.nathanahrens.log.AsyncLogger;
 import com.nathanahrens.log.Logger;
 import com.nathanahrens.pwsafe.Credential;
 import com.nathanahrens.pwsafe.SafeWrapper;
+import com.nathanahrens.pwsafe.VaultCache;
+import com.nathanahrens.resultset.DataExportExcelWriter;
+import com.nathanahrens.resultset.DataExportParquetWriter;
+import com.nathanahrens.resultset.ResultSetFanOut;
 
-public class QueryTest {
+public class QueryTest implements Runnable {
 	private String sql;
 	private String host;
 	private String ldapServer;
@@ -30,109 +41,274 @@ public class QueryTest {
 	private String domain;
 	private String dataSource;
 	private int port;
+	private String jdbcUrl;
+	private String jdbcUser;
+	private String jdbcPassword;
 	private String vaultFile;
 	private String vaultPassword;
 	private String vaultGroup;
 	private String vaultTitle;
 	private String title;
 	private String outputFile;
+	private int fetchSize;
+	private int maxRows;
+	private boolean adaptiveFetchSize;
+	private int sheetRows = DataExportExcelWriter.MAX_ROWS_PER_SHEET;
+	private long fileRows;
+	private String compression;
+	private long rowGroupSize;
+	private long expectedRows = -1;
+	private int queryTimeout;
+	private long cacheTtl;
+	private boolean metrics;
+	private QueryParameters parameters;
+	private Object parametersJson;
+	private int partitions;
+	private String partitionColumn;
+	private String partitionStrategy;
+	private boolean orderedPartitions;
+	private QueryPartitioner partitioner;
+	private int priority;
 	
 	private Credential sourceCred;
-	private ResultSet rs;
+	private IClient cli;
 	private Logger logger;
+	private Supplier<AsyncLogger> logOpener;
+	// Why the .json file is invalid, if it is
+	private String invalid;
+	private volatile boolean succeeded;
 
+	/**
+	 * Load the QueryTest described by a .json file. The query is not run until {@link #run()} is called.
+	 * @param jsonFile File describing the query to run and its output.
+	 * @param logger Logger to write problems loading the file to, and the progress of this QueryTest unless it opens
+	 *               its own log (see {@link #setLogOpener(Supplier)}).
+	 */
 	public QueryTest(File jsonFile, Logger logger) {
 		super();
 		this.logger = logger;
 		// Load parameters
 		this.readJsonFile(jsonFile);
+	}
 
-		// Run client
-		this.setCredential(this.vaultGroup, this.vaultTitle);
-		if (this.ldapServer == null && this.domain == null) {
-			this.logger.log("Must provide details for either Oracle source or Composite source.");
-			System.exit(-1);
+	/**
+	 * Run the query and evaluate or write its results. Failures, including an invalid .json file, are logged and
+	 * reported by {@link #isSucceeded()} rather than thrown, so they do not stop other QueryTests.
+	 */
+	public void run() {
+		Logger loadLogger = this.logger;
+		AsyncLogger log = this.logOpener == null ? null : this.logOpener.get();
+		if (log != null) {
+			this.logger = log;
 		}
-		if (this.domain != null) {
-			this.driveComposite();
-		} else {
-			this.driveOracle();
+		try {
+			this.runQuery();
+		} finally {
+			if (log != null) {
+				this.logger = loadLogger;
+				log.close();
+			}
 		}
+	}
 
-		if (this.outputFile == null) {
-			this.evaluateResultSet();
+	private void runQuery() {
+		this.succeeded = false;
+		if (this.invalid != null) {
+			this.logger.log("Skipping invalid QueryTest " + this.title + ": " + this.invalid);
+			return;
+		}
+		// Run client
+		if (this.jdbcUrl != null) {
+			this.succeeded = this.driveEmbedded();
 		} else {
-			JOptionPane.showMessageDialog(
-					null, String.format("%s\n-----------\nHost: %s\n-----------\n" + "File written to %s",
-							this.title, this.host, this.outputFile),
-					"QueryTest Results", JOptionPane.INFORMATION_MESSAGE);
+			if (this.ldapServer == null && this.domain == null) {
+				this.logger.log("Must provide details for either Oracle source or Composite source.");
+				return;
+			}
+			// Load the driver while the vault is opened
+			(this.domain != null ? SourceType.COMPOSITE : SourceType.ORACLE).preload();
+			this.setCredential(this.vaultGroup, this.vaultTitle);
+			if (this.domain != null) {
+				this.succeeded = this.driveComposite();
+			} else {
+				this.succeeded = this.driveOracle();
+			}
+		}
+
+		if (this.succeeded && this.outputFile != null) {
+			this.showResult(String.format("%s\n-----------\nHost: %s\n-----------\n" + "File written to %s",
+					this.title, this.host, this.outputFile));
 		}
 		// Evaluate results
 	}
 
-	private void evaluateResultSet() {
-		int colCount;
-		try {
-			colCount = this.rs.getMetaData().getColumnCount();
-			if (colCount != 1) {
-				this.logger.log("Invalid query - must return 1 column of type number!");
-				return;
-			}
-			for (int r = 1; this.rs.next(); r++) {
+	/**
+	 * 
+	 * @return boolean True if the last {@link #run()} wrote or evaluated all results, else false.
+	 */
+	public boolean isSucceeded() {
+		return this.succeeded;
+	}
 
-				/*-
-				 * If you wanted to loop through columns 
-				 for (int i = 0; i < colCount; i++) {
-				  
-				 }
-				 */
+	/**
+	 * Open a log each time this QueryTest starts, and close it once it finishes, so only the logs of running
+	 * QueryTests hold a writer thread and an open file.
+	 * @param logOpener Opens the log to write the progress of this QueryTest to.
+	 */
+	public void setLogOpener(Supplier<AsyncLogger> logOpener) {
+		this.logOpener = logOpener;
+	}
 
-				int result = this.rs.getInt(1);
-				this.logger.log(String.format("Row %d results: %d", r, result));
-				
-				JOptionPane.showMessageDialog(
-						null, String.format("%s\n-----------\nHost: %s\n-----------\n" + "Row %d results: %d",
-								this.title, this.host, r, result),
-						"QueryTest Results", JOptionPane.INFORMATION_MESSAGE);
+	public String getTitle() {
+		return this.title;
+	}
 
-			}
-		} catch (SQLException e) {
-			e.printStackTrace(this.logger.getPrintStream());
+	/**
+	 * 
+	 * @return Host of the source, or the JDBC URL of an embedded source.
+	 */
+	public String getHost() {
+		return this.jdbcUrl != null ? this.jdbcUrl : this.host;
+	}
+
+	/**
+	 * 
+	 * @return Priority of the QueryTest; QueryTests with a higher priority are started first.
+	 */
+	public int getPriority() {
+		return this.priority;
+	}
+
+	/**
+	 * Show a result in a dialog on the Swing event thread, so the scheduler's worker (and its slots) is not held
+	 * until someone closes the dialog. Nothing is shown when running headless (i.e., in a load test), as no one is
+	 * there to close it.
+	 */
+	private void showResult(String message) {
+		if (GraphicsEnvironment.isHeadless()) {
+			return;
 		}
+		SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, message, "QueryTest Results",
+				JOptionPane.INFORMATION_MESSAGE));
+	}
+
+	private void evaluateResultSet(ResultSet rs) throws SQLException {
+		int colCount = rs.getMetaData().getColumnCount();
+		if (colCount != 1) {
+			throw new SQLException("Invalid query - must return 1 column of type number!");
+		}
+		for (int r = 1; rs.next(); r++) {
+
+			/*-
+			 * If you wanted to loop through columns 
+			 for (int i = 0; i < colCount; i++) {
+			  
+			 }
+			 */
 
+			int result = rs.getInt(1);
+			this.logger.log(String.format("Row %d results: %d", r, result));
+			this.showResult(String.format("%s\n-----------\nHost: %s\n-----------\n" + "Row %d results: %d",
+					this.title, this.host, r, result));
+
+		}
 	}
 
-	private void runClient(Source.SourceType type, String jdbcUrl) {
+	private boolean runClient(SourceType type, String jdbcUrl) {
 		Source source = new Source(jdbcUrl, new User(this.sourceCred.getUsername(), this.sourceCred.getPassword()),
 				type);
-		IClient cli = new Client(source, this.logger);
-		cli.query(this.sql);
+		source.setFetchSize(this.fetchSize);
+		source.setMaxRows(this.maxRows);
+		source.setAdaptiveFetchSize(this.adaptiveFetchSize);
+		source.setQueryTimeout(this.queryTimeout);
+		this.cli = new Client(source, this.logger);
+		this.cli.setMaxRowsPerSheet(this.sheetRows);
+		this.cli.setMaxRowsPerFile(this.fileRows);
+		// Validated when the .json file was read
+		this.cli.setParquetCompression(this.compression);
+		this.cli.setParquetRowGroupSize(this.rowGroupSize * 1024 * 1024);
+		this.cli.setCacheTtl(this.cacheTtl);
+		this.cli.setMetrics(this.metrics);
+		this.cli.setParameters(this.parameters);
+		this.cli.setProgressListener((rows, bytes) -> this.logger
+				.log(String.format("%,d rows fetched (%,d bytes)...", rows, bytes)));
+		if (this.partitioner != null) {
+			this.cli.setPartitioner(this.partitioner);
+		}
+		if (!this.cli.query(this.sql)) {
+			return false;
+		}
+
+		ResultSetFanOut fanOut = new ResultSetFanOut();
 		if (this.outputFile == null) {
-			this.rs = cli.getResultSet();
+			fanOut.addSink("evaluate", this::evaluateResultSet);
 		} else {
-			cli.saveExcel(this.outputFile, true);
+			for (String outputFile : this.outputFile.split(",")) {
+				fanOut.addSink(outputFile.trim(), this.cli.getSink(outputFile.trim()));
+			}
+		}
+		if (this.expectedRows >= 0) {
+			fanOut.addSink("expectedRows", ResultSetFanOut.expectRows(this.expectedRows));
+		}
+		if (fanOut.getSinkCount() > 1) {
+			// Read the results once for all outputs
+			return this.cli.fanOut(fanOut);
+		} else if (this.outputFile == null) {
+			try {
+				this.evaluateResultSet(this.cli.getResultSet());
+				return true;
+			} catch (SQLException e) {
+				e.printStackTrace(this.logger.getPrintStream());
+				return false;
+			} finally {
+				this.cli.close();
+			}
+		} else {
+			return this.cli.save(this.outputFile.trim());
 		}
 	}
 
-	private void driveOracle() {
+	private boolean driveOracle() {
 		this.logger.log("Oracle source...");
-		String jdbcUrl = "jdbc:oracle:thin:@ldap://" + this.ldapServer + "/" + this.host + "," + this.ldapContext;
+		String jdbcUrl = SourceType.ORACLE.getUrl(this.host, this.port, this.ldapServer, this.ldapContext,
+				this.domain, this.dataSource);
 		this.logger.log("JDBC URL: " + jdbcUrl);
 
-		this.runClient(Source.SourceType.ORACLE, jdbcUrl);
+		return this.runClient(SourceType.ORACLE, jdbcUrl);
 	}
 
-	private void driveComposite() {
+	private boolean driveComposite() {
 		this.logger.log("Composite source...");
-		String jdbcUrl = "jdbc:compositesw:dbapi@" + this.host + ":" + this.port + "?domain=" + this.domain
-				+ "&dataSource=" + this.dataSource;
+		String jdbcUrl = SourceType.COMPOSITE.getUrl(this.host, this.port, this.ldapServer, this.ldapContext,
+				this.domain, this.dataSource);
 		this.logger.log("JDBC URL: " + jdbcUrl);
 
-		this.runClient(Source.SourceType.COMPOSITE, jdbcUrl);
+		return this.runClient(SourceType.COMPOSITE, jdbcUrl);
+	}
+
+	private boolean driveEmbedded() {
+		SourceType type;
+		try {
+			type = SourceType.ofUrl(this.jdbcUrl);
+		} catch (IllegalArgumentException e) {
+			this.logger.log(e.getMessage());
+			return false;
+		}
+		this.logger.log("Embedded " + type + " source...");
+		this.logger.log("JDBC URL: " + this.jdbcUrl);
+		if (this.vaultFile != null) {
+			this.setCredential(this.vaultGroup, this.vaultTitle);
+		} else {
+			// Embedded databases are usually opened as sa, without a password
+			this.sourceCred = new Credential(this.jdbcUser == null ? "sa" : this.jdbcUser,
+					this.jdbcPassword == null ? "" : this.jdbcPassword);
+		}
+
+		return this.runClient(type, this.jdbcUrl);
 	}
 
 	private void setCredential(String group, String title) {
-		SafeWrapper sw = new SafeWrapper(this.vaultFile, new StringBuilder(this.vaultPassword));
+		SafeWrapper sw = VaultCache.getInstance().get(this.vaultFile, new StringBuilder(this.vaultPassword));
 		this.sourceCred = sw.getCredential(group, title);
 	}
 
@@ -146,11 +322,30 @@ public class QueryTest {
 		obj.put("domain", this.domain);
 		obj.put("dataSource", this.dataSource);
 		obj.put("port", this.port);
+		obj.put("jdbcUrl", this.jdbcUrl);
+		obj.put("jdbcUser", this.jdbcUser);
 		obj.put("vaultFile", this.vaultFile);
 		obj.put("vaultGroup", this.vaultGroup);
 		obj.put("vaultTitle", this.vaultTitle);
 		obj.put("outputFile", this.outputFile);
 		obj.put("title", this.title);
+		obj.put("fetchSize", this.fetchSize);
+		obj.put("maxRows", this.maxRows);
+		obj.put("adaptiveFetchSize", this.adaptiveFetchSize);
+		obj.put("priority", this.priority);
+		obj.put("sheetRows", this.sheetRows);
+		obj.put("fileRows", this.fileRows);
+		obj.put("compression", this.compression);
+		obj.put("rowGroupSize", this.rowGroupSize);
+		obj.put("expectedRows", this.expectedRows);
+		obj.put("queryTimeout", this.queryTimeout);
+		obj.put("cacheTtl", this.cacheTtl);
+		obj.put("metrics", this.metrics);
+		obj.put("parameters", this.parametersJson);
+		obj.put("partitions", this.partitions);
+		obj.put("partitionColumn", this.partitionColumn);
+		obj.put("partitionStrategy", this.partitionStrategy);
+		obj.put("orderedPartitions", this.orderedPartitions);
 
 		try (FileWriter writer = new FileWriter(file)) {
 			writer.write(obj.toJSONString());
@@ -170,20 +365,98 @@ public class QueryTest {
 			this.ldapContext = (String) jsonObject.get("ldapContext");
 			this.domain = (String) jsonObject.get("domain");
 			this.dataSource = (String) jsonObject.get("dataSource");
-			this.port = ((Long) jsonObject.get("port")).intValue();
+			if (jsonObject.get("port") != null) {
+				this.port = ((Long) jsonObject.get("port")).intValue();
+			}
+			this.jdbcUrl = (String) jsonObject.get("jdbcUrl");
+			this.jdbcUser = (String) jsonObject.get("jdbcUser");
+			this.jdbcPassword = (String) jsonObject.get("jdbcPassword");
 			this.vaultFile = (String) jsonObject.get("vaultFile");
 			this.vaultPassword = (String) jsonObject.get("vaultPassword");
 			this.vaultGroup = (String) jsonObject.get("vaultGroup");
 			this.vaultTitle = (String) jsonObject.get("vaultTitle");
 			this.title = (String) jsonObject.get("title");
 			this.outputFile = (String) jsonObject.get("outputFile");
-			if (this.title == null) {
-				this.title = file.getName();
+			if (jsonObject.get("fetchSize") != null) {
+				this.fetchSize = ((Long) jsonObject.get("fetchSize")).intValue();
+			}
+			if (jsonObject.get("maxRows") != null) {
+				this.maxRows = ((Long) jsonObject.get("maxRows")).intValue();
+			}
+			if (jsonObject.get("priority") != null) {
+				this.priority = ((Long) jsonObject.get("priority")).intValue();
+			}
+			if (jsonObject.get("sheetRows") != null) {
+				this.sheetRows = ((Long) jsonObject.get("sheetRows")).intValue();
+			}
+			if (jsonObject.get("fileRows") != null) {
+				this.fileRows = (Long) jsonObject.get("fileRows");
+			}
+			this.compression = (String) jsonObject.get("compression");
+			try {
+				DataExportParquetWriter.getCompression(this.compression);
+			} catch (IllegalArgumentException e) {
+				this.invalidate("Unknown Parquet compression: " + this.compression);
+			}
+			if (jsonObject.get("rowGroupSize") != null) {
+				this.rowGroupSize = (Long) jsonObject.get("rowGroupSize");
+			}
+			if (jsonObject.get("expectedRows") != null) {
+				this.expectedRows = (Long) jsonObject.get("expectedRows");
+			}
+			if (jsonObject.get("queryTimeout") != null) {
+				this.queryTimeout = ((Long) jsonObject.get("queryTimeout")).intValue();
+			}
+			this.parametersJson = jsonObject.get("parameters");
+			try {
+				this.parameters = QueryParameters.fromJson(this.parametersJson);
+			} catch (IllegalArgumentException e) {
+				this.invalidate("Invalid parameters: " + e.getMessage());
+			}
+			if (jsonObject.get("cacheTtl") != null) {
+				this.cacheTtl = (Long) jsonObject.get("cacheTtl");
+			}
+			if (jsonObject.get("metrics") != null) {
+				this.metrics = (Boolean) jsonObject.get("metrics");
+			}
+			if (jsonObject.get("partitions") != null) {
+				this.partitions = ((Long) jsonObject.get("partitions")).intValue();
+			}
+			this.partitionColumn = (String) jsonObject.get("partitionColumn");
+			this.partitionStrategy = (String) jsonObject.get("partitionStrategy");
+			if (jsonObject.get("orderedPartitions") != null) {
+				this.orderedPartitions = (Boolean) jsonObject.get("orderedPartitions");
+			}
+			if (this.partitions > 1) {
+				try {
+					this.partitioner = new QueryPartitioner(
+							QueryPartitioner.getStrategy(this.partitionStrategy == null ? "hash" : this.partitionStrategy),
+							this.partitionColumn, this.partitions, this.orderedPartitions);
+				} catch (IllegalArgumentException e) {
+					this.invalidate("Invalid partitioning: " + e.getMessage());
+				}
+			}
+			if (jsonObject.get("adaptiveFetchSize") != null) {
+				this.adaptiveFetchSize = (Boolean) jsonObject.get("adaptiveFetchSize");
 			}
 		} catch (IOException e) {
 			e.printStackTrace(this.logger.getPrintStream());
+			this.invalidate("Unable to read " + file);
 		} catch (ParseException e) {
 			e.printStackTrace(this.logger.getPrintStream());
+			this.invalidate("Unable to parse " + file);
+		}
+		if (this.title == null) {
+			this.title = file.getName();
+		}
+	}
+
+	/**
+	 * Mark this QueryTest as invalid, so {@link #run()} skips it and reports it as failed. The first reason is kept.
+	 */
+	private void invalidate(String reason) {
+		if (this.invalid == null) {
+			this.invalid = reason;
 		}
 	}
 
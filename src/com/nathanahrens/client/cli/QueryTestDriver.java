@@ -4,11 +4,16 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 
 import javax.swing.JOptionPane;
 
-import com.nathanahrens.log.Logger;
+import com.nathanahrens.client.ConnectionPool;
+import com.nathanahrens.client.ResultCache;
+import com.nathanahrens.log.AsyncLogger;
 
 public class QueryTestDriver {
 	private static File logDir;
@@ -20,22 +25,52 @@ public class QueryTestDriver {
 	 * 
 	 * @param args --showStatus will show a status window when this first starts.
 	 *             --log VAL will write log files to the VAL directory.
+	 *             --dir VAL will run the .json files of the VAL directory instead of the current directory.
+	 *             --threads VAL will run at most VAL QueryTests at the same time.
+	 *             --hostThreads VAL will run at most VAL QueryTests against the same host at the same time.
+	 *             --order VAL will start QueryTests by file name (name), largest file first (size) or highest
+	 *             "priority" first (priority).
+	 *             --virtualThreads will run QueryTests on virtual threads when the JDK supports them.
+	 *             --logOverflow VAL will block (default), drop or sample the messages of a QueryTest log when its
+	 *             writer falls behind.
 	 */
 	public static void main(String[] args) {
-		Logger logger = new Logger();
+		AsyncLogger logger = new AsyncLogger();
+		AsyncLogger.OverflowPolicy logOverflow = AsyncLogger.OverflowPolicy.BLOCK;
+		int maxThreads = QueryTestScheduler.DEFAULT_MAX_CONCURRENCY;
+		int hostThreads = QueryTestScheduler.DEFAULT_MAX_PER_HOST;
+		String order = "name";
+		boolean virtualThreads = false;
+		File dir = new File(".");
 		for (int i = 0; i < args.length; i++) {
-			if (args[i] == "--showStatus") {
+			if ("--showStatus".equals(args[i])) {
 				Thread thread = new Thread(new Runnable() {
 					public void run() {
 						JOptionPane.showMessageDialog(null, "The QueryTest has started.");
 					}
 				});
 				thread.start();
-			} else if (args[i] == "--log" && i + 1 < args.length) {
+			} else if ("--log".equals(args[i]) && i + 1 < args.length) {
 				logDir = new File(args[i + 1]);
 				if (!logDir.isDirectory()) {
 					logDir = null;
-					logger.log(logDir.toString() + " is not a directory, could not set log files to that directory.");
+					logger.log(args[i + 1] + " is not a directory, could not set log files to that directory.");
+				}
+			} else if ("--dir".equals(args[i]) && i + 1 < args.length) {
+				dir = new File(args[i + 1]);
+			} else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+				maxThreads = Integer.parseInt(args[i + 1]);
+			} else if ("--hostThreads".equals(args[i]) && i + 1 < args.length) {
+				hostThreads = Integer.parseInt(args[i + 1]);
+			} else if ("--order".equals(args[i]) && i + 1 < args.length) {
+				order = args[i + 1];
+			} else if ("--virtualThreads".equals(args[i])) {
+				virtualThreads = true;
+			} else if ("--logOverflow".equals(args[i]) && i + 1 < args.length) {
+				try {
+					logOverflow = AsyncLogger.OverflowPolicy.of(args[i + 1]);
+				} catch (IllegalArgumentException e) {
+					logger.log(args[i + 1] + " is not a log overflow policy (block, drop or sample), blocking instead.");
 				}
 			}
 		}
@@ -50,6 +85,10 @@ public class QueryTestDriver {
 			}
 		}
 
+		/* QueryTests against the same source share connections through the pool */
+		ConnectionPool.getInstance().setLogger(logger);
+		ResultCache.getInstance().setLogger(logger);
+
 		/* FileFilter to list only files with .json extension */
 		FileFilter jsonFileFilter = new FileFilter() {
 			public boolean accept(File file) {
@@ -60,32 +99,52 @@ public class QueryTestDriver {
 			}
 		};
 
-		/* get .json file listing in current directory */
-		File dir = new File(".");
+		/* get .json file listing in the directory */
 		File[] listing = dir.listFiles(jsonFileFilter);
 		if (listing != null) {
+			sortListing(listing, order);
+			ArrayList<QueryTest> tests = new ArrayList<QueryTest>();
 			for (File child : listing) {
-				System.out.println(child);
 				if (child.isFile()) {
-					/* start new thread to run the QueryTest represented by the json file. */
-					Thread thread = new Thread(new Runnable() {
-						public void run() {
-							Logger childLogger = new Logger();
-							if (logDir != null) {
-								try {
-									String logFile = "QueryTest_" + child.getName() + "_" + getLogFileTimestamp() + ".log";
-									logger.log("Set logger file for " + child.toString() + " to " + logFile);
-									childLogger.setLogFile(new File(logDir,logFile));
-								} catch (FileNotFoundException e) {
-									e.printStackTrace(logger.getPrintStream());
-								}
-							}
-							new QueryTest(child, childLogger);
-						}
-					});
-					thread.start();
+					QueryTest test = new QueryTest(child, logger);
+					// Open the log of each QueryTest only while it runs
+					AsyncLogger.OverflowPolicy policy = logOverflow;
+					test.setLogOpener(() -> openLog(child, policy, logger));
+					tests.add(test);
 				}
 			}
+			if ("priority".equals(order)) {
+				// Stable sort, so QueryTests with the same priority keep their file name order
+				tests.sort(Comparator.comparingInt(QueryTest::getPriority).reversed());
+			}
+			new QueryTestScheduler(maxThreads, hostThreads, virtualThreads, logger).runAll(tests);
+		}
+		ConnectionPool.getInstance().shutdown();
+		logger.close();
+	}
+
+	/**
+	 * Open the log of a QueryTest, writing to a file of its own in the log directory if one was set.
+	 */
+	private static AsyncLogger openLog(File child, AsyncLogger.OverflowPolicy logOverflow, AsyncLogger logger) {
+		AsyncLogger childLogger = new AsyncLogger(AsyncLogger.DEFAULT_CAPACITY, logOverflow);
+		if (logDir != null) {
+			try {
+				String logFile = "QueryTest_" + child.getName() + "_" + getLogFileTimestamp() + ".log";
+				logger.log("Set logger file for " + child.toString() + " to " + logFile);
+				childLogger.setLogFile(new File(logDir,logFile));
+			} catch (FileNotFoundException e) {
+				e.printStackTrace(logger.getPrintStream());
+			}
+		}
+		return childLogger;
+	}
+
+	private static void sortListing(File[] listing, String order) {
+		if ("size".equals(order)) {
+			Arrays.sort(listing, Comparator.comparingLong(File::length).reversed().thenComparing(File::getName));
+		} else {
+			Arrays.sort(listing, Comparator.comparing(File::getName));
 		}
 	}
 
@@ -0,0 +1,157 @@
+package com.nathanahrens.client.cli;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.nathanahrens.log.Logger;
+
+/**
+ * <p>Runs {@link QueryTest}s with a bounded number of concurrent tests overall and per host.</p>
+ * <p>QueryTests are started in the order they are given; a QueryTest whose host is already at its limit is skipped
+ * over (without holding a worker) until one of the tests against that host finishes.</p>
+ * @author nahrens
+ *
+ */
+public class QueryTestScheduler {
+	public static final int DEFAULT_MAX_CONCURRENCY = 4;
+	public static final int DEFAULT_MAX_PER_HOST = 2;
+
+	private final int maxConcurrency;
+	private final int maxPerHost;
+	private final boolean virtualThreads;
+	private final Logger logger;
+
+	private final Object lock = new Object();
+	private final HashMap<String, Integer> runningPerHost = new HashMap<String, Integer>();
+	private int running;
+	private final AtomicInteger succeeded = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+
+	/**
+	 *
+	 * @param maxConcurrency Maximum number of QueryTests to run at the same time.
+	 * @param maxPerHost     Maximum number of QueryTests to run against the same host at the same time.
+	 * @param virtualThreads If true and the JDK supports it, run each QueryTest on a virtual thread.
+	 * @param logger         Logger to write the progress and summary to.
+	 */
+	public QueryTestScheduler(int maxConcurrency, int maxPerHost, boolean virtualThreads, Logger logger) {
+		this.maxConcurrency = Math.max(1, maxConcurrency);
+		this.maxPerHost = Math.max(1, maxPerHost);
+		this.virtualThreads = virtualThreads;
+		this.logger = logger;
+	}
+
+	/**
+	 * Run all QueryTests and wait for them to finish, then log a throughput summary.
+	 * @param tests QueryTests to run, in the order they should be started.
+	 */
+	public void runAll(List<QueryTest> tests) {
+		LinkedList<QueryTest> pending = new LinkedList<QueryTest>(tests);
+		ExecutorService executor = this.createExecutor();
+		long startTime = System.nanoTime();
+		try {
+			synchronized (this.lock) {
+				while (!pending.isEmpty()) {
+					QueryTest next = this.takeRunnable(pending);
+					if (next == null) {
+						this.lock.wait();
+						continue;
+					}
+					this.running++;
+					this.runningPerHost.merge(hostOf(next), 1, Integer::sum);
+					executor.execute(() -> this.runTest(next));
+				}
+				while (this.running > 0) {
+					this.lock.wait();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.logger.log("Interrupted while waiting for QueryTests to finish...");
+		} finally {
+			executor.shutdown();
+		}
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		long endTime = System.nanoTime();
+		this.logSummary(tests.size(), (endTime - startTime) / 1000000000.0);
+	}
+
+	/**
+	 * Remove and return the first pending QueryTest that may start now, or null if none can. Must hold the lock.
+	 */
+	private QueryTest takeRunnable(LinkedList<QueryTest> pending) {
+		if (this.running >= this.maxConcurrency) {
+			return null;
+		}
+		for (Iterator<QueryTest> it = pending.iterator(); it.hasNext();) {
+			QueryTest test = it.next();
+			if (this.runningPerHost.getOrDefault(hostOf(test), 0) < this.maxPerHost) {
+				it.remove();
+				return test;
+			}
+		}
+		return null;
+	}
+
+	private void runTest(QueryTest test) {
+		try {
+			test.run();
+			if (test.isSucceeded()) {
+				this.succeeded.incrementAndGet();
+			} else {
+				this.failed.incrementAndGet();
+				this.logger.log("QueryTest " + test.getTitle() + " failed, see its log...");
+			}
+		} catch (RuntimeException e) {
+			this.failed.incrementAndGet();
+			this.logger.log("QueryTest " + test.getTitle() + " failed: " + e);
+			e.printStackTrace(this.logger.getPrintStream());
+		} finally {
+			synchronized (this.lock) {
+				this.running--;
+				this.runningPerHost.merge(hostOf(test), -1, Integer::sum);
+				this.lock.notifyAll();
+			}
+		}
+	}
+
+	private void logSummary(int total, double seconds) {
+		this.logger.log(String.format("QueryTests finished: %d total, %d succeeded, %d failed in %,.3f seconds", total,
+				this.succeeded.get(), this.failed.get(), seconds));
+		if (total > 0 && seconds > 0) {
+			this.logger.log(String.format("Throughput: %,.2f QueryTests per minute, %,.3f seconds per QueryTest on average",
+					total * 60 / seconds, seconds / total));
+		}
+	}
+
+	private static String hostOf(QueryTest test) {
+		return test.getHost() == null ? "" : test.getHost();
+	}
+
+	private ExecutorService createExecutor() {
+		if (this.virtualThreads) {
+			try {
+				// Looked up reflectively so this still runs on JDKs without virtual threads
+				Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				return (ExecutorService) factory.invoke(null);
+			} catch (ReflectiveOperationException e) {
+				this.logger.log("Virtual threads are not supported by this JDK, using platform threads...");
+			}
+		}
+		AtomicInteger threadNumber = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> new Thread(runnable, "QueryTest-" + threadNumber.incrementAndGet());
+		return Executors.newFixedThreadPool(this.maxConcurrency, threadFactory);
+	}
+}
@@ -0,0 +1,289 @@
+package com.nathanahrens.log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>{@link Logger} that hands messages to a writer thread instead of writing them on the calling thread, so logging
+ * (i.e., a progress line every few thousand rows) does not wait for the console or the log file.</p>
+ * <p>Messages go through a bounded, lock-free ring buffer that any number of threads can log to. The writer thread
+ * drains whatever is waiting and writes it with a single print and flush. When the buffer is full, the
+ * {@link OverflowPolicy} decides whether callers wait for room, or messages are dropped; the number of dropped
+ * messages is logged once the writer catches up.</p>
+ * <p>{@link #getPrintStream()} flushes waiting messages first, so stack traces printed to it keep their place among the
+ * messages. Waiting messages are also flushed by {@link #flush()}, {@link #close()} and when the JVM shuts down.</p>
+ * @author nahrens
+ *
+ */
+public class AsyncLogger extends Logger implements AutoCloseable {
+	public static final int DEFAULT_CAPACITY = 8192;
+	/**
+	 * With {@link OverflowPolicy#SAMPLE}, one in this many messages is kept while the buffer is more than half full.
+	 */
+	public static final int SAMPLE_RATE = 16;
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long WAIT_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final long CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	/**
+	 * What to do with a message when the buffer is full.
+	 */
+	public static enum OverflowPolicy {
+		/**
+		 * Wait for the writer to make room, so no message is lost.
+		 */
+		BLOCK,
+		/**
+		 * Drop the message.
+		 */
+		DROP,
+		/**
+		 * Keep one in {@link AsyncLogger#SAMPLE_RATE} messages once the buffer is half full, and drop all messages
+		 * while it is full.
+		 */
+		SAMPLE;
+
+		/**
+		 * Parse an overflow policy, ignoring case.
+		 * @param name Name of the policy: block, drop or sample.
+		 * @return OverflowPolicy The policy.
+		 * @throws IllegalArgumentException If the policy is unknown.
+		 */
+		public static OverflowPolicy of(String name) {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		}
+	}
+
+	private final AtomicReferenceArray<String> ring;
+	private final int mask;
+	private final OverflowPolicy policy;
+	// Next slot producers claim
+	private final AtomicLong tail = new AtomicLong();
+	// Next slot the writer reads; only written by the writer thread
+	private volatile long head;
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong sampled = new AtomicLong();
+	private final Thread writer;
+	private final Thread shutdownHook;
+	private volatile boolean sleeping;
+	private volatile boolean closed;
+	// Log file opened by setLogFile, closed with the logger
+	private PrintStream logFile;
+
+	/**
+	 * Create a logger with a buffer of {@link #DEFAULT_CAPACITY} messages, that blocks when the buffer is full.
+	 */
+	public AsyncLogger() {
+		this(DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 *
+	 * @param capacity Number of messages the buffer holds, rounded up to a power of two.
+	 * @param policy   What to do with a message when the buffer is full.
+	 */
+	public AsyncLogger(int capacity, OverflowPolicy policy) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.ring = new AtomicReferenceArray<String>(size);
+		this.mask = size - 1;
+		this.policy = policy;
+		this.writer = new Thread(this::write, "AsyncLogger-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+		this.shutdownHook = new Thread(this::flush, "AsyncLogger-shutdown");
+		Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+	}
+
+	@Override
+	public void log(String message) {
+		if (this.closed) {
+			super.log(message);
+			return;
+		}
+		String line = String.valueOf(message);
+		if (this.policy == OverflowPolicy.BLOCK) {
+			while (!this.offer(line)) {
+				this.wakeWriter();
+				LockSupport.parkNanos(this, WAIT_PARK_NANOS);
+				if (this.closed) {
+					super.log(line);
+					return;
+				}
+			}
+		} else {
+			if (this.policy == OverflowPolicy.SAMPLE && this.size() > this.ring.length() / 2
+					&& this.sampled.incrementAndGet() % SAMPLE_RATE != 0) {
+				this.dropped.incrementAndGet();
+				return;
+			}
+			// Both drop and sample drop while the buffer is full
+			if (!this.offer(line)) {
+				this.dropped.incrementAndGet();
+				return;
+			}
+		}
+		if (this.sleeping) {
+			this.wakeWriter();
+		}
+	}
+
+	private int size() {
+		return (int) (this.tail.get() - this.head);
+	}
+
+	/**
+	 * Claim the next slot of the ring and put the message in it, unless the ring is full.
+	 */
+	private boolean offer(String message) {
+		for (;;) {
+			long slot = this.tail.get();
+			if (slot - this.head >= this.ring.length()) {
+				return false;
+			}
+			if (this.tail.compareAndSet(slot, slot + 1)) {
+				this.ring.set((int) (slot & this.mask), message);
+				return true;
+			}
+		}
+	}
+
+	private void wakeWriter() {
+		LockSupport.unpark(this.writer);
+	}
+
+	/**
+	 * Write messages in batches until closed and drained.
+	 */
+	private void write() {
+		StringBuilder batch = new StringBuilder();
+		for (;;) {
+			long next = this.head;
+			long end = this.tail.get();
+			int count = 0;
+			while (next < end) {
+				int index = (int) (next & this.mask);
+				String message = this.ring.get(index);
+				if (message == null) {
+					// Claimed, but the producer has not stored its message yet
+					break;
+				}
+				this.ring.set(index, null);
+				batch.append(message).append(LINE_SEPARATOR);
+				next++;
+				count++;
+			}
+			long lost = count == 0 ? this.dropped.getAndSet(0) : 0;
+			if (lost > 0) {
+				batch.append(String.format("%,d log messages dropped...", lost)).append(LINE_SEPARATOR);
+			}
+			if (batch.length() > 0) {
+				PrintStream printer = super.getPrintStream();
+				printer.print(batch);
+				printer.flush();
+				batch.setLength(0);
+			}
+			this.head = next;
+			if (count > 0) {
+				continue;
+			}
+			if (this.closed && next == this.tail.get()) {
+				return;
+			}
+			this.sleeping = true;
+			if (next == this.tail.get()) {
+				LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+			}
+			this.sleeping = false;
+		}
+	}
+
+	/**
+	 * Wait until every message logged so far has been written.
+	 */
+	@Override
+	public void flush() {
+		if (Thread.currentThread() == this.writer) {
+			return;
+		}
+		long target = this.tail.get();
+		while (this.head < target && this.writer.isAlive()) {
+			this.wakeWriter();
+			LockSupport.parkNanos(this, WAIT_PARK_NANOS);
+		}
+		super.flush();
+	}
+
+	/**
+	 * Write the waiting messages, then stop the writer thread and close the log file set by {@link #setLogFile(File)}.
+	 * Messages logged afterwards are written on the calling thread, to the console if the log file was closed.
+	 */
+	@Override
+	public void close() {
+		if (this.closed) {
+			return;
+		}
+		this.flush();
+		this.closed = true;
+		this.wakeWriter();
+		try {
+			this.writer.join(CLOSE_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+		} catch (IllegalStateException e) {
+			// Already shutting down
+		}
+		synchronized (this) {
+			if (this.logFile != null) {
+				if (super.getPrintStream() == this.logFile) {
+					super.setPrintStream(System.out);
+				}
+				this.logFile.close();
+				this.logFile = null;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return long Number of messages dropped because the buffer was full, and not reported yet.
+	 */
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	@Override
+	public synchronized void setLogFile(File file) throws FileNotFoundException {
+		this.flush();
+		super.setLogFile(file);
+		if (this.logFile != null) {
+			this.logFile.close();
+		}
+		this.logFile = super.getPrintStream();
+	}
+
+	@Override
+	public void setPrintStream(PrintStream ps) {
+		this.flush();
+		super.setPrintStream(ps);
+	}
+
+	/**
+	 * Flush the waiting messages, so anything printed directly to the stream comes after them.
+	 */
+	@Override
+	public PrintStream getPrintStream() {
+		this.flush();
+		return super.getPrintStream();
+	}
+}
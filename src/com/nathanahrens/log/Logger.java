@@ -5,7 +5,7 @@ import java.io.FileNotFoundException;
 import java.io.PrintStream;
 
 public class Logger {
-	private PrintStream printer = System.out; 
+	private volatile PrintStream printer = System.out; 
 	
 	public void log(String message) {
 		printer.println(message);
@@ -23,4 +23,8 @@ public class Logger {
 		return this.printer;
 	}
 	
+	public void flush() {
+		printer.flush();
+	}
+	
 }
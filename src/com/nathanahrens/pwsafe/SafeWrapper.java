@@ -3,6 +3,8 @@ package com.nathanahrens.pwsafe;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
 
 import org.pwsafe.lib.exception.EndOfFileException;
 import org.pwsafe.lib.exception.InvalidPassphraseException;
@@ -15,6 +17,10 @@ import org.pwsafe.lib.file.PwsRecord;
 
 public class SafeWrapper {
 	PwsFile safe;
+	/**
+	 * Index of record positions by group (null for records without a group), then by title.
+	 */
+	private volatile HashMap<String, HashMap<String, Integer>> index;
 
 	public SafeWrapper(String file, StringBuilder passphrase) {
 		if (file == null || passphrase == null) {
@@ -28,6 +34,7 @@ public class SafeWrapper {
 	public boolean load(String file, StringBuilder passphrase) {
 		try {
 			this.safe = PwsFileFactory.loadFile(file, passphrase);
+			this.index = buildIndex(this.safe);
 			return true;
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
@@ -50,36 +57,49 @@ public class SafeWrapper {
 		}
 	}
 
+	/**
+	 * 
+	 * @return True if the vault was loaded successfully.
+	 */
+	public boolean isLoaded() {
+		return this.safe != null;
+	}
+
+	/**
+	 * Decrypt every record once to index its position by group and title. When several records share a group and
+	 * title, the first one is kept.
+	 */
+	private static HashMap<String, HashMap<String, Integer>> buildIndex(PwsFile safe) {
+		HashMap<String, HashMap<String, Integer>> index = new HashMap<String, HashMap<String, Integer>>();
+		Iterator<? extends PwsRecord> records = safe.getRecords();
+		for (int i = 0; records.hasNext(); i++) {
+			PwsRecord rec = records.next();
+			PwsField recGroup = rec.getField(PwsFieldTypeV3.GROUP);
+			PwsField recTitle = rec.getField(PwsFieldTypeV3.TITLE);
+			if (recTitle == null) {
+				continue;
+			}
+			String group = recGroup == null ? null : recGroup.toString();
+			index.computeIfAbsent(group, g -> new HashMap<String, Integer>()).putIfAbsent(recTitle.toString(), i);
+		}
+		return index;
+	}
+
 	public Credential getCredential(String group, String title) {
 		if (title == null) {
 			System.out.println("Must provide a title.");
 			return null;
 		}
-		int recordCount = this.safe.getRecordCount();
-		PwsRecord rec;
-		for (int i = 0; i < recordCount; i++) {
-			rec = this.safe.getRecord(i);
-			PwsField recGroup = rec.getField(PwsFieldTypeV3.GROUP);
-			PwsField recTitle = rec.getField(PwsFieldTypeV3.TITLE);
-			if (group == null) {
-				// We want records without GROUP type fields
-				if (recGroup == null && recTitle != null && recTitle.toString().equals(title)) {
-					// Fields where recTitle = title.
-					return new Credential(rec.getField(PwsFieldTypeV3.USERNAME).toString(),
-							rec.getField(PwsFieldTypeV3.PASSWORD).toString());
-				}
-			} else {
-				// Records in a GROUP
-				if (recGroup != null && recGroup.toString().equals(group) && recTitle != null
-						&& recTitle.toString().equals(title)) {
-					// Title and group match
-					return new Credential(rec.getField(PwsFieldTypeV3.USERNAME).toString(),
-							rec.getField(PwsFieldTypeV3.PASSWORD).toString());
-				}
-			}
-
+		// A null group finds records without GROUP type fields
+		HashMap<String, Integer> titles = this.index.get(group);
+		Integer position = titles == null ? null : titles.get(title);
+		if (position == null) {
+			// Group or title does not exist.
+			return null;
 		}
-		// If this point is reached, group or title does not exist.
-		return null;
+		// Only the matching record is decrypted
+		PwsRecord rec = this.safe.getRecord(position);
+		return new Credential(rec.getField(PwsFieldTypeV3.USERNAME).toString(),
+				rec.getField(PwsFieldTypeV3.PASSWORD).toString());
 	}
 }
@@ -0,0 +1,119 @@
+package com.nathanahrens.pwsafe;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.pwsafe.lib.file.PwsFileStorage;
+
+/**
+ * <p>Process-wide cache of decrypted vaults, keyed by the canonical path of the vault file.</p>
+ * <p>Loading a vault stretches the passphrase and decrypts every record, which is expensive. The cache loads each
+ * vault once and hands the same {@link SafeWrapper} to every caller, which may look up credentials concurrently. A
+ * cached vault is reloaded when the modified date of the file changes, and is only handed out to callers presenting
+ * the passphrase it was opened with.</p>
+ * @author nahrens
+ *
+ */
+public class VaultCache {
+	private static final VaultCache INSTANCE = new VaultCache();
+
+	private final ConcurrentHashMap<String, CachedVault> vaults = new ConcurrentHashMap<String, CachedVault>();
+	private final ConcurrentHashMap<String, Object> loadLocks = new ConcurrentHashMap<String, Object>();
+
+	/**
+	 *
+	 * @return The cache shared by the whole process.
+	 */
+	public static VaultCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Get the vault at the file path, loading it if it is not cached yet, has been modified since it was cached or
+	 * was cached with a different passphrase.
+	 * @param file       Path of the vault file (.psafe3).
+	 * @param passphrase Passphrase of the vault.
+	 * @return SafeWrapper The loaded vault. If the vault could not be loaded, the returned wrapper is not cached.
+	 */
+	public SafeWrapper get(String file, StringBuilder passphrase) {
+		if (file == null || passphrase == null) {
+			return new SafeWrapper(file, passphrase);
+		}
+		String key;
+		try {
+			key = new File(file).getCanonicalPath();
+		} catch (IOException e) {
+			key = new File(file).getAbsolutePath();
+		}
+		byte[] digest = digest(passphrase);
+
+		// Fast path, without taking the load lock
+		CachedVault cached = this.vaults.get(key);
+		if (cached != null && cached.isCurrent(key, digest)) {
+			return cached.safe;
+		}
+
+		// Only one thread loads a given vault, the others wait for it and use the result
+		synchronized (this.loadLocks.computeIfAbsent(key, k -> new Object())) {
+			cached = this.vaults.get(key);
+			if (cached != null && cached.isCurrent(key, digest)) {
+				return cached.safe;
+			}
+			// Read the date before loading, so a change during the load causes a reload next time
+			Date modified = getModifiedDate(key);
+			SafeWrapper safe = new SafeWrapper(key, passphrase);
+			if (safe.isLoaded()) {
+				this.vaults.put(key, new CachedVault(safe, modified, digest));
+			} else {
+				this.vaults.remove(key);
+			}
+			return safe;
+		}
+	}
+
+	/**
+	 * Remove all vaults from the cache.
+	 */
+	public void clear() {
+		this.vaults.clear();
+	}
+
+	private static Date getModifiedDate(String file) {
+		try {
+			return new PwsFileStorage(file).getModifiedDate();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static byte[] digest(StringBuilder passphrase) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(passphrase.toString().getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class CachedVault {
+		private final SafeWrapper safe;
+		private final Date modified;
+		private final byte[] passphraseDigest;
+
+		private CachedVault(SafeWrapper safe, Date modified, byte[] passphraseDigest) {
+			this.safe = safe;
+			this.modified = modified;
+			this.passphraseDigest = passphraseDigest;
+		}
+
+		private boolean isCurrent(String file, byte[] digest) {
+			return MessageDigest.isEqual(this.passphraseDigest, digest)
+					&& this.modified != null && Objects.equals(this.modified, getModifiedDate(file));
+		}
+	}
+}
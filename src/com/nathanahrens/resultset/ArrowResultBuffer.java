@@ -0,0 +1,250 @@
+package com.nathanahrens.resultset;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.arrow.adapter.jdbc.ArrowVectorIterator;
+import org.apache.arrow.adapter.jdbc.JdbcFieldInfo;
+import org.apache.arrow.adapter.jdbc.JdbcToArrow;
+import org.apache.arrow.adapter.jdbc.JdbcToArrowConfig;
+import org.apache.arrow.adapter.jdbc.JdbcToArrowConfigBuilder;
+import org.apache.arrow.adapter.jdbc.JdbcToArrowUtils;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorLoader;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.VectorUnloader;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.ArrowWriter;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+/**
+ * <p>Holds the rows of a {@link ResultSet} in off-heap Apache Arrow vectors, so they can be read any number of times
+ * after the query's statement and connection are released.</p>
+ * <p>Each call to {@link #newResultSet()} returns an independent forward-only {@link ResultSet} over the buffered rows,
+ * which can be handed to any exporter. The buffer can also be written as an Arrow IPC file or stream, which other
+ * processes (i.e., pyarrow or pandas) can map without converting the data.</p>
+ * <p>Column types are taken from the {@link ResultSetMetaData}. Columns whose type has no Arrow equivalent (including
+ * decimals without a valid precision and scale, such as an Oracle NUMBER without precision) are kept as text. Times and
+ * timestamps are kept to the millisecond.</p>
+ * @author nahrens
+ *
+ */
+public class ArrowResultBuffer implements AutoCloseable {
+	/**
+	 * Number of rows per record batch.
+	 */
+	public static final int BATCH_SIZE = 4096;
+	private static final int MAX_DECIMAL_PRECISION = 38;
+	private static final String TIME_ZONE = "UTC";
+	private static final BufferAllocator ROOT_ALLOCATOR = new RootAllocator();
+
+	private final BufferAllocator allocator;
+	private final ResultSetMetaDataSnapshot metaData;
+	private final Schema schema;
+	private final List<VectorSchemaRoot> batches;
+	private final long rowCount;
+
+	private ArrowResultBuffer(BufferAllocator allocator, ResultSetMetaDataSnapshot metaData, Schema schema,
+			List<VectorSchemaRoot> batches) {
+		this.allocator = allocator;
+		this.metaData = metaData;
+		this.schema = schema;
+		this.batches = batches;
+		long rows = 0;
+		for (VectorSchemaRoot batch : batches) {
+			rows += batch.getRowCount();
+		}
+		this.rowCount = rows;
+	}
+
+	/**
+	 * Read all rows of a {@link ResultSet} into a new buffer, then closes the ResultSet.
+	 * @param rs Result set to buffer.
+	 * @return ArrowResultBuffer Buffer with the rows. Must be closed to release its memory.
+	 * @throws IOException  When unable to convert a value.
+	 * @throws SQLException When unable to parse ResultSet or close ResultSet.
+	 */
+	public static ArrowResultBuffer load(ResultSet rs) throws IOException, SQLException {
+		BufferAllocator allocator = ROOT_ALLOCATOR.newChildAllocator("ArrowResultBuffer", 0, Long.MAX_VALUE);
+		List<VectorSchemaRoot> batches = new ArrayList<>();
+		try {
+			JdbcToArrowConfig config = createConfig(allocator, false);
+			ResultSetMetaDataSnapshot metaData = ResultSetMetaDataSnapshot.of(rs.getMetaData());
+			Schema schema = JdbcToArrowUtils.jdbcToArrowSchema(metaData, config);
+			try (ArrowVectorIterator iterator = JdbcToArrow.sqlToArrowVectorIterator(rs, config)) {
+				while (iterator.hasNext()) {
+					VectorSchemaRoot batch = iterator.next();
+					if (batch.getRowCount() > 0) {
+						batches.add(batch);
+					} else {
+						batch.close();
+					}
+				}
+			}
+			rs.close();
+			return new ArrowResultBuffer(allocator, metaData, schema, batches);
+		} catch (IOException | SQLException | RuntimeException e) {
+			batches.forEach(VectorSchemaRoot::close);
+			allocator.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Write a {@link ResultSet} to an Arrow IPC file or stream without buffering it, one record batch at a time, then
+	 * closes the ResultSet.
+	 * @param rs       Result set to save.
+	 * @param filePath File path to save to. An existing file is overwritten.
+	 * @param stream   If true, writes the IPC stream format (.arrows), else the IPC file format (.arrow).
+	 * @return long Number of rows written.
+	 * @throws IOException  When unable to write the file.
+	 * @throws SQLException When unable to parse ResultSet or close ResultSet.
+	 */
+	public static long saveArrow(ResultSet rs, String filePath, boolean stream) throws IOException, SQLException {
+		try (BufferAllocator allocator = ROOT_ALLOCATOR.newChildAllocator("saveArrow", 0, Long.MAX_VALUE)) {
+			JdbcToArrowConfig config = createConfig(allocator, true);
+			Schema schema = JdbcToArrowUtils.jdbcToArrowSchema(rs.getMetaData(), config);
+			long rows;
+			try (ArrowVectorIterator iterator = JdbcToArrow.sqlToArrowVectorIterator(rs, config)) {
+				rows = write(schema, iterator, filePath, stream, allocator);
+			}
+			rs.close();
+			return rows;
+		}
+	}
+
+	/**
+	 * Write the buffered rows to an Arrow IPC file or stream. The record batches are written as they are, without
+	 * copying them.
+	 * @param filePath File path to save to. An existing file is overwritten.
+	 * @param stream   If true, writes the IPC stream format (.arrows), else the IPC file format (.arrow).
+	 * @return long Number of rows written.
+	 * @throws IOException When unable to write the file.
+	 */
+	public long saveArrow(String filePath, boolean stream) throws IOException {
+		return write(this.schema, this.batches.iterator(), filePath, stream, this.allocator);
+	}
+
+	/**
+	 *
+	 * @return ResultSet New forward-only cursor positioned before the first buffered row.
+	 */
+	public ResultSet newResultSet() {
+		return new ArrowResultSet(this.metaData, Collections.unmodifiableList(this.batches));
+	}
+
+	public ResultSetMetaData getMetaData() {
+		return this.metaData;
+	}
+
+	public long getRowCount() {
+		return this.rowCount;
+	}
+
+	/**
+	 *
+	 * @return long Bytes of off-heap memory held by the buffer.
+	 */
+	public long getAllocatedMemory() {
+		return this.allocator.getAllocatedMemory();
+	}
+
+	/**
+	 * Release the memory of the buffer. Cursors from {@link #newResultSet()} can no longer be used.
+	 */
+	@Override
+	public void close() {
+		this.batches.forEach(VectorSchemaRoot::close);
+		this.batches.clear();
+		this.allocator.close();
+	}
+
+	private static JdbcToArrowConfig createConfig(BufferAllocator allocator, boolean reuseBatch) {
+		return new JdbcToArrowConfigBuilder(allocator, JdbcToArrowUtils.getUtcCalendar())
+				.setReuseVectorSchemaRoot(reuseBatch).setTargetBatchSize(BATCH_SIZE)
+				.setBigDecimalRoundingMode(RoundingMode.HALF_UP).setJdbcToArrowTypeConverter(
+						ArrowResultBuffer::getArrowType)
+				.build();
+	}
+
+	/**
+	 * Map a column to the Arrow type the adapter would pick, or to text where it has none.
+	 */
+	private static ArrowType getArrowType(JdbcFieldInfo field) {
+		switch (field.getJdbcType()) {
+		case Types.BIT:
+		case Types.BOOLEAN:
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+		case Types.BIGINT:
+		case Types.REAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+		case Types.DATE:
+		case Types.TIME:
+		case Types.TIMESTAMP:
+		case Types.BINARY:
+		case Types.VARBINARY:
+		case Types.LONGVARBINARY:
+		case Types.BLOB:
+			return JdbcToArrowUtils.getArrowTypeFromJdbcType(field, JdbcToArrowUtils.getUtcCalendar());
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			int precision = field.getPrecision();
+			int scale = field.getScale();
+			if (precision > 0 && precision <= MAX_DECIMAL_PRECISION && scale >= 0 && scale <= precision) {
+				return new ArrowType.Decimal(precision, scale, 128);
+			}
+			return ArrowType.Utf8.INSTANCE;
+		case Types.TIMESTAMP_WITH_TIMEZONE:
+			// Kept as the instant, read back as an OffsetDateTime in UTC
+			return new ArrowType.Timestamp(TimeUnit.MILLISECOND, TIME_ZONE);
+		default:
+			return ArrowType.Utf8.INSTANCE;
+		}
+	}
+
+	private static long write(Schema schema, Iterator<VectorSchemaRoot> batches, String filePath, boolean stream,
+			BufferAllocator allocator) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+				VectorSchemaRoot root = VectorSchemaRoot.create(schema, allocator);
+				ArrowWriter writer = stream ? new ArrowStreamWriter(root, null, channel)
+						: new ArrowFileWriter(root, null, channel)) {
+			VectorLoader loader = new VectorLoader(root);
+			long rows = 0;
+			writer.start();
+			while (batches.hasNext()) {
+				VectorSchemaRoot batch = batches.next();
+				if (batch.getRowCount() == 0) {
+					continue;
+				}
+				// Share the buffers of the batch with the writer's root instead of copying them
+				try (ArrowRecordBatch recordBatch = new VectorUnloader(batch).getRecordBatch()) {
+					loader.load(recordBatch);
+				}
+				writer.writeBatch();
+				rows += batch.getRowCount();
+			}
+			writer.end();
+			return rows;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.nathanahrens.resultset;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.TimeMilliVector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+/**
+ * <p>Forward-only cursor over the record batches of an {@link ArrowResultBuffer}. Values are returned as the types a
+ * JDBC driver would return for the column.</p>
+ * @author nahrens
+ *
+ */
+class ArrowResultSet extends ForwardOnlyResultSet {
+	/**
+	 * Reads the value at an index of a vector of the current batch.
+	 */
+	private interface ColumnReader {
+		Object read(int index);
+	}
+
+	private final ResultSetMetaDataSnapshot metaData;
+	private final Iterator<VectorSchemaRoot> batches;
+	private final ColumnReader[] readers;
+	private int batchRows;
+	private int index = -1;
+
+	ArrowResultSet(ResultSetMetaDataSnapshot metaData, List<VectorSchemaRoot> batches) {
+		this.metaData = metaData;
+		this.batches = batches.iterator();
+		this.readers = new ColumnReader[metaData.getColumnCount() + 1];
+	}
+
+	@Override
+	protected boolean advance() throws SQLException {
+		this.index++;
+		while (this.index >= this.batchRows) {
+			if (!this.batches.hasNext()) {
+				return false;
+			}
+			VectorSchemaRoot batch = this.batches.next();
+			for (int i = 1; i < this.readers.length; i++) {
+				this.readers[i] = createReader(batch.getVector(i - 1), this.metaData.getColumnType(i));
+			}
+			this.batchRows = batch.getRowCount();
+			this.index = 0;
+		}
+		return true;
+	}
+
+	@Override
+	protected Object getValue(int column) {
+		return this.readers[column].read(this.index);
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() {
+		return this.metaData;
+	}
+
+	private static ColumnReader createReader(FieldVector vector, int type) {
+		if (vector instanceof VarCharVector) {
+			VarCharVector text = (VarCharVector) vector;
+			return i -> text.isNull(i) ? null : new String(text.get(i), StandardCharsets.UTF_8);
+		}
+		if (vector instanceof DateDayVector) {
+			DateDayVector date = (DateDayVector) vector;
+			return i -> date.isNull(i) ? null : Date.valueOf(LocalDate.ofEpochDay(date.get(i)));
+		}
+		if (vector instanceof TimeMilliVector) {
+			TimeMilliVector time = (TimeMilliVector) vector;
+			return i -> time.isNull(i) ? null : Time.valueOf(LocalTime.ofNanoOfDay(time.get(i) * 1000000L));
+		}
+		if (vector instanceof TimeStampVector) {
+			// Timestamps are stored in milliseconds, as the local date and time in UTC
+			TimeStampVector timestamp = (TimeStampVector) vector;
+			if (type == Types.TIMESTAMP_WITH_TIMEZONE) {
+				return i -> timestamp.isNull(i) ? null
+						: OffsetDateTime.ofInstant(Instant.ofEpochMilli(timestamp.get(i)), ZoneOffset.UTC);
+			}
+			return i -> {
+				if (timestamp.isNull(i)) {
+					return null;
+				}
+				long millis = timestamp.get(i);
+				return Timestamp.valueOf(LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+						Math.floorMod(millis, 1000) * 1000000, ZoneOffset.UTC));
+			};
+		}
+		if (vector instanceof BaseFixedWidthVector || vector instanceof BaseVariableWidthVector) {
+			// Boolean, numbers, decimals and binary
+			return vector::getObject;
+		}
+		throw new IllegalArgumentException("Unsupported Arrow vector: " + vector.getField());
+	}
+}
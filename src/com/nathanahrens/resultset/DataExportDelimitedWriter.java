@@ -0,0 +1,300 @@
+package com.nathanahrens.resultset;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>Writes a {@link ResultSet} as delimited text (CSV, TSV, ...), encoded as UTF-8.</p>
+ * <p>Rows are formatted into a reusable char buffer that is encoded and written to a {@link FileChannel} each time it
+ * fills up, so memory usage does not depend on the size of the {@link ResultSet}. Fields containing the delimiter,
+ * quotes or line breaks are quoted as described in RFC 4180. Numbers are written without grouping or exponents, and
+ * dates and times in ISO 8601 format (i.e., 2024-01-31 13:45:00).</p>
+ * @author nahrens
+ *
+ */
+public class DataExportDelimitedWriter {
+	public static final char CSV = ',';
+	public static final char TSV = '\t';
+
+	private static final String LINE_SEPARATOR = "\r\n";
+	private static final char QUOTE = '"';
+	private static final int CHAR_BUFFER_SIZE = 64 * 1024;
+	private static final int BYTE_BUFFER_SIZE = 256 * 1024;
+	private static final DateTimeFormatter TIMESTAMP_FORMAT = new DateTimeFormatterBuilder()
+			.append(DateTimeFormatter.ISO_LOCAL_DATE).appendLiteral(' ').append(DateTimeFormatter.ISO_LOCAL_TIME)
+			.toFormatter();
+
+	private final char delimiter;
+	private final boolean gzip;
+	private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+	private final ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private final StringBuilder scratch = new StringBuilder();
+	private WritableByteChannel channel;
+
+	/**
+	 *
+	 * @param delimiter Character to separate fields with, i.e. {@link #CSV} or {@link #TSV}.
+	 * @param gzip      If true, the file is compressed with gzip.
+	 */
+	public DataExportDelimitedWriter(char delimiter, boolean gzip) {
+		if (delimiter == QUOTE || delimiter == '\r' || delimiter == '\n') {
+			throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+		}
+		this.delimiter = delimiter;
+		this.gzip = gzip;
+	}
+
+	/**
+	 * Create a writer for the format given by the extension of the file path: .csv or .tsv, optionally followed by
+	 * .gz.
+	 * @param filePath Path of the file to write.
+	 * @return DataExportDelimitedWriter Writer for the file, or null if it is not a delimited text file.
+	 */
+	public static DataExportDelimitedWriter forFile(String filePath) {
+		String name = filePath.toLowerCase();
+		boolean gzip = name.endsWith(".gz");
+		if (gzip) {
+			name = name.substring(0, name.length() - 3);
+		}
+		if (name.endsWith(".csv")) {
+			return new DataExportDelimitedWriter(CSV, gzip);
+		}
+		if (name.endsWith(".tsv") || name.endsWith(".tab")) {
+			return new DataExportDelimitedWriter(TSV, gzip);
+		}
+		return null;
+	}
+
+	/**
+	 * Saves a {@link ResultSet} to a delimited text file, with a header row of column names, then closes the
+	 * ResultSet.
+	 * @param rs       Result set to save.
+	 * @param filePath File path to save to. An existing file is overwritten.
+	 * @return long Number of data rows written.
+	 * @throws IOException  When unable to write the file.
+	 * @throws SQLException When unable to parse ResultSet or close ResultSet.
+	 */
+	public long saveDelimited(ResultSet rs, String filePath) throws IOException, SQLException {
+		FileChannel file = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try (WritableByteChannel out = this.gzip
+				? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(file), BYTE_BUFFER_SIZE))
+				: file) {
+			this.channel = out;
+			long rows = this.write(rs);
+			this.flush(true);
+			rs.close();
+			return rows;
+		} finally {
+			this.channel = null;
+			this.chars.clear();
+			this.bytes.clear();
+			this.encoder.reset();
+			file.close();
+		}
+	}
+
+	private long write(ResultSet rs) throws IOException, SQLException {
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int colCount = rsmd.getColumnCount();
+		int[] types = new int[colCount + 1];
+
+		// write header row
+		for (int i = 1; i <= colCount; i++) {
+			types[i] = rsmd.getColumnType(i);
+			if (i > 1) {
+				this.append(this.delimiter);
+			}
+			this.appendField(rsmd.getColumnName(i));
+		}
+		this.append(LINE_SEPARATOR);
+
+		// write data rows
+		long rows = 0;
+		while (rs.next()) {
+			for (int i = 1; i <= colCount; i++) {
+				if (i > 1) {
+					this.append(this.delimiter);
+				}
+				this.appendValue(rs, i, types[i]);
+			}
+			this.append(LINE_SEPARATOR);
+			rows++;
+		}
+		return rows;
+	}
+
+	/**
+	 * Append the value of a column using the getter matching its type, so numbers and dates are not formatted by the
+	 * driver. Null values are written as empty fields.
+	 */
+	private void appendValue(ResultSet rs, int column, int type) throws IOException, SQLException {
+		StringBuilder value = this.scratch;
+		value.setLength(0);
+		switch (type) {
+		case Types.BIT:
+		case Types.BOOLEAN:
+			boolean bool = rs.getBoolean(column);
+			if (!rs.wasNull()) {
+				value.append(bool);
+			}
+			break;
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+		case Types.BIGINT:
+			long number = rs.getLong(column);
+			if (!rs.wasNull()) {
+				value.append(number);
+			}
+			break;
+		case Types.FLOAT:
+		case Types.REAL:
+		case Types.DOUBLE:
+			double real = rs.getDouble(column);
+			if (rs.wasNull()) {
+				break;
+			}
+			double magnitude = Math.abs(real);
+			if (Double.isFinite(real) && magnitude != 0 && (magnitude >= 1e7 || magnitude < 1e-3)) {
+				// Double.toString switches to scientific notation outside of this range
+				value.append(BigDecimal.valueOf(real).toPlainString());
+			} else {
+				value.append(real);
+			}
+			break;
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			BigDecimal decimal = rs.getBigDecimal(column);
+			if (decimal != null) {
+				value.append(decimal.toPlainString());
+			}
+			break;
+		case Types.DATE:
+			Date date = rs.getDate(column);
+			if (date != null) {
+				DateTimeFormatter.ISO_LOCAL_DATE.formatTo(date.toLocalDate(), value);
+			}
+			break;
+		case Types.TIME:
+			Time time = rs.getTime(column);
+			if (time != null) {
+				DateTimeFormatter.ISO_LOCAL_TIME.formatTo(time.toLocalTime(), value);
+			}
+			break;
+		case Types.TIMESTAMP:
+			Timestamp timestamp = rs.getTimestamp(column);
+			if (timestamp != null) {
+				TIMESTAMP_FORMAT.formatTo(timestamp.toLocalDateTime(), value);
+			}
+			break;
+		default:
+			String text = rs.getString(column);
+			if (text != null) {
+				this.appendField(text);
+			}
+			return;
+		}
+		this.appendField(value);
+	}
+
+	/**
+	 * Append a field, quoting it if it contains the delimiter, a quote or a line break.
+	 */
+	private void appendField(CharSequence field) throws IOException {
+		int length = field.length();
+		boolean quote = false;
+		for (int i = 0; i < length && !quote; i++) {
+			char c = field.charAt(i);
+			quote = c == this.delimiter || c == QUOTE || c == '\r' || c == '\n';
+		}
+		if (!quote) {
+			this.append(field);
+			return;
+		}
+		this.append(QUOTE);
+		for (int i = 0; i < length; i++) {
+			char c = field.charAt(i);
+			if (c == QUOTE) {
+				this.append(QUOTE);
+			}
+			this.append(c);
+		}
+		this.append(QUOTE);
+	}
+
+	private void append(CharSequence text) throws IOException {
+		int length = text.length();
+		for (int start = 0; start < length;) {
+			if (!this.chars.hasRemaining()) {
+				this.flush(false);
+			}
+			int end = Math.min(length, start + this.chars.remaining());
+			this.chars.append(text, start, end);
+			start = end;
+		}
+	}
+
+	private void append(char c) throws IOException {
+		if (!this.chars.hasRemaining()) {
+			this.flush(false);
+		}
+		this.chars.put(c);
+	}
+
+	/**
+	 * Encode the buffered chars and write them to the channel. Unless this is the end of the output, a high surrogate
+	 * at the end of the buffer is kept back until the rest of the character has been appended.
+	 */
+	private void flush(boolean endOfOutput) throws IOException {
+		this.chars.flip();
+		for (;;) {
+			CoderResult result = this.encoder.encode(this.chars, this.bytes, endOfOutput);
+			if (result.isError()) {
+				result.throwException();
+			}
+			if (result.isUnderflow()) {
+				break;
+			}
+			this.writeBytes();
+		}
+		if (endOfOutput) {
+			while (this.encoder.flush(this.bytes).isOverflow()) {
+				this.writeBytes();
+			}
+		}
+		this.writeBytes();
+		this.chars.compact();
+	}
+
+	private void writeBytes() throws IOException {
+		this.bytes.flip();
+		while (this.bytes.hasRemaining()) {
+			this.channel.write(this.bytes);
+		}
+		this.bytes.clear();
+	}
+}
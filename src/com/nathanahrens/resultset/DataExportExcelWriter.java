@@ -4,64 +4,261 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Types;
-import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.WorkbookUtil;
-import org.apache.poi.xssf.usermodel.XSSFCell;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFCreationHelper;
-import org.apache.poi.xssf.usermodel.XSSFRow;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 public class DataExportExcelWriter {
-	private HashMap<String, XSSFCellStyle> formatCache = null;
-	private XSSFWorkbook workbook = new XSSFWorkbook();
+	/**
+	 * Default number of rows kept in memory when streaming. Rows outside of this
+	 * window are flushed to a temporary file and can no longer be accessed.
+	 */
+	public static final int DEFAULT_ROW_ACCESS_WINDOW = 100;
+
+	/**
+	 * Maximum number of data rows per sheet: the Excel row limit, less the header
+	 * row.
+	 */
+	public static final int MAX_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+
+	private HashMap<String, CellStyle> formatCache = null;
+	private final int rowAccessWindowSize;
+	private Workbook workbook;
+	private int maxRowsPerSheet = MAX_ROWS_PER_SHEET;
+	private long maxRowsPerFile;
+	private final List<String> filesWritten = new ArrayList<String>();
+	private ExportMetrics metrics;
+
+	/**
+	 * Creates a writer that builds the whole workbook in memory before it is
+	 * written.
+	 */
+	public DataExportExcelWriter() {
+		this(0);
+	}
+
+	/**
+	 * Creates a writer that streams rows to temporary storage as the
+	 * {@link ResultSet} is iterated, so that heap usage does not grow with the
+	 * number of rows.
+	 * 
+	 * @param rowAccessWindowSize Number of rows to keep in memory before they are
+	 *                            flushed. If less than 1, the whole workbook is
+	 *                            kept in memory.
+	 */
+	public DataExportExcelWriter(int rowAccessWindowSize) {
+		this.rowAccessWindowSize = rowAccessWindowSize;
+		this.workbook = createWorkbook();
+	}
+
+	private Workbook createWorkbook() {
+		if (this.rowAccessWindowSize < 1) {
+			return new XSSFWorkbook();
+		}
+		SXSSFWorkbook streamingWorkbook = new SXSSFWorkbook(this.rowAccessWindowSize);
+		streamingWorkbook.setCompressTempFiles(true);
+		return streamingWorkbook;
+	}
+
+	/**
+	 * @return True if rows are flushed to temporary storage as they are written.
+	 */
+	public boolean isStreaming() {
+		return this.rowAccessWindowSize >= 1;
+	}
+
+	/**
+	 * Set the number of data rows written to a sheet before continuing on a new
+	 * sheet ("Sheet2", "Sheet3", ...) with the header row repeated.
+	 * 
+	 * @param maxRowsPerSheet Number of data rows per sheet, at most (and by
+	 *                        default) {@link #MAX_ROWS_PER_SHEET}.
+	 */
+	public void setMaxRowsPerSheet(int maxRowsPerSheet) {
+		this.maxRowsPerSheet = Math.max(1, Math.min(MAX_ROWS_PER_SHEET, maxRowsPerSheet));
+	}
+
+	/**
+	 * Set the number of data rows written to a file before continuing in a new
+	 * file. The first file is written to the given file path, the following ones
+	 * next to it with a number appended to the name (i.e., results_2.xlsx). Each
+	 * file is written in the background while the rows of the next file are read.
+	 * 
+	 * @param maxRowsPerFile Number of data rows per file, or 0 (the default) to
+	 *                       write all rows to a single file.
+	 */
+	public void setMaxRowsPerFile(long maxRowsPerFile) {
+		this.maxRowsPerFile = Math.max(0, maxRowsPerFile);
+	}
+
+	/**
+	 * Time creating cells and writing workbooks in the metrics of a run. Creating cells includes reading the values
+	 * from the {@link ResultSet}, which is cheap once a {@link ProgressResultSet} with the same metrics has converted
+	 * them.
+	 * 
+	 * @param metrics Metrics to add to, or null for none.
+	 */
+	public void setMetrics(ExportMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return Paths of the files written by the last call to
+	 *         {@link #saveExcel(ResultSet, String, boolean, String)}.
+	 */
+	public List<String> getFilesWritten() {
+		return Collections.unmodifiableList(this.filesWritten);
+	}
 
 	/*
 	 * note POI which we use for the excel export has a limit of 4000 styles
 	 * therefore formatCache has been introduced to re-use styles across cells.
 	 */
-	private void makeTemporalCell(XSSFCell retVal, Date cellObj, String format) {
-		XSSFCreationHelper creationHelper = workbook.getCreationHelper();
-		XSSFCellStyle cellStyle;
+	private CellStyle getTemporalStyle(String format) {
 		if (formatCache == null) {
+			formatCache = new HashMap<String, CellStyle>();
+		}
+		CellStyle cellStyle = formatCache.get(format);
+		if (cellStyle == null) {
+			CreationHelper creationHelper = workbook.getCreationHelper();
 			cellStyle = workbook.createCellStyle();
 			cellStyle.setDataFormat(creationHelper.createDataFormat().getFormat(format));
-			formatCache = new HashMap<String, XSSFCellStyle>();
 			formatCache.put(format, cellStyle);
-		} else {
-			cellStyle = formatCache.get(format);
-			if (cellStyle == null) {
-				cellStyle = workbook.createCellStyle();
-				cellStyle.setDataFormat(creationHelper.createDataFormat().getFormat(format));
-				formatCache.put(format, cellStyle);
-			}
-		}
-		retVal.setCellStyle(cellStyle);
-		if (null != cellObj) {
-			Calendar calendar = Calendar.getInstance();
-			calendar.setTime((Date) cellObj);
-			retVal.setCellValue(calendar);
 		}
+		return cellStyle;
 	}
 
-	private String getDataXLSAsString(Object cellObj) {
-		if (cellObj == null) {
-			return "";
-		} else {
-			return cellObj.toString().trim();
+	/**
+	 * Writes the value of one column of the current row of a {@link ResultSet}
+	 * to a cell.
+	 */
+	private interface ColumnWriter {
+		void write(ResultSet rs, int column, Cell cell) throws SQLException;
+	}
+
+	/**
+	 * Pick the writer of each column once, from its type, so that writing a
+	 * cell needs no metadata lookups and reads the value with the matching
+	 * primitive getter. Null values are written as an empty string.
+	 */
+	private ColumnWriter[] createWriterPlan(ResultSetMetaData rsmd) throws SQLException {
+		int colCount = rsmd.getColumnCount();
+		ColumnWriter[] plan = new ColumnWriter[colCount];
+		for (int i = 0; i < colCount; i++) {
+			switch (rsmd.getColumnType(i + 1)) {
+			case Types.BIT:
+			case Types.BOOLEAN:
+				plan[i] = (rs, column, cell) -> {
+					boolean value = rs.getBoolean(column);
+					if (rs.wasNull()) {
+						cell.setCellValue("");
+					} else {
+						cell.setCellValue(value);
+					}
+				};
+				break;
+			case Types.INTEGER:
+			case Types.SMALLINT:
+			case Types.TINYINT:
+				plan[i] = (rs, column, cell) -> {
+					int value = rs.getInt(column);
+					if (rs.wasNull()) {
+						cell.setCellValue("");
+					} else {
+						cell.setCellValue(value);
+					}
+				};
+				break;
+			case Types.BIGINT:
+				plan[i] = (rs, column, cell) -> {
+					long value = rs.getLong(column);
+					if (rs.wasNull()) {
+						cell.setCellValue("");
+					} else {
+						cell.setCellValue(value);
+					}
+				};
+				break;
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+			case Types.REAL:
+				plan[i] = (rs, column, cell) -> {
+					double value = rs.getDouble(column);
+					if (rs.wasNull()) {
+						cell.setCellValue("");
+					} else {
+						cell.setCellValue(value);
+					}
+				};
+				break;
+			case Types.DATE:
+				plan[i] = temporalWriter(getTemporalStyle("m/d/yy"), ResultSet::getDate);
+				break;
+			case Types.TIMESTAMP:
+				plan[i] = temporalWriter(getTemporalStyle("m/d/yy h:mm"), ResultSet::getTimestamp);
+				break;
+			case Types.TIME:
+				plan[i] = temporalWriter(getTemporalStyle("h:mm"), ResultSet::getTime);
+				break;
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			default:
+				plan[i] = (rs, column, cell) -> {
+					String value = rs.getString(column);
+					cell.setCellValue(value == null ? "" : value.trim());
+				};
+			}
 		}
+		return plan;
+	}
+
+	private interface TemporalGetter {
+		Date get(ResultSet rs, int column) throws SQLException;
+	}
+
+	private static ColumnWriter temporalWriter(CellStyle cellStyle, TemporalGetter getter) {
+		return (rs, column, cell) -> {
+			Date value = getter.get(rs, column);
+			if (value == null) {
+				cell.setCellValue("");
+			} else {
+				cell.setCellStyle(cellStyle);
+				cell.setCellValue(value);
+			}
+		};
 	}
 
 	/**
-	 * Saves a {@link ResultSet} to an Excel file.
+	 * Saves a {@link ResultSet} to an Excel file. When the writer was created with
+	 * a row access window, rows are flushed to temporary storage as
+	 * {@link ResultSet#next()} advances and the temporary files are removed once
+	 * the workbook is written. Rows beyond the rows per sheet continue on a new
+	 * sheet, and rows beyond the rows per file (if set) in a new file.
 	 * 
 	 * @param rs       Result set to save Excel file from.
 	 * @param filePath File path to save Excel file to.
@@ -76,104 +273,191 @@ public class DataExportExcelWriter {
 	 * @see net.sourceforge.squirrel_sql.fw.gui.action.fileexport.DataExportExcelWriter
 	 */
 	public void saveExcel(ResultSet rs, String filePath, boolean saveSql, String sql) throws IOException, SQLException {
-
-		XSSFSheet spreadsheet = workbook.createSheet(WorkbookUtil.createSafeSheetName("Sheet1"));
-		XSSFRow row = spreadsheet.createRow(0);
-		XSSFCell cell;
-
+		this.filesWritten.clear();
+		ExecutorService fileWriter = null;
+		Future<?> pendingWrite = null;
+		ExportMetrics metrics = this.metrics;
+		// Workbook being filled, until it is handed to write()
+		Workbook unwritten = this.workbook;
 		try {
 			ResultSetMetaData rsmd = rs.getMetaData();
 			int colCount = rsmd.getColumnCount();
-
-			// write header row
-			for (int i = 1; i <= colCount; i++) {
-				cell = row.createCell(i - 1);
-				cell.setCellValue(rsmd.getColumnName(i));
-			}
+			String path = filePath;
+			ColumnWriter[] plan = createWriterPlan(rsmd);
+			Sheet spreadsheet = null;
+			int sheetCount = 0;
+			int sheetRows = 0;
+			long fileRows = 0;
 
 			// write data rows
-			for (int r = 1; rs.next(); r++) {
+			while (rs.next()) {
+				if (this.maxRowsPerFile > 0 && fileRows == this.maxRowsPerFile) {
+					// Write the full workbook in the background while the next one is filled
+					finishWorkbook(saveSql, sql);
+					if (fileWriter == null) {
+						fileWriter = Executors.newSingleThreadExecutor();
+					}
+					waitFor(pendingWrite);
+					Workbook full = this.workbook;
+					String fullPath = path;
+					pendingWrite = fileWriter.submit(() -> {
+						write(full, fullPath, metrics);
+						return null;
+					});
+					unwritten = null;
+					path = getSplitFilePath(filePath, this.filesWritten.size() + 2);
+					this.filesWritten.add(fullPath);
+					this.workbook = createWorkbook();
+					unwritten = this.workbook;
+					this.formatCache = null;
+					plan = createWriterPlan(rsmd);
+					spreadsheet = null;
+					sheetCount = 0;
+					fileRows = 0;
+				}
+				long cellsStart = metrics != null ? System.nanoTime() : 0;
+				if (spreadsheet == null || sheetRows == this.maxRowsPerSheet) {
+					spreadsheet = createDataSheet(rsmd, ++sheetCount);
+					sheetRows = 0;
+				}
 				// Create new row in sheet
-				XSSFRow dataRow = spreadsheet.createRow(r);
+				Row dataRow = spreadsheet.createRow(++sheetRows);
 
 				// Create each column in the row
 				for (int i = 0; i < colCount; i++) {
+					plan[i].write(rs, i + 1, dataRow.createCell(i));
+				}
+				if (metrics != null) {
+					metrics.add(ExportMetrics.Phase.WRITE_CELLS, System.nanoTime() - cellsStart);
+				}
+				fileRows++;
+			}
+			if (spreadsheet == null) {
+				createDataSheet(rsmd, 1);
+			}
+			finishWorkbook(saveSql, sql);
 
-					Object cellObj = rs.getObject(i + 1);
-					cell = dataRow.createCell(i);
+			waitFor(pendingWrite);
+			unwritten = null;
+			write(this.workbook, path, metrics);
+			this.filesWritten.add(path);
+			rs.close();
+		} finally {
+			if (fileWriter != null) {
+				fileWriter.shutdown();
+				// On failure, let the previous file finish before the caller sees the exception
+				awaitQuietly(pendingWrite);
+			}
+			if (unwritten != null) {
+				discard(unwritten);
+			}
+		}
+	}
 
-					// If cellObj is null, set to empty string "", otherwise methods will fail
-					// ("intValue()","shortValue()", etc...)
-					if (cellObj == null) {
-						cell.setCellValue(getDataXLSAsString(cellObj));
-						continue;
-					}
+	/**
+	 * Create a data sheet ("Sheet1", "Sheet2", ...) with the header row.
+	 */
+	private Sheet createDataSheet(ResultSetMetaData rsmd, int sheetNumber) throws SQLException {
+		Sheet spreadsheet = workbook.createSheet(WorkbookUtil.createSafeSheetName("Sheet" + sheetNumber));
+		Row row = spreadsheet.createRow(0);
+		int colCount = rsmd.getColumnCount();
 
-					// cellObj not null, set appropriate data type for Excel.
-					switch (rsmd.getColumnType(i + 1)) {
-					case Types.BIT:
-					case Types.BOOLEAN:
-						cell.setCellValue((Boolean) cellObj);
-						break;
-					case Types.INTEGER:
-						cell.setCellValue(((Number) cellObj).intValue());
-						break;
-					case Types.SMALLINT:
-					case Types.TINYINT:
-						cell.setCellValue(((Number) cellObj).shortValue());
-						break;
-					case Types.NUMERIC:
-					case Types.DECIMAL:
-					case Types.FLOAT:
-					case Types.DOUBLE:
-					case Types.REAL:
-						cell.setCellValue(((Number) cellObj).doubleValue());
-						break;
-					case Types.BIGINT:
-						cell.setCellValue(Long.parseLong(cellObj.toString()));
-						break;
-					case Types.DATE:
-						makeTemporalCell(cell, (Date) cellObj, "m/d/yy");
-						break;
-					case Types.TIMESTAMP:
-						makeTemporalCell(cell, (Date) cellObj, "m/d/yy h:mm");
-						break;
-					case Types.TIME:
-						makeTemporalCell(cell, (Date) cellObj, "h:mm");
-						break;
-					case Types.CHAR:
-					case Types.VARCHAR:
-					case Types.LONGVARCHAR:
-					default:
-						cell.setCellValue(getDataXLSAsString(cellObj));
-					}
-				}
-			}
+		// write header row
+		for (int i = 1; i <= colCount; i++) {
+			row.createCell(i - 1).setCellValue(rsmd.getColumnName(i));
+		}
+		return spreadsheet;
+	}
+
+	private void finishWorkbook(boolean saveSql, String sql) {
+		if (saveSql) {
+			Sheet spreadsheet = workbook.createSheet(WorkbookUtil.createSafeSheetName("SQL Statement"));
+			spreadsheet.createRow(0).createCell(0).setCellValue(sql);
+		}
+	}
 
-			if (saveSql) {
-				spreadsheet = workbook.createSheet(WorkbookUtil.createSafeSheetName("SQL Statement"));
-				row = spreadsheet.createRow(0);
-				cell = row.createCell(0);
-				cell.setCellValue(sql);
+	private static void write(Workbook workbook, String filePath, ExportMetrics metrics) throws IOException {
+		long startTime = System.nanoTime();
+		try {
+			FileOutputStream out = new FileOutputStream(new File(filePath));
+			try {
+				workbook.write(out);
+			} finally {
+				out.close();
+			}
+		} finally {
+			if (workbook instanceof SXSSFWorkbook) {
+				// Delete the temporary files backing the flushed rows
+				((SXSSFWorkbook) workbook).dispose();
+			}
+			workbook.close();
+			if (metrics != null) {
+				metrics.add(ExportMetrics.Phase.WRITE_FILE, System.nanoTime() - startTime);
 			}
-		} catch (SQLException e) {
-			throw e;
 		}
+	}
 
-		FileOutputStream out;
+	/**
+	 * Release a workbook that will not be written, deleting the temporary files of a streaming workbook.
+	 */
+	private static void discard(Workbook workbook) {
+		if (workbook instanceof SXSSFWorkbook) {
+			((SXSSFWorkbook) workbook).dispose();
+		}
 		try {
-			out = new FileOutputStream(new File(filePath));
-			workbook.write(out);
 			workbook.close();
-			out.close();
-			rs.close();
-		} catch (FileNotFoundException e) {
-			throw e;
 		} catch (IOException e) {
-			throw e;
-		} catch (SQLException e) {
-			throw e;
+			// Nothing was written to it
 		}
+	}
 
+	/**
+	 * Wait for a background write, ignoring its failure, which only matters if the export itself succeeded (and then
+	 * {@link #waitFor(Future)} already reported it).
+	 */
+	private static void awaitQuietly(Future<?> write) {
+		if (write == null) {
+			return;
+		}
+		try {
+			write.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// Already reported, or superseded by the failure of the export
+		}
+	}
+
+	private static void waitFor(Future<?> write) throws IOException {
+		if (write == null) {
+			return;
+		}
+		try {
+			write.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing Excel file");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * @return The path of a split file: the file path with the number appended to
+	 *         its name, before the extension.
+	 */
+	private static String getSplitFilePath(String filePath, int fileNumber) {
+		File file = new File(filePath);
+		String name = file.getName();
+		int extension = name.lastIndexOf('.');
+		if (extension > 0) {
+			name = name.substring(0, extension) + "_" + fileNumber + name.substring(extension);
+		} else {
+			name = name + "_" + fileNumber;
+		}
+		return new File(file.getParentFile(), name).getPath();
 	}
 }
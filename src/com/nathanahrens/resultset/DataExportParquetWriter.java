@@ -0,0 +1,491 @@
+package com.nathanahrens.resultset;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.conf.ParquetConfiguration;
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.TimeUnit;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types.MessageTypeBuilder;
+
+/**
+ * <p>Writes a {@link ResultSet} to a Parquet file.</p>
+ * <p>The schema is derived from the {@link ResultSetMetaData}: numbers, dates, times and timestamps keep their type
+ * (as Parquet logical types), character data is written as UTF-8 strings and binary data as byte arrays. Rows are
+ * buffered in memory per row group only, so the size of the {@link ResultSet} does not matter.</p>
+ * @author nahrens
+ *
+ */
+public class DataExportParquetWriter {
+	/**
+	 * Default size of a row group, in bytes.
+	 */
+	public static final long DEFAULT_ROW_GROUP_SIZE = ParquetWriter.DEFAULT_BLOCK_SIZE;
+	public static final CompressionCodecName DEFAULT_COMPRESSION = CompressionCodecName.SNAPPY;
+
+	/**
+	 * Largest decimal precision stored as a fixed length decimal; wider numbers are written as strings.
+	 */
+	private static final int MAX_DECIMAL_PRECISION = 38;
+	private static final int DECIMAL_BYTES = 16;
+
+	private final CompressionCodecName compression;
+	private long rowGroupSize = DEFAULT_ROW_GROUP_SIZE;
+
+	/**
+	 * Creates a writer compressing with {@link #DEFAULT_COMPRESSION}.
+	 */
+	public DataExportParquetWriter() {
+		this(DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 *
+	 * @param compression Compression codec of the data pages, i.e. SNAPPY or ZSTD.
+	 */
+	public DataExportParquetWriter(CompressionCodecName compression) {
+		this.compression = compression;
+	}
+
+	/**
+	 * Get a compression codec by name.
+	 * @param name Name of the codec (snappy, zstd, gzip, lz4_raw or uncompressed), case insensitive.
+	 * @return CompressionCodecName The codec, {@link #DEFAULT_COMPRESSION} if name is null.
+	 * @throws IllegalArgumentException If there is no codec of that name.
+	 */
+	public static CompressionCodecName getCompression(String name) {
+		if (name == null) {
+			return DEFAULT_COMPRESSION;
+		}
+		return CompressionCodecName.valueOf(name.trim().toUpperCase());
+	}
+
+	/**
+	 * Set the amount of data buffered before it is written out as a row group. Larger row groups compress and scan
+	 * better, smaller ones need less memory while writing.
+	 * @param rowGroupSize Size of a row group in bytes.
+	 */
+	public void setRowGroupSize(long rowGroupSize) {
+		this.rowGroupSize = rowGroupSize;
+	}
+
+	/**
+	 * Saves a {@link ResultSet} to a Parquet file, then closes the ResultSet.
+	 * @param rs       Result set to save.
+	 * @param filePath File path to save to. An existing file is overwritten.
+	 * @param sql      If not null, stored in the key/value metadata of the file as "sql".
+	 * @return long Number of rows written.
+	 * @throws IOException  When unable to write the file.
+	 * @throws SQLException When unable to parse ResultSet or close ResultSet.
+	 */
+	public long saveParquet(ResultSet rs, String filePath, String sql) throws IOException, SQLException {
+		ResultSetWriteSupport writeSupport = new ResultSetWriteSupport(rs.getMetaData());
+		Map<String, String> metaData = sql == null ? Collections.<String, String>emptyMap()
+				: Collections.singletonMap("sql", sql);
+		long rows = 0;
+		try (ParquetWriter<ResultSet> writer = new Builder(new LocalOutputFile(Paths.get(filePath)), writeSupport)
+				.withConf(new PlainParquetConfiguration())
+				.withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+				.withCompressionCodec(this.compression)
+				.withRowGroupSize(this.rowGroupSize)
+				.withExtraMetaData(metaData)
+				.build()) {
+			while (rs.next()) {
+				writer.write(rs);
+				rows++;
+			}
+		} catch (UncheckedSQLException e) {
+			throw e.getCause();
+		}
+		rs.close();
+		return rows;
+	}
+
+	/**
+	 * Writes the value of one column of the current row of a {@link ResultSet} to a field of a Parquet record. Null
+	 * values are skipped, which makes the (optional) field null.
+	 */
+	private interface ColumnWriter {
+		void write(ResultSet rs, int column, Field field) throws SQLException;
+	}
+
+	/**
+	 * A field of the Parquet schema. A field must only be started on the {@link RecordConsumer} when it has a value,
+	 * so each value is added together with the start and end of its field.
+	 */
+	private static class Field {
+		private final String name;
+		private final int index;
+		private RecordConsumer consumer;
+
+		private Field(String name, int index) {
+			this.name = name;
+			this.index = index;
+		}
+
+		private void addBoolean(boolean value) {
+			this.consumer.startField(this.name, this.index);
+			this.consumer.addBoolean(value);
+			this.consumer.endField(this.name, this.index);
+		}
+
+		private void addInteger(int value) {
+			this.consumer.startField(this.name, this.index);
+			this.consumer.addInteger(value);
+			this.consumer.endField(this.name, this.index);
+		}
+
+		private void addLong(long value) {
+			this.consumer.startField(this.name, this.index);
+			this.consumer.addLong(value);
+			this.consumer.endField(this.name, this.index);
+		}
+
+		private void addFloat(float value) {
+			this.consumer.startField(this.name, this.index);
+			this.consumer.addFloat(value);
+			this.consumer.endField(this.name, this.index);
+		}
+
+		private void addDouble(double value) {
+			this.consumer.startField(this.name, this.index);
+			this.consumer.addDouble(value);
+			this.consumer.endField(this.name, this.index);
+		}
+
+		private void addBinary(Binary value) {
+			this.consumer.startField(this.name, this.index);
+			this.consumer.addBinary(value);
+			this.consumer.endField(this.name, this.index);
+		}
+	}
+
+	/**
+	 * Maps the columns of a {@link ResultSet} to a Parquet schema, and writes the current row of the ResultSet as a
+	 * record of that schema.
+	 */
+	private static class ResultSetWriteSupport extends WriteSupport<ResultSet> {
+		private final MessageType schema;
+		private final Field[] fields;
+		private final ColumnWriter[] plan;
+		private RecordConsumer consumer;
+
+		private ResultSetWriteSupport(ResultSetMetaData rsmd) throws SQLException {
+			int colCount = rsmd.getColumnCount();
+			MessageTypeBuilder builder = org.apache.parquet.schema.Types.buildMessage();
+			String[] fieldNames = getFieldNames(rsmd);
+			this.fields = new Field[colCount];
+			this.plan = new ColumnWriter[colCount];
+			for (int i = 0; i < colCount; i++) {
+				this.fields[i] = new Field(fieldNames[i], i);
+				builder.addField(this.createField(rsmd, i + 1, fieldNames[i]));
+			}
+			this.schema = builder.named("ResultSet");
+		}
+
+		/**
+		 * Pick the Parquet type and the writer of a column from its JDBC type.
+		 */
+		private Type createField(ResultSetMetaData rsmd, int column, String name) throws SQLException {
+			int index = column - 1;
+			switch (rsmd.getColumnType(column)) {
+			case Types.BIT:
+			case Types.BOOLEAN:
+				this.plan[index] = (rs, i, field) -> {
+					boolean value = rs.getBoolean(i);
+					if (!rs.wasNull()) {
+						field.addBoolean(value);
+					}
+				};
+				return optional(PrimitiveTypeName.BOOLEAN).named(name);
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				this.plan[index] = (rs, i, field) -> {
+					int value = rs.getInt(i);
+					if (!rs.wasNull()) {
+						field.addInteger(value);
+					}
+				};
+				int bits = rsmd.getColumnType(column) == Types.TINYINT ? 8
+						: rsmd.getColumnType(column) == Types.SMALLINT ? 16 : 32;
+				return optional(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.intType(bits, true)).named(name);
+			case Types.BIGINT:
+				this.plan[index] = (rs, i, field) -> {
+					long value = rs.getLong(i);
+					if (!rs.wasNull()) {
+						field.addLong(value);
+					}
+				};
+				return optional(PrimitiveTypeName.INT64).as(LogicalTypeAnnotation.intType(64, true)).named(name);
+			case Types.REAL:
+				this.plan[index] = (rs, i, field) -> {
+					float value = rs.getFloat(i);
+					if (!rs.wasNull()) {
+						field.addFloat(value);
+					}
+				};
+				return optional(PrimitiveTypeName.FLOAT).named(name);
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				this.plan[index] = (rs, i, field) -> {
+					double value = rs.getDouble(i);
+					if (!rs.wasNull()) {
+						field.addDouble(value);
+					}
+				};
+				return optional(PrimitiveTypeName.DOUBLE).named(name);
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				return this.createDecimalField(rsmd.getPrecision(column), rsmd.getScale(column), index, name);
+			case Types.DATE:
+				this.plan[index] = (rs, i, field) -> {
+					Date value = rs.getDate(i);
+					if (value != null) {
+						field.addInteger((int) value.toLocalDate().toEpochDay());
+					}
+				};
+				return optional(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.dateType()).named(name);
+			case Types.TIME:
+				this.plan[index] = (rs, i, field) -> {
+					Time value = rs.getTime(i);
+					if (value != null) {
+						field.addInteger((int) (value.toLocalTime().toNanoOfDay() / 1000000));
+					}
+				};
+				return optional(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.timeType(false, TimeUnit.MILLIS))
+						.named(name);
+			case Types.TIMESTAMP:
+				// Local date and time, as the database stores it
+				this.plan[index] = (rs, i, field) -> {
+					Timestamp value = rs.getTimestamp(i);
+					if (value != null) {
+						long seconds = value.toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+						field.addLong(seconds * 1000000 + value.getNanos() / 1000);
+					}
+				};
+				return optional(PrimitiveTypeName.INT64)
+						.as(LogicalTypeAnnotation.timestampType(false, TimeUnit.MICROS)).named(name);
+			case Types.TIMESTAMP_WITH_TIMEZONE:
+				this.plan[index] = (rs, i, field) -> {
+					OffsetDateTime value = rs.getObject(i, OffsetDateTime.class);
+					if (value != null) {
+						field.addLong(value.toEpochSecond() * 1000000 + value.getNano() / 1000);
+					}
+				};
+				return optional(PrimitiveTypeName.INT64)
+						.as(LogicalTypeAnnotation.timestampType(true, TimeUnit.MICROS)).named(name);
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+			case Types.BLOB:
+				this.plan[index] = (rs, i, field) -> {
+					byte[] value = rs.getBytes(i);
+					if (value != null) {
+						field.addBinary(Binary.fromReusedByteArray(value));
+					}
+				};
+				return optional(PrimitiveTypeName.BINARY).named(name);
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			default:
+				this.plan[index] = (rs, i, field) -> {
+					String value = rs.getString(i);
+					if (value != null) {
+						field.addBinary(Binary.fromString(value));
+					}
+				};
+				return optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named(name);
+			}
+		}
+
+		/**
+		 * Decimals are stored in the smallest type that holds their precision. Numbers without a usable precision and
+		 * scale (such as an Oracle NUMBER without precision) are written as strings, so no digits are lost.
+		 */
+		private Type createDecimalField(int precision, int scale, int index, String name) {
+			if (precision <= 0 || precision > MAX_DECIMAL_PRECISION || scale < 0 || scale > precision) {
+				this.plan[index] = (rs, i, field) -> {
+					BigDecimal value = rs.getBigDecimal(i);
+					if (value != null) {
+						field.addBinary(Binary.fromString(value.toPlainString()));
+					}
+				};
+				return optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named(name);
+			}
+			LogicalTypeAnnotation decimalType = LogicalTypeAnnotation.decimalType(scale, precision);
+			if (precision <= 9) {
+				this.plan[index] = (rs, i, field) -> {
+					BigDecimal value = rs.getBigDecimal(i);
+					if (value != null) {
+						field.addInteger(value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().intValue());
+					}
+				};
+				return optional(PrimitiveTypeName.INT32).as(decimalType).named(name);
+			}
+			if (precision <= 18) {
+				this.plan[index] = (rs, i, field) -> {
+					BigDecimal value = rs.getBigDecimal(i);
+					if (value != null) {
+						field.addLong(value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValue());
+					}
+				};
+				return optional(PrimitiveTypeName.INT64).as(decimalType).named(name);
+			}
+			this.plan[index] = (rs, i, field) -> {
+				BigDecimal value = rs.getBigDecimal(i);
+				if (value != null) {
+					field.addBinary(Binary.fromConstantByteArray(
+							toFixedBytes(value.setScale(scale, RoundingMode.HALF_UP).unscaledValue())));
+				}
+			};
+			return optional(PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY).length(DECIMAL_BYTES).as(decimalType)
+					.named(name);
+		}
+
+		private static org.apache.parquet.schema.Types.PrimitiveBuilder<PrimitiveType> optional(PrimitiveTypeName type) {
+			return org.apache.parquet.schema.Types.optional(type);
+		}
+
+		/**
+		 * Sign extend the two's complement bytes of an unscaled decimal to the fixed length.
+		 */
+		private static byte[] toFixedBytes(BigInteger unscaled) {
+			byte[] bytes = unscaled.toByteArray();
+			byte[] fixed = new byte[DECIMAL_BYTES];
+			byte sign = (byte) (unscaled.signum() < 0 ? -1 : 0);
+			int padding = DECIMAL_BYTES - bytes.length;
+			for (int i = 0; i < padding; i++) {
+				fixed[i] = sign;
+			}
+			System.arraycopy(bytes, 0, fixed, padding, bytes.length);
+			return fixed;
+		}
+
+		/**
+		 * Parquet field names must be unique, so repeated column names get a number appended.
+		 */
+		private static String[] getFieldNames(ResultSetMetaData rsmd) throws SQLException {
+			int colCount = rsmd.getColumnCount();
+			String[] names = new String[colCount];
+			HashSet<String> used = new HashSet<String>();
+			for (int i = 1; i <= colCount; i++) {
+				String name = rsmd.getColumnName(i);
+				if (name == null || name.isEmpty()) {
+					name = "COLUMN" + i;
+				}
+				String unique = name;
+				for (int n = 2; !used.add(unique); n++) {
+					unique = name + "_" + n;
+				}
+				names[i - 1] = unique;
+			}
+			return names;
+		}
+
+		// Still abstract in WriteSupport, although deprecated for the ParquetConfiguration overload
+		@SuppressWarnings("deprecation")
+		@Override
+		public WriteContext init(Configuration configuration) {
+			return new WriteContext(this.schema, Collections.<String, String>emptyMap());
+		}
+
+		@Override
+		public WriteContext init(ParquetConfiguration configuration) {
+			return new WriteContext(this.schema, Collections.<String, String>emptyMap());
+		}
+
+		@Override
+		public void prepareForWrite(RecordConsumer recordConsumer) {
+			this.consumer = recordConsumer;
+			for (Field field : this.fields) {
+				field.consumer = recordConsumer;
+			}
+		}
+
+		@Override
+		public void write(ResultSet rs) {
+			this.consumer.startMessage();
+			try {
+				for (int i = 0; i < this.plan.length; i++) {
+					this.plan[i].write(rs, i + 1, this.fields[i]);
+				}
+			} catch (SQLException e) {
+				throw new UncheckedSQLException(e);
+			}
+			this.consumer.endMessage();
+		}
+	}
+
+	private static class Builder extends ParquetWriter.Builder<ResultSet, Builder> {
+		private final ResultSetWriteSupport writeSupport;
+
+		private Builder(OutputFile file, ResultSetWriteSupport writeSupport) {
+			super(file);
+			this.writeSupport = writeSupport;
+		}
+
+		@Override
+		protected Builder self() {
+			return this;
+		}
+
+		// Still abstract in ParquetWriter.Builder, although deprecated for the ParquetConfiguration overload
+		@SuppressWarnings("deprecation")
+		@Override
+		protected WriteSupport<ResultSet> getWriteSupport(Configuration conf) {
+			return this.writeSupport;
+		}
+
+		@Override
+		protected WriteSupport<ResultSet> getWriteSupport(ParquetConfiguration conf) {
+			return this.writeSupport;
+		}
+	}
+
+	/**
+	 * Carries a {@link SQLException} out of {@link WriteSupport#write(Object)}, which cannot throw checked exceptions.
+	 */
+	private static class UncheckedSQLException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private UncheckedSQLException(SQLException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized SQLException getCause() {
+			return (SQLException) super.getCause();
+		}
+	}
+}
@@ -0,0 +1,319 @@
+package com.nathanahrens.resultset;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * <p>Measures where the time of a run (a query and the exports reading its rows) goes: executing the query, fetching
+ * rows from the source, converting their values, creating Excel cells and writing the workbook. Along with the time of
+ * each {@link Phase}, it counts rows, bytes and fetch round trips, and samples the peak heap usage while running.</p>
+ * <p>Phases are timed by the code running them: {@link ProgressResultSet#setMetrics(ExportMetrics)} times fetching and
+ * converting, {@link DataExportExcelWriter#setMetrics(ExportMetrics)} the Excel phases. Phases run on several threads
+ * (i.e., split files are written in the background) add up their time, so they may add up to more than the elapsed
+ * time.</p>
+ * <p>From {@link #start()} to {@link #finish()}, the metrics are registered as an MXBean named
+ * <code>com.nathanahrens.resultset:type=ExportMetrics,id=N</code>, and reported to the {@link Listener} every few
+ * rows.</p>
+ * @author nahrens
+ *
+ */
+public class ExportMetrics implements ExportMetricsMXBean {
+	public static final long DEFAULT_INTERVAL = ProgressResultSet.DEFAULT_INTERVAL;
+	public static final long HEAP_SAMPLE_MILLIS = 100;
+
+	private static final AtomicInteger RUN_NUMBER = new AtomicInteger();
+	private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+	private static final ScheduledExecutorService HEAP_SAMPLER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "ExportMetrics-heap");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Part of a run that is timed on its own.
+	 */
+	public static enum Phase {
+		/**
+		 * Executing the query, until the source returns the first rows.
+		 */
+		EXECUTE,
+		/**
+		 * Waiting for {@link java.sql.ResultSet#next()} of the source, which includes the fetch round trips.
+		 */
+		FETCH,
+		/**
+		 * Reading the values of the rows into Java objects.
+		 */
+		CONVERT,
+		/**
+		 * Creating the rows and cells of Excel sheets.
+		 */
+		WRITE_CELLS,
+		/**
+		 * Writing Excel workbooks to their files.
+		 */
+		WRITE_FILE;
+	}
+
+	/**
+	 * Receives the metrics of a run as rows are read.
+	 */
+	@FunctionalInterface
+	public interface Listener {
+		/**
+		 * Called every few rows, and once the run is finished (see {@link ExportMetrics#isFinished()}).
+		 * @param metrics Metrics of the run.
+		 */
+		void update(ExportMetrics metrics);
+	}
+
+	private final String name;
+	private final Listener listener;
+	private final long interval;
+	private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+	private final AtomicLong peakHeapBytes = new AtomicLong();
+	private volatile long rows;
+	private volatile long bytes;
+	private volatile int fetchSize;
+	private volatile long startTime;
+	private volatile long endTime;
+	private volatile boolean finished;
+	private ScheduledFuture<?> heapSampler;
+	private ObjectName objectName;
+
+	/**
+	 *
+	 * @param name     What the run reads from (i.e., the URL of the source).
+	 * @param listener Listener to report the metrics to, or null for none.
+	 * @param interval Number of rows between reports.
+	 */
+	public ExportMetrics(String name, Listener listener, long interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Interval must be at least 1: " + interval);
+		}
+		this.name = name;
+		this.listener = listener;
+		this.interval = interval;
+	}
+
+	/**
+	 * Start the clock and the heap sampling, and register the MXBean.
+	 */
+	public synchronized void start() {
+		this.startTime = System.nanoTime();
+		this.sampleHeap();
+		this.heapSampler = HEAP_SAMPLER.scheduleAtFixedRate(this::sampleHeap, HEAP_SAMPLE_MILLIS, HEAP_SAMPLE_MILLIS,
+				TimeUnit.MILLISECONDS);
+		try {
+			ObjectName objectName = new ObjectName(
+					"com.nathanahrens.resultset:type=ExportMetrics,id=" + RUN_NUMBER.incrementAndGet());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			this.objectName = objectName;
+		} catch (JMException e) {
+			// Only the JMX view of the run is lost
+		}
+	}
+
+	/**
+	 * Stop the clock and the heap sampling, unregister the MXBean and report the final metrics to the listener. Does
+	 * nothing if already finished.
+	 */
+	public void finish() {
+		synchronized (this) {
+			if (this.finished) {
+				return;
+			}
+			this.endTime = System.nanoTime();
+			if (this.heapSampler != null) {
+				this.heapSampler.cancel(false);
+				this.heapSampler = null;
+			}
+			this.sampleHeap();
+			if (this.objectName != null) {
+				try {
+					MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+					server.unregisterMBean(this.objectName);
+				} catch (JMException e) {
+					// Already unregistered
+				}
+				this.objectName = null;
+			}
+			this.finished = true;
+		}
+		if (this.listener != null) {
+			this.listener.update(this);
+		}
+	}
+
+	private void sampleHeap() {
+		long used = MEMORY.getHeapMemoryUsage().getUsed();
+		this.peakHeapBytes.accumulateAndGet(used, Math::max);
+	}
+
+	/**
+	 * Add time spent in a phase. Safe to call from any thread.
+	 * @param phase Phase the time was spent in.
+	 * @param nanos Time spent, in nanoseconds.
+	 */
+	public void add(Phase phase, long nanos) {
+		this.phaseNanos.addAndGet(phase.ordinal(), nanos);
+	}
+
+	/**
+	 * Count a row read from the source. Only called by the thread reading the rows.
+	 * @param size Approximate size of the values of the row, in bytes.
+	 */
+	public void addRow(long size) {
+		// Only this thread writes the counters, other threads read them
+		this.bytes += size;
+		this.rows++;
+		if (this.listener != null && this.rows % this.interval == 0) {
+			this.listener.update(this);
+		}
+	}
+
+	/**
+	 * Set the number of rows the source returns per round trip, to estimate the number of round trips from.
+	 * @param fetchSize Rows per round trip, or 0 if unknown.
+	 */
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = Math.max(0, fetchSize);
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public boolean isFinished() {
+		return this.finished;
+	}
+
+	@Override
+	public long getRows() {
+		return this.rows;
+	}
+
+	@Override
+	public long getBytes() {
+		return this.bytes;
+	}
+
+	@Override
+	public long getFetchRoundTrips() {
+		int fetchSize = this.fetchSize;
+		if (fetchSize == 0) {
+			return 0;
+		}
+		// The last round trip returns the remaining rows, if any, along with the end of the rows
+		return this.rows / fetchSize + 1;
+	}
+
+	/**
+	 *
+	 * @param phase Phase to get the time of.
+	 * @return long Time spent in the phase so far, in nanoseconds.
+	 */
+	public long getNanos(Phase phase) {
+		return this.phaseNanos.get(phase.ordinal());
+	}
+
+	public long getElapsedNanos() {
+		if (this.startTime == 0) {
+			return 0;
+		}
+		return (this.finished ? this.endTime : System.nanoTime()) - this.startTime;
+	}
+
+	@Override
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.getElapsedNanos());
+	}
+
+	@Override
+	public double getRowsPerSecond() {
+		return perSecond(this.rows, this.getElapsedNanos());
+	}
+
+	@Override
+	public double getBytesPerSecond() {
+		return perSecond(this.bytes, this.getElapsedNanos());
+	}
+
+	private static double perSecond(long count, long nanos) {
+		return nanos <= 0 ? 0 : count * 1000000000.0 / nanos;
+	}
+
+	@Override
+	public long getPeakHeapBytes() {
+		return this.peakHeapBytes.get();
+	}
+
+	@Override
+	public long getExecuteMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.getNanos(Phase.EXECUTE));
+	}
+
+	@Override
+	public long getFetchMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.getNanos(Phase.FETCH));
+	}
+
+	@Override
+	public long getConvertMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.getNanos(Phase.CONVERT));
+	}
+
+	@Override
+	public long getWriteCellsMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.getNanos(Phase.WRITE_CELLS));
+	}
+
+	@Override
+	public long getWriteFileMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.getNanos(Phase.WRITE_FILE));
+	}
+
+	/**
+	 *
+	 * @return String One line summary of the run: rows, throughput, round trips, peak heap and the time of each phase
+	 *         that ran.
+	 */
+	public String getSummary() {
+		StringBuilder summary = new StringBuilder(String.format(
+				"%,d rows (%,d bytes) in %,.3f seconds: %,.0f rows/s, %,.0f bytes/s, ", this.rows, this.bytes,
+				this.getElapsedNanos() / 1000000000.0, this.getRowsPerSecond(), this.getBytesPerSecond()));
+		long roundTrips = this.getFetchRoundTrips();
+		if (roundTrips > 0) {
+			summary.append(String.format("~%,d fetch round trips, ", roundTrips));
+		}
+		summary.append(String.format("peak heap %,d bytes", this.getPeakHeapBytes()));
+		StringJoiner phases = new StringJoiner(", ", " (", ")").setEmptyValue("");
+		for (Phase phase : Phase.values()) {
+			long nanos = this.getNanos(phase);
+			if (nanos > 0) {
+				phases.add(String.format("%s %,.3f s", phase.name().toLowerCase().replace('_', ' '),
+						nanos / 1000000000.0));
+			}
+		}
+		return summary.append(phases).toString();
+	}
+
+	@Override
+	public String toString() {
+		return this.getSummary();
+	}
+}
@@ -0,0 +1,53 @@
+package com.nathanahrens.resultset;
+
+/**
+ * <p>Management interface of {@link ExportMetrics}, so the progress of a run can be watched from a JMX console (i.e.,
+ * JConsole or VisualVM) while it is running.</p>
+ * @author nahrens
+ *
+ */
+public interface ExportMetricsMXBean {
+	/**
+	 *
+	 * @return String What the run reads from (i.e., the URL of the source).
+	 */
+	public String getName();
+
+	public boolean isFinished();
+
+	public long getRows();
+
+	/**
+	 *
+	 * @return long Approximate size of the values read, in bytes.
+	 */
+	public long getBytes();
+
+	/**
+	 *
+	 * @return long Number of round trips to the source estimated from the fetch size, or 0 if it is unknown.
+	 */
+	public long getFetchRoundTrips();
+
+	public long getElapsedMillis();
+
+	public double getRowsPerSecond();
+
+	public double getBytesPerSecond();
+
+	/**
+	 *
+	 * @return long Highest heap usage sampled during the run, in bytes.
+	 */
+	public long getPeakHeapBytes();
+
+	public long getExecuteMillis();
+
+	public long getFetchMillis();
+
+	public long getConvertMillis();
+
+	public long getWriteCellsMillis();
+
+	public long getWriteFileMillis();
+}
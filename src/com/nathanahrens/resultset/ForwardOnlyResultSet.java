@@ -0,0 +1,1254 @@
+package com.nathanahrens.resultset;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>Base class for read-only, forward-only {@link ResultSet}s over data that is not backed by a JDBC statement (i.e.,
+ * buffered or cached results), so they can be handed to anything that reads a {@link ResultSet}.</p>
+ * <p>Subclasses move the cursor in {@link #advance()} and return the value of a column in {@link #getValue(int)} as
+ * the object a JDBC driver would return from {@link #getObject(int)}. This class converts those values for the typed
+ * getters. Values are not associated with a time zone, so the {@link Calendar} of the date and time getters is
+ * ignored.</p>
+ * @author nahrens
+ *
+ */
+public abstract class ForwardOnlyResultSet implements ResultSet {
+	private Map<String, Integer> columnIndexes;
+	private int columnCount = -1;
+	private int row;
+	private boolean afterLast;
+	private boolean wasNull;
+	private boolean closed;
+
+	/**
+	 * Move the cursor to the next row.
+	 * @return boolean True if the cursor is on a row, false if there are no more rows.
+	 * @throws SQLException When unable to read the next row.
+	 */
+	protected abstract boolean advance() throws SQLException;
+
+	/**
+	 * Get the value of a column in the current row.
+	 * @param column Index of the column, starting at 1.
+	 * @return Object Value of the column, or null.
+	 * @throws SQLException When unable to read the value.
+	 */
+	protected abstract Object getValue(int column) throws SQLException;
+
+	@Override
+	public abstract ResultSetMetaData getMetaData() throws SQLException;
+
+	@Override
+	public boolean next() throws SQLException {
+		this.checkOpen();
+		if (this.afterLast) {
+			return false;
+		}
+		if (this.advance()) {
+			this.row++;
+			return true;
+		}
+		this.afterLast = true;
+		return false;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		this.closed = true;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	@Override
+	public boolean wasNull() throws SQLException {
+		return this.wasNull;
+	}
+
+	private void checkOpen() throws SQLException {
+		if (this.closed) {
+			throw new SQLException("ResultSet is closed");
+		}
+	}
+
+	private Object value(int column) throws SQLException {
+		this.checkOpen();
+		if (this.row == 0 || this.afterLast) {
+			throw new SQLException("ResultSet is not on a row");
+		}
+		if (this.columnCount < 0) {
+			this.columnCount = this.getMetaData().getColumnCount();
+		}
+		if (column < 1 || column > this.columnCount) {
+			throw new SQLException("Invalid column index: " + column);
+		}
+		Object value = this.getValue(column);
+		this.wasNull = value == null;
+		return value;
+	}
+
+	private static SQLException cannotConvert(Object value, String type) {
+		return new SQLException("Cannot convert " + value.getClass().getSimpleName() + " to " + type + ": " + value);
+	}
+
+	private static SQLFeatureNotSupportedException forwardOnly() {
+		return new SQLFeatureNotSupportedException("ResultSet is TYPE_FORWARD_ONLY");
+	}
+
+	private static SQLFeatureNotSupportedException readOnly() {
+		return new SQLFeatureNotSupportedException("ResultSet is CONCUR_READ_ONLY");
+	}
+
+	@Override
+	public int findColumn(String columnLabel) throws SQLException {
+		this.checkOpen();
+		if (this.columnIndexes == null) {
+			ResultSetMetaData rsmd = this.getMetaData();
+			Map<String, Integer> indexes = new HashMap<>();
+			for (int i = rsmd.getColumnCount(); i >= 1; i--) {
+				// The first column wins if labels are repeated
+				indexes.put(rsmd.getColumnLabel(i).toUpperCase(Locale.ROOT), i);
+			}
+			this.columnIndexes = indexes;
+		}
+		Integer index = this.columnIndexes.get(columnLabel.toUpperCase(Locale.ROOT));
+		if (index == null) {
+			throw new SQLException("Column not found: " + columnLabel);
+		}
+		return index;
+	}
+
+	// Getters
+
+	@Override
+	public String getString(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null || value instanceof String) {
+			return (String) value;
+		}
+		if (value instanceof BigDecimal) {
+			return ((BigDecimal) value).toPlainString();
+		}
+		if (value instanceof byte[]) {
+			return HexFormat.of().withUpperCase().formatHex((byte[]) value);
+		}
+		return value.toString();
+	}
+
+	@Override
+	public boolean getBoolean(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null) {
+			return false;
+		}
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		}
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue() != 0;
+		}
+		if (value instanceof String) {
+			String text = ((String) value).trim();
+			return text.equalsIgnoreCase("true") || text.equals("1") || text.equalsIgnoreCase("Y");
+		}
+		throw cannotConvert(value, "boolean");
+	}
+
+	private Number getNumber(int columnIndex, String type) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null || value instanceof Number) {
+			return (Number) value;
+		}
+		if (value instanceof Boolean) {
+			return (Boolean) value ? 1 : 0;
+		}
+		if (value instanceof String) {
+			try {
+				return new BigDecimal(((String) value).trim());
+			} catch (NumberFormatException e) {
+				throw cannotConvert(value, type);
+			}
+		}
+		throw cannotConvert(value, type);
+	}
+
+	@Override
+	public byte getByte(int columnIndex) throws SQLException {
+		Number value = this.getNumber(columnIndex, "byte");
+		return value == null ? 0 : value.byteValue();
+	}
+
+	@Override
+	public short getShort(int columnIndex) throws SQLException {
+		Number value = this.getNumber(columnIndex, "short");
+		return value == null ? 0 : value.shortValue();
+	}
+
+	@Override
+	public int getInt(int columnIndex) throws SQLException {
+		Number value = this.getNumber(columnIndex, "int");
+		return value == null ? 0 : value.intValue();
+	}
+
+	@Override
+	public long getLong(int columnIndex) throws SQLException {
+		Number value = this.getNumber(columnIndex, "long");
+		return value == null ? 0 : value.longValue();
+	}
+
+	@Override
+	public float getFloat(int columnIndex) throws SQLException {
+		Number value = this.getNumber(columnIndex, "float");
+		return value == null ? 0 : value.floatValue();
+	}
+
+	@Override
+	public double getDouble(int columnIndex) throws SQLException {
+		Number value = this.getNumber(columnIndex, "double");
+		return value == null ? 0 : value.doubleValue();
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+		Number value = this.getNumber(columnIndex, "BigDecimal");
+		if (value == null || value instanceof BigDecimal) {
+			return (BigDecimal) value;
+		}
+		if (value instanceof Double || value instanceof Float) {
+			return BigDecimal.valueOf(value.doubleValue());
+		}
+		return BigDecimal.valueOf(value.longValue());
+	}
+
+	@Override
+	@Deprecated
+	public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+		BigDecimal value = this.getBigDecimal(columnIndex);
+		return value == null ? null : value.setScale(scale, RoundingMode.HALF_UP);
+	}
+
+	@Override
+	public byte[] getBytes(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null || value instanceof byte[]) {
+			return (byte[]) value;
+		}
+		if (value instanceof String) {
+			return ((String) value).getBytes(StandardCharsets.UTF_8);
+		}
+		throw cannotConvert(value, "byte[]");
+	}
+
+	@Override
+	public Date getDate(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null || value instanceof Date) {
+			return (Date) value;
+		}
+		if (value instanceof Timestamp) {
+			return Date.valueOf(((Timestamp) value).toLocalDateTime().toLocalDate());
+		}
+		if (value instanceof String) {
+			try {
+				return Date.valueOf(((String) value).trim());
+			} catch (IllegalArgumentException e) {
+				throw cannotConvert(value, "Date");
+			}
+		}
+		throw cannotConvert(value, "Date");
+	}
+
+	@Override
+	public Time getTime(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null || value instanceof Time) {
+			return (Time) value;
+		}
+		if (value instanceof Timestamp) {
+			return Time.valueOf(((Timestamp) value).toLocalDateTime().toLocalTime());
+		}
+		if (value instanceof String) {
+			try {
+				return Time.valueOf(((String) value).trim());
+			} catch (IllegalArgumentException e) {
+				throw cannotConvert(value, "Time");
+			}
+		}
+		throw cannotConvert(value, "Time");
+	}
+
+	@Override
+	public Timestamp getTimestamp(int columnIndex) throws SQLException {
+		Object value = this.value(columnIndex);
+		if (value == null || value instanceof Timestamp) {
+			return (Timestamp) value;
+		}
+		if (value instanceof Date) {
+			return Timestamp.valueOf(((Date) value).toLocalDate().atStartOfDay());
+		}
+		if (value instanceof OffsetDateTime) {
+			return Timestamp.from(((OffsetDateTime) value).toInstant());
+		}
+		if (value instanceof String) {
+			try {
+				return Timestamp.valueOf(((String) value).trim());
+			} catch (IllegalArgumentException e) {
+				throw cannotConvert(value, "Timestamp");
+			}
+		}
+		throw cannotConvert(value, "Timestamp");
+	}
+
+	@Override
+	public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+		return this.getDate(columnIndex);
+	}
+
+	@Override
+	public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+		return this.getTime(columnIndex);
+	}
+
+	@Override
+	public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+		return this.getTimestamp(columnIndex);
+	}
+
+	@Override
+	public InputStream getAsciiStream(int columnIndex) throws SQLException {
+		String value = this.getString(columnIndex);
+		return value == null ? null : new ByteArrayInputStream(value.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Override
+	@Deprecated
+	public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+		String value = this.getString(columnIndex);
+		return value == null ? null : new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_16BE));
+	}
+
+	@Override
+	public InputStream getBinaryStream(int columnIndex) throws SQLException {
+		byte[] value = this.getBytes(columnIndex);
+		return value == null ? null : new ByteArrayInputStream(value);
+	}
+
+	@Override
+	public Reader getCharacterStream(int columnIndex) throws SQLException {
+		String value = this.getString(columnIndex);
+		return value == null ? null : new StringReader(value);
+	}
+
+	@Override
+	public String getNString(int columnIndex) throws SQLException {
+		return this.getString(columnIndex);
+	}
+
+	@Override
+	public Reader getNCharacterStream(int columnIndex) throws SQLException {
+		return this.getCharacterStream(columnIndex);
+	}
+
+	@Override
+	public Object getObject(int columnIndex) throws SQLException {
+		return this.value(columnIndex);
+	}
+
+	@Override
+	public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+		return this.getObject(columnIndex);
+	}
+
+	@Override
+	public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+		Object value;
+		if (type == String.class) {
+			value = this.getString(columnIndex);
+		} else if (type == Boolean.class) {
+			value = this.getBoolean(columnIndex);
+		} else if (type == Byte.class) {
+			value = this.getByte(columnIndex);
+		} else if (type == Short.class) {
+			value = this.getShort(columnIndex);
+		} else if (type == Integer.class) {
+			value = this.getInt(columnIndex);
+		} else if (type == Long.class) {
+			value = this.getLong(columnIndex);
+		} else if (type == Float.class) {
+			value = this.getFloat(columnIndex);
+		} else if (type == Double.class) {
+			value = this.getDouble(columnIndex);
+		} else if (type == BigDecimal.class) {
+			value = this.getBigDecimal(columnIndex);
+		} else if (type == byte[].class) {
+			value = this.getBytes(columnIndex);
+		} else if (type == Date.class) {
+			value = this.getDate(columnIndex);
+		} else if (type == Time.class) {
+			value = this.getTime(columnIndex);
+		} else if (type == Timestamp.class) {
+			value = this.getTimestamp(columnIndex);
+		} else if (type == LocalDate.class) {
+			Date date = this.getDate(columnIndex);
+			value = date == null ? null : date.toLocalDate();
+		} else if (type == LocalTime.class) {
+			Time time = this.getTime(columnIndex);
+			value = time == null ? null : time.toLocalTime();
+		} else if (type == LocalDateTime.class) {
+			Timestamp timestamp = this.getTimestamp(columnIndex);
+			value = timestamp == null ? null : timestamp.toLocalDateTime();
+		} else {
+			value = this.value(columnIndex);
+			if (value != null && !type.isInstance(value)) {
+				throw cannotConvert(value, type.getSimpleName());
+			}
+		}
+		return this.wasNull ? null : type.cast(value);
+	}
+
+	@Override
+	public Ref getRef(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getRef");
+	}
+
+	@Override
+	public Blob getBlob(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getBlob");
+	}
+
+	@Override
+	public Clob getClob(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getClob");
+	}
+
+	@Override
+	public NClob getNClob(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getNClob");
+	}
+
+	@Override
+	public Array getArray(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getArray");
+	}
+
+	@Override
+	public URL getURL(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getURL");
+	}
+
+	@Override
+	public RowId getRowId(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getRowId");
+	}
+
+	@Override
+	public SQLXML getSQLXML(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getSQLXML");
+	}
+
+	// Getters by label
+
+	@Override
+	public String getString(String columnLabel) throws SQLException {
+		return this.getString(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public boolean getBoolean(String columnLabel) throws SQLException {
+		return this.getBoolean(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public byte getByte(String columnLabel) throws SQLException {
+		return this.getByte(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public short getShort(String columnLabel) throws SQLException {
+		return this.getShort(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public int getInt(String columnLabel) throws SQLException {
+		return this.getInt(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public long getLong(String columnLabel) throws SQLException {
+		return this.getLong(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public float getFloat(String columnLabel) throws SQLException {
+		return this.getFloat(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public double getDouble(String columnLabel) throws SQLException {
+		return this.getDouble(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+		return this.getBigDecimal(this.findColumn(columnLabel));
+	}
+
+	@Override
+	@Deprecated
+	public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+		return this.getBigDecimal(this.findColumn(columnLabel), scale);
+	}
+
+	@Override
+	public byte[] getBytes(String columnLabel) throws SQLException {
+		return this.getBytes(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Date getDate(String columnLabel) throws SQLException {
+		return this.getDate(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Time getTime(String columnLabel) throws SQLException {
+		return this.getTime(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Timestamp getTimestamp(String columnLabel) throws SQLException {
+		return this.getTimestamp(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Date getDate(String columnLabel, Calendar cal) throws SQLException {
+		return this.getDate(this.findColumn(columnLabel), cal);
+	}
+
+	@Override
+	public Time getTime(String columnLabel, Calendar cal) throws SQLException {
+		return this.getTime(this.findColumn(columnLabel), cal);
+	}
+
+	@Override
+	public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+		return this.getTimestamp(this.findColumn(columnLabel), cal);
+	}
+
+	@Override
+	public InputStream getAsciiStream(String columnLabel) throws SQLException {
+		return this.getAsciiStream(this.findColumn(columnLabel));
+	}
+
+	@Override
+	@Deprecated
+	public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+		return this.getUnicodeStream(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public InputStream getBinaryStream(String columnLabel) throws SQLException {
+		return this.getBinaryStream(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Reader getCharacterStream(String columnLabel) throws SQLException {
+		return this.getCharacterStream(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public String getNString(String columnLabel) throws SQLException {
+		return this.getNString(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Reader getNCharacterStream(String columnLabel) throws SQLException {
+		return this.getNCharacterStream(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Object getObject(String columnLabel) throws SQLException {
+		return this.getObject(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+		return this.getObject(this.findColumn(columnLabel), map);
+	}
+
+	@Override
+	public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+		return this.getObject(this.findColumn(columnLabel), type);
+	}
+
+	@Override
+	public Ref getRef(String columnLabel) throws SQLException {
+		return this.getRef(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Blob getBlob(String columnLabel) throws SQLException {
+		return this.getBlob(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Clob getClob(String columnLabel) throws SQLException {
+		return this.getClob(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public NClob getNClob(String columnLabel) throws SQLException {
+		return this.getNClob(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Array getArray(String columnLabel) throws SQLException {
+		return this.getArray(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public URL getURL(String columnLabel) throws SQLException {
+		return this.getURL(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public RowId getRowId(String columnLabel) throws SQLException {
+		return this.getRowId(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public SQLXML getSQLXML(String columnLabel) throws SQLException {
+		return this.getSQLXML(this.findColumn(columnLabel));
+	}
+
+	// Cursor
+
+	@Override
+	public boolean isBeforeFirst() throws SQLException {
+		this.checkOpen();
+		return this.row == 0 && !this.afterLast;
+	}
+
+	@Override
+	public boolean isAfterLast() throws SQLException {
+		this.checkOpen();
+		return this.row > 0 && this.afterLast;
+	}
+
+	@Override
+	public boolean isFirst() throws SQLException {
+		this.checkOpen();
+		return this.row == 1 && !this.afterLast;
+	}
+
+	@Override
+	public boolean isLast() throws SQLException {
+		throw new SQLFeatureNotSupportedException("isLast");
+	}
+
+	@Override
+	public int getRow() throws SQLException {
+		this.checkOpen();
+		return this.afterLast ? 0 : this.row;
+	}
+
+	@Override
+	public void beforeFirst() throws SQLException {
+		throw forwardOnly();
+	}
+
+	@Override
+	public void afterLast() throws SQLException {
+		throw forwardOnly();
+	}
+
+	@Override
+	public boolean first() throws SQLException {
+		throw forwardOnly();
+	}
+
+	@Override
+	public boolean last() throws SQLException {
+		throw forwardOnly();
+	}
+
+	@Override
+	public boolean absolute(int row) throws SQLException {
+		throw forwardOnly();
+	}
+
+	@Override
+	public boolean relative(int rows) throws SQLException {
+		throw forwardOnly();
+	}
+
+	@Override
+	public boolean previous() throws SQLException {
+		throw forwardOnly();
+	}
+
+	@Override
+	public void setFetchDirection(int direction) throws SQLException {
+		if (direction != FETCH_FORWARD) {
+			throw forwardOnly();
+		}
+	}
+
+	@Override
+	public int getFetchDirection() {
+		return FETCH_FORWARD;
+	}
+
+	@Override
+	public void setFetchSize(int rows) {
+		// All rows are already fetched
+	}
+
+	@Override
+	public int getFetchSize() {
+		return 0;
+	}
+
+	@Override
+	public int getType() {
+		return TYPE_FORWARD_ONLY;
+	}
+
+	@Override
+	public int getConcurrency() {
+		return CONCUR_READ_ONLY;
+	}
+
+	@Override
+	public int getHoldability() {
+		return HOLD_CURSORS_OVER_COMMIT;
+	}
+
+	@Override
+	public String getCursorName() throws SQLException {
+		throw new SQLFeatureNotSupportedException("getCursorName");
+	}
+
+	@Override
+	public Statement getStatement() {
+		return null;
+	}
+
+	@Override
+	public SQLWarning getWarnings() {
+		return null;
+	}
+
+	@Override
+	public void clearWarnings() {
+		// No warnings are ever raised
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("Not a wrapper for " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+
+	// Updates
+
+	@Override
+	public boolean rowUpdated() {
+		return false;
+	}
+
+	@Override
+	public boolean rowInserted() {
+		return false;
+	}
+
+	@Override
+	public boolean rowDeleted() {
+		return false;
+	}
+
+	@Override
+	public void insertRow() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateRow() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void deleteRow() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void refreshRow() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void cancelRowUpdates() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void moveToInsertRow() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void moveToCurrentRow() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNull(int columnIndex) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBoolean(int columnIndex, boolean x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateByte(int columnIndex, byte x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateShort(int columnIndex, short x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateInt(int columnIndex, int x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateLong(int columnIndex, long x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateFloat(int columnIndex, float x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateDouble(int columnIndex, double x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateString(int columnIndex, String x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBytes(int columnIndex, byte[] x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateDate(int columnIndex, Date x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateTime(int columnIndex, Time x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(int columnIndex, InputStream x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(int columnIndex, InputStream x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(int columnIndex, Reader x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateObject(int columnIndex, Object x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateRef(int columnIndex, Ref x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(int columnIndex, Blob x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(int columnIndex, Clob x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateArray(int columnIndex, Array x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateRowId(int columnIndex, RowId x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNString(int columnIndex, String nString) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(int columnIndex, NClob nClob) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateSQLXML(int columnIndex, SQLXML xmlObject) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(int columnIndex, InputStream x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(int columnIndex, InputStream x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(int columnIndex, InputStream inputStream, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(int columnIndex, Reader reader, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(int columnIndex, Reader reader, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(int columnIndex, Reader x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(int columnIndex, InputStream x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(int columnIndex, InputStream x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(int columnIndex, Reader x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(int columnIndex, InputStream inputStream) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(int columnIndex, Reader reader) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(int columnIndex, Reader reader) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNull(String columnLabel) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateByte(String columnLabel, byte x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateShort(String columnLabel, short x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateInt(String columnLabel, int x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateLong(String columnLabel, long x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateFloat(String columnLabel, float x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateDouble(String columnLabel, double x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateString(String columnLabel, String x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateDate(String columnLabel, Date x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateTime(String columnLabel, Time x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader reader, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateObject(String columnLabel, Object x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateRef(String columnLabel, Ref x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, Blob x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Clob x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateArray(String columnLabel, Array x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateRowId(String columnLabel, RowId x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNString(String columnLabel, String nString) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, NClob nClob) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateSQLXML(String columnLabel, SQLXML xmlObject) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(String columnLabel, Reader reader, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader reader, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, InputStream inputStream, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Reader reader, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, Reader reader, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(String columnLabel, Reader reader) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader reader) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, InputStream inputStream) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Reader reader) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, Reader reader) throws SQLException {
+		throw readOnly();
+	}
+}
@@ -0,0 +1,301 @@
+package com.nathanahrens.resultset;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>Reads the {@link ResultSet}s of several partitions of a query at the same time, each on its own thread, and
+ * returns their rows as one forward-only {@link ResultSet}.</p>
+ * <p>Without a key column, rows are returned in the order they arrive, which keeps every partition busy. With a key
+ * column, each partition must be sorted by the key; their rows are then merged so the result is sorted by the key as
+ * well. Partitions can read ahead by a few batches of rows before waiting for the merge.</p>
+ * @author nahrens
+ *
+ */
+public class MergedResultSet extends ForwardOnlyResultSet {
+	private static final int BATCH_SIZE = 1024;
+	private static final int QUEUED_BATCHES = 4;
+	/**
+	 * Value of each digit of Oracle's base 64 ROWIDs (A-Z, a-z, 0-9, + and /). ASCII orders + / and 0-9 before the
+	 * letters, so ROWIDs compared as strings are out of order.
+	 */
+	private static final int[] ROWID_DIGITS = new int[128];
+
+	static {
+		Arrays.fill(ROWID_DIGITS, -1);
+		String digits = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for (int i = 0; i < digits.length(); i++) {
+			ROWID_DIGITS[digits.charAt(i)] = i;
+		}
+	}
+
+	/**
+	 * One partition of a query.
+	 */
+	public interface Partition extends AutoCloseable {
+		/**
+		 * Run the query of the partition.
+		 * @return ResultSet Rows of the partition.
+		 * @throws SQLException When unable to run the query.
+		 */
+		ResultSet open() throws SQLException;
+
+		/**
+		 * Release the partition once its rows are read, or the merge is closed.
+		 */
+		@Override
+		void close();
+	}
+
+	/**
+	 * The batches of a partition waiting to be merged by key, and its next row.
+	 */
+	private static class Head {
+		private final int partition;
+		private final BlockingQueue<List<Object[]>> queue;
+		private List<Object[]> batch;
+		private int index;
+		private Object[] row;
+
+		private Head(int partition, BlockingQueue<List<Object[]>> queue) {
+			this.partition = partition;
+			this.queue = queue;
+		}
+	}
+
+	private final ExecutorService executor;
+	private final CompletableFuture<ResultSetMetaDataSnapshot> metaData = new CompletableFuture<>();
+	private final List<BlockingQueue<List<Object[]>>> queues = new ArrayList<>();
+	private final int keyColumn;
+	private volatile Exception failure;
+
+	// Unordered merge
+	private int partitionsLeft;
+	private List<Object[]> batch;
+	private int index;
+
+	// Merge by key
+	private PriorityQueue<Head> heads;
+
+	private Object[] row;
+
+	/**
+	 * Start reading every partition.
+	 * @param partitions Partitions of the query. Each is closed once its rows are read.
+	 * @param keyColumn  Label of the column to merge the rows by, or null to return rows as they arrive.
+	 * @throws SQLException When a partition fails before the columns of the query are known, or the key column is not
+	 *                      found.
+	 */
+	public MergedResultSet(List<? extends Partition> partitions, String keyColumn) throws SQLException {
+		if (partitions.isEmpty()) {
+			throw new IllegalArgumentException("No partitions to merge");
+		}
+		this.partitionsLeft = partitions.size();
+		this.executor = Executors.newFixedThreadPool(partitions.size(), task -> {
+			Thread thread = new Thread(task, "MergedResultSet-" + this.queues.size());
+			thread.setDaemon(true);
+			return thread;
+		});
+		BlockingQueue<List<Object[]>> shared = keyColumn == null
+				? new ArrayBlockingQueue<>(QUEUED_BATCHES * partitions.size())
+				: null;
+		for (Partition partition : partitions) {
+			BlockingQueue<List<Object[]>> queue = shared != null ? shared : new ArrayBlockingQueue<>(QUEUED_BATCHES);
+			this.queues.add(queue);
+			this.executor.execute(() -> this.read(partition, queue));
+		}
+		try {
+			this.metaData.get();
+			this.keyColumn = keyColumn == null ? 0 : this.findColumn(keyColumn);
+		} catch (SQLException e) {
+			this.close();
+			throw e;
+		} catch (ExecutionException e) {
+			this.close();
+			throw new SQLException("Unable to run partition", e.getCause());
+		} catch (InterruptedException e) {
+			this.close();
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for partitions", e);
+		}
+	}
+
+	/**
+	 * Read the rows of a partition into its queue, closing the partition once done.
+	 */
+	private void read(Partition partition, BlockingQueue<List<Object[]>> queue) {
+		try (partition) {
+			ResultSet rs = partition.open();
+			ResultSetMetaDataSnapshot snapshot = ResultSetMetaDataSnapshot.of(rs.getMetaData());
+			this.metaData.complete(snapshot);
+			RowReader reader = new RowReader(snapshot);
+			List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+			while (rs.next()) {
+				rows.add(reader.read(rs));
+				if (rows.size() == BATCH_SIZE) {
+					queue.put(rows);
+					rows = new ArrayList<>(BATCH_SIZE);
+				}
+			}
+			if (!rows.isEmpty()) {
+				queue.put(rows);
+			}
+			rs.close();
+			queue.put(RowQueueResultSet.END);
+		} catch (InterruptedException e) {
+			// The merge was closed
+		} catch (SQLException | RuntimeException e) {
+			this.failure = e;
+			this.metaData.completeExceptionally(e);
+			try {
+				queue.put(RowQueueResultSet.FAILED);
+			} catch (InterruptedException interrupted) {
+				// The merge was closed
+			}
+		}
+	}
+
+	private List<Object[]> take(BlockingQueue<List<Object[]>> queue) throws SQLException {
+		List<Object[]> rows;
+		try {
+			rows = queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for rows", e);
+		}
+		if (rows == RowQueueResultSet.FAILED) {
+			throw new SQLException("Unable to read all rows of a partition", this.failure);
+		}
+		return rows;
+	}
+
+	@Override
+	protected boolean advance() throws SQLException {
+		if (this.keyColumn > 0) {
+			return this.advanceByKey();
+		}
+		while (this.batch == null || this.index >= this.batch.size()) {
+			if (this.partitionsLeft == 0) {
+				return false;
+			}
+			this.batch = this.take(this.queues.get(0));
+			this.index = 0;
+			if (this.batch == RowQueueResultSet.END) {
+				this.partitionsLeft--;
+			}
+		}
+		this.row = this.batch.get(this.index++);
+		return true;
+	}
+
+	private boolean advanceByKey() throws SQLException {
+		if (this.heads == null) {
+			int column = this.keyColumn - 1;
+			boolean rowid = this.metaData.getNow(null).getColumnType(this.keyColumn) == Types.ROWID;
+			this.heads = new PriorityQueue<>(this.queues.size(), (a, b) -> {
+				int order = rowid ? compareRowids(a.row[column], b.row[column]) : compare(a.row[column], b.row[column]);
+				return order != 0 ? order : Integer.compare(a.partition, b.partition);
+			});
+			for (int i = 0; i < this.queues.size(); i++) {
+				Head head = new Head(i, this.queues.get(i));
+				if (this.next(head)) {
+					this.heads.add(head);
+				}
+			}
+		}
+		Head head = this.heads.poll();
+		if (head == null) {
+			return false;
+		}
+		this.row = head.row;
+		if (this.next(head)) {
+			this.heads.add(head);
+		}
+		return true;
+	}
+
+	/**
+	 * Move a partition to its next row.
+	 * @return boolean False once the partition has no more rows.
+	 */
+	private boolean next(Head head) throws SQLException {
+		while (head.batch == null || head.index >= head.batch.size()) {
+			if (head.batch == RowQueueResultSet.END) {
+				return false;
+			}
+			head.batch = this.take(head.queue);
+			head.index = 0;
+		}
+		head.row = head.batch.get(head.index++);
+		return true;
+	}
+
+	/**
+	 * Compare keys, with nulls last.
+	 */
+	@SuppressWarnings("unchecked")
+	private static int compare(Object a, Object b) {
+		if (a == null || b == null) {
+			return a == null ? (b == null ? 0 : 1) : -1;
+		}
+		return ((Comparable<Object>) a).compareTo(b);
+	}
+
+	/**
+	 * Compare ROWIDs (read as strings) by the values of their base 64 digits, with nulls last.
+	 */
+	private static int compareRowids(Object a, Object b) {
+		if (a == null || b == null) {
+			return compare(a, b);
+		}
+		String x = a.toString();
+		String y = b.toString();
+		for (int i = 0; i < x.length() && i < y.length(); i++) {
+			int order = Integer.compare(rowidDigit(x.charAt(i)), rowidDigit(y.charAt(i)));
+			if (order != 0) {
+				return order;
+			}
+		}
+		return Integer.compare(x.length(), y.length());
+	}
+
+	private static int rowidDigit(char c) {
+		// Characters outside of the alphabet sort after it, by code point
+		return c < ROWID_DIGITS.length && ROWID_DIGITS[c] >= 0 ? ROWID_DIGITS[c] : 64 + c;
+	}
+
+	@Override
+	protected Object getValue(int column) {
+		return this.row[column - 1];
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		try {
+			return this.metaData.getNow(null);
+		} catch (RuntimeException e) {
+			throw new SQLException("Unable to run partition", e.getCause());
+		}
+	}
+
+	/**
+	 * Stop reading the partitions that are still running; each is closed once its thread stops.
+	 */
+	@Override
+	public void close() throws SQLException {
+		this.executor.shutdownNow();
+		super.close();
+	}
+}
@@ -0,0 +1,261 @@
+package com.nathanahrens.resultset;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+/**
+ * <p>Reads the rows of a {@link ResultSet} while counting how many rows, and roughly how many bytes of values, have
+ * been fetched, reporting them to a {@link Listener} as rows are read.</p>
+ * <p>Getters read straight from the underlying ResultSet, so primitive values are not boxed. Only one row in
+ * {@link #SIZE_SAMPLE_INTERVAL} is copied to measure its size, and the bytes of the rows in between are estimated
+ * from it; with {@link #setMetrics(ExportMetrics) metrics} every row is copied and measured.</p>
+ * <p>Reading can be stopped from another thread with {@link #cancel()}: the next call to {@link #next()} then throws,
+ * whether or not the source still has rows waiting (i.e., buffered or merged rows).</p>
+ * @author nahrens
+ *
+ */
+public class ProgressResultSet extends ForwardOnlyResultSet {
+	public static final long DEFAULT_INTERVAL = 100000;
+	/**
+	 * Number of rows between the rows measured to estimate the bytes read, without metrics.
+	 */
+	public static final long SIZE_SAMPLE_INTERVAL = 1024;
+
+	/**
+	 * Receives the progress of reading a {@link ResultSet}.
+	 */
+	@FunctionalInterface
+	public interface Listener {
+		/**
+		 * Called every few rows, and once all rows are read.
+		 * @param rows  Number of rows read so far.
+		 * @param bytes Approximate size of the values read so far, in bytes (estimated from a sample of the rows
+		 *              without metrics).
+		 */
+		void progress(long rows, long bytes);
+	}
+
+	private final ResultSet rs;
+	private final ResultSetMetaDataSnapshot metaData;
+	private final RowReader reader;
+	private final Listener listener;
+	private final long interval;
+	private ExportMetrics metrics;
+	private volatile boolean cancelled;
+	private volatile long rows;
+	private volatile long bytes;
+	private long rowSize;
+	// Copy of the current row if it was measured, else null and getters read from rs
+	private Object[] row;
+
+	/**
+	 *
+	 * @param rs       Result set to read.
+	 * @param listener Listener to report progress to, or null to only count the rows.
+	 * @param interval Number of rows between reports.
+	 * @throws SQLException When unable to read the metadata of the ResultSet.
+	 */
+	public ProgressResultSet(ResultSet rs, Listener listener, long interval) throws SQLException {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Interval must be at least 1: " + interval);
+		}
+		this.rs = rs;
+		this.metaData = ResultSetMetaDataSnapshot.of(rs.getMetaData());
+		this.reader = new RowReader(this.metaData);
+		this.listener = listener;
+		this.interval = interval;
+	}
+
+	/**
+	 * Time fetching the rows and converting their values, and count them, in the metrics of a run.
+	 * @param metrics Metrics to add to, or null for none.
+	 */
+	public void setMetrics(ExportMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Stop reading rows. Safe to call from any thread.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	public long getRows() {
+		return this.rows;
+	}
+
+	public long getBytes() {
+		return this.bytes;
+	}
+
+	@Override
+	protected boolean advance() throws SQLException {
+		if (this.cancelled) {
+			throw new SQLException("Query was cancelled after " + this.rows + " rows");
+		}
+		long fetchStart = this.metrics != null ? System.nanoTime() : 0;
+		if (!this.rs.next()) {
+			if (this.metrics != null) {
+				this.metrics.add(ExportMetrics.Phase.FETCH, System.nanoTime() - fetchStart);
+			}
+			if (this.listener != null) {
+				this.listener.progress(this.rows, this.bytes);
+			}
+			return false;
+		}
+		if (this.metrics == null && this.rows % SIZE_SAMPLE_INTERVAL != 0) {
+			this.row = null;
+		} else {
+			long convertStart = this.metrics != null ? System.nanoTime() : 0;
+			this.row = this.reader.read(this.rs);
+			long size = 0;
+			for (Object value : this.row) {
+				size += sizeOf(value);
+			}
+			if (this.metrics != null) {
+				this.metrics.add(ExportMetrics.Phase.FETCH, convertStart - fetchStart);
+				this.metrics.add(ExportMetrics.Phase.CONVERT, System.nanoTime() - convertStart);
+				this.metrics.addRow(size);
+			}
+			this.rowSize = size;
+		}
+		// Only this thread writes the counters, other threads read them
+		this.bytes += this.rowSize;
+		this.rows++;
+		if (this.listener != null && this.rows % this.interval == 0) {
+			this.listener.progress(this.rows, this.bytes);
+		}
+		return true;
+	}
+
+	/**
+	 * Estimate the size of a value as a driver would transfer it.
+	 */
+	private static long sizeOf(Object value) {
+		if (value == null) {
+			return 0;
+		} else if (value instanceof String) {
+			return ((String) value).length();
+		} else if (value instanceof byte[]) {
+			return ((byte[]) value).length;
+		} else if (value instanceof BigDecimal) {
+			return ((BigDecimal) value).unscaledValue().bitLength() / 8 + 2;
+		} else if (value instanceof Boolean) {
+			return 1;
+		} else if (value instanceof Integer || value instanceof Float) {
+			return 4;
+		} else {
+			// Long, Double and date/time values
+			return 8;
+		}
+	}
+
+	@Override
+	protected Object getValue(int column) throws SQLException {
+		return this.row != null ? this.row[column - 1] : this.rs.getObject(column);
+	}
+
+	@Override
+	public boolean wasNull() throws SQLException {
+		return this.row != null ? super.wasNull() : this.rs.wasNull();
+	}
+
+	@Override
+	public String getString(int columnIndex) throws SQLException {
+		return this.row != null ? super.getString(columnIndex) : this.rs.getString(columnIndex);
+	}
+
+	@Override
+	public boolean getBoolean(int columnIndex) throws SQLException {
+		return this.row != null ? super.getBoolean(columnIndex) : this.rs.getBoolean(columnIndex);
+	}
+
+	@Override
+	public byte getByte(int columnIndex) throws SQLException {
+		return this.row != null ? super.getByte(columnIndex) : this.rs.getByte(columnIndex);
+	}
+
+	@Override
+	public short getShort(int columnIndex) throws SQLException {
+		return this.row != null ? super.getShort(columnIndex) : this.rs.getShort(columnIndex);
+	}
+
+	@Override
+	public int getInt(int columnIndex) throws SQLException {
+		return this.row != null ? super.getInt(columnIndex) : this.rs.getInt(columnIndex);
+	}
+
+	@Override
+	public long getLong(int columnIndex) throws SQLException {
+		return this.row != null ? super.getLong(columnIndex) : this.rs.getLong(columnIndex);
+	}
+
+	@Override
+	public float getFloat(int columnIndex) throws SQLException {
+		return this.row != null ? super.getFloat(columnIndex) : this.rs.getFloat(columnIndex);
+	}
+
+	@Override
+	public double getDouble(int columnIndex) throws SQLException {
+		return this.row != null ? super.getDouble(columnIndex) : this.rs.getDouble(columnIndex);
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+		return this.row != null ? super.getBigDecimal(columnIndex) : this.rs.getBigDecimal(columnIndex);
+	}
+
+	@Override
+	public byte[] getBytes(int columnIndex) throws SQLException {
+		return this.row != null ? super.getBytes(columnIndex) : this.rs.getBytes(columnIndex);
+	}
+
+	@Override
+	public Date getDate(int columnIndex) throws SQLException {
+		return this.row != null ? super.getDate(columnIndex) : this.rs.getDate(columnIndex);
+	}
+
+	@Override
+	public Time getTime(int columnIndex) throws SQLException {
+		return this.row != null ? super.getTime(columnIndex) : this.rs.getTime(columnIndex);
+	}
+
+	@Override
+	public Timestamp getTimestamp(int columnIndex) throws SQLException {
+		return this.row != null ? super.getTimestamp(columnIndex) : this.rs.getTimestamp(columnIndex);
+	}
+
+	@Override
+	public Object getObject(int columnIndex) throws SQLException {
+		return this.row != null ? super.getObject(columnIndex) : this.rs.getObject(columnIndex);
+	}
+
+	@Override
+	public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+		return this.row != null ? super.getObject(columnIndex, type) : this.rs.getObject(columnIndex, type);
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() {
+		return this.metaData;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		try {
+			this.rs.close();
+		} finally {
+			super.close();
+		}
+	}
+}
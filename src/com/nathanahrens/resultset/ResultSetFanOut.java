@@ -0,0 +1,211 @@
+package com.nathanahrens.resultset;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Reads a {@link ResultSet} once and feeds its rows to several sinks (i.e., an Excel file, a CSV file and a row
+ * count check), so a query only has to run once for all of its outputs.</p>
+ * <p>Each sink runs on its own thread and reads a forward-only {@link ResultSet} of its own, so any exporter can be
+ * used as a sink. Rows are handed over in batches through a bounded queue per sink: when a sink falls behind, reading
+ * the source waits for it rather than buffering the whole result in memory. A sink that fails or stops reading early
+ * no longer receives rows, and does not stop the others.</p>
+ * @author nahrens
+ *
+ */
+public class ResultSetFanOut {
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+	public static final int DEFAULT_QUEUED_BATCHES = 4;
+	/**
+	 * How long to wait for room in the queue of a sink before checking whether it is still running.
+	 */
+	private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+	/**
+	 * Consumes the rows of a {@link ResultSet}.
+	 */
+	@FunctionalInterface
+	public interface Sink {
+		void consume(ResultSet rs) throws IOException, SQLException;
+	}
+
+	/**
+	 * A sink running on its own thread, and the queue feeding it.
+	 */
+	private static class Consumer {
+		private final String name;
+		private final BlockingQueue<List<Object[]>> queue;
+		private Future<?> future;
+
+		private Consumer(String name, int queuedBatches) {
+			this.name = name;
+			this.queue = new ArrayBlockingQueue<>(queuedBatches);
+		}
+	}
+
+	private final Map<String, Sink> sinks = new LinkedHashMap<>();
+	private final Map<String, Exception> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int queuedBatches = DEFAULT_QUEUED_BATCHES;
+
+	/**
+	 * Add a sink to feed the rows to.
+	 * @param name Name of the sink, used to report its failure (i.e., the file it writes).
+	 * @param sink Sink to add.
+	 */
+	public void addSink(String name, Sink sink) {
+		if (this.sinks.putIfAbsent(name, sink) != null) {
+			throw new IllegalArgumentException("Duplicate sink: " + name);
+		}
+	}
+
+	public int getSinkCount() {
+		return this.sinks.size();
+	}
+
+	/**
+	 * Set how many rows are handed to the sinks at a time.
+	 * @param batchSize Number of rows per batch (default {@value #DEFAULT_BATCH_SIZE}).
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set how many batches a sink can fall behind before reading the source waits for it.
+	 * @param queuedBatches Number of batches queued per sink (default {@value #DEFAULT_QUEUED_BATCHES}).
+	 */
+	public void setQueuedBatches(int queuedBatches) {
+		if (queuedBatches < 1) {
+			throw new IllegalArgumentException("Queued batches must be at least 1: " + queuedBatches);
+		}
+		this.queuedBatches = queuedBatches;
+	}
+
+	/**
+	 *
+	 * @return Map Exception each failed sink threw during the last {@link #run(ResultSet)}, by name of the sink.
+	 */
+	public Map<String, Exception> getFailures() {
+		return Collections.unmodifiableMap(this.failures);
+	}
+
+	/**
+	 * Read all rows of a {@link ResultSet} and feed them to every sink, then closes the ResultSet. Returns once every
+	 * sink has finished; check {@link #getFailures()} for sinks that failed.
+	 * @param rs Result set to read.
+	 * @return long Number of rows read.
+	 * @throws SQLException         When unable to parse ResultSet or close ResultSet. Sinks see the rows read so far,
+	 *                              followed by an exception.
+	 * @throws InterruptedException When interrupted while waiting for a sink.
+	 */
+	public long run(ResultSet rs) throws SQLException, InterruptedException {
+		this.failures.clear();
+		ResultSetMetaDataSnapshot metaData = ResultSetMetaDataSnapshot.of(rs.getMetaData());
+		List<Consumer> consumers = new ArrayList<>(this.sinks.size());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(this.sinks.size(), 1), task -> {
+			Thread thread = new Thread(task, "ResultSetFanOut-" + consumers.size());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			for (Map.Entry<String, Sink> entry : this.sinks.entrySet()) {
+				Consumer consumer = new Consumer(entry.getKey(), this.queuedBatches);
+				Sink sink = entry.getValue();
+				ResultSet sinkResultSet = new RowQueueResultSet(metaData, consumer.queue);
+				consumers.add(consumer);
+				consumer.future = executor.submit(() -> {
+					sink.consume(sinkResultSet);
+					return null;
+				});
+			}
+
+			RowReader reader = new RowReader(metaData);
+			List<Object[]> batch = new ArrayList<>(this.batchSize);
+			long rows = 0;
+			boolean complete = false;
+			try {
+				while (rs.next()) {
+					batch.add(reader.read(rs));
+					rows++;
+					if (batch.size() == this.batchSize) {
+						publish(batch, consumers);
+						batch = new ArrayList<>(this.batchSize);
+					}
+				}
+				if (!batch.isEmpty()) {
+					publish(batch, consumers);
+				}
+				complete = true;
+			} finally {
+				publish(complete ? RowQueueResultSet.END : RowQueueResultSet.FAILED, consumers);
+			}
+			this.awaitSinks(consumers);
+			rs.close();
+			return rows;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Hand a batch to every sink that is still running, waiting for room in its queue.
+	 */
+	private static void publish(List<Object[]> batch, List<Consumer> consumers) throws InterruptedException {
+		for (Consumer consumer : consumers) {
+			while (!consumer.future.isDone()
+					&& !consumer.queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+				// Keep waiting while the sink works through its queue
+			}
+		}
+	}
+
+	private void awaitSinks(List<Consumer> consumers) throws InterruptedException {
+		for (Consumer consumer : consumers) {
+			try {
+				consumer.future.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				this.failures.put(consumer.name, (Exception) cause);
+			}
+		}
+	}
+
+	/**
+	 * Create a sink that fails unless the {@link ResultSet} has the expected number of rows.
+	 * @param expectedRows Number of rows the query should return.
+	 * @return Sink The sink.
+	 */
+	public static Sink expectRows(long expectedRows) {
+		return rs -> {
+			long rows = 0;
+			while (rs.next()) {
+				rows++;
+			}
+			rs.close();
+			if (rows != expectedRows) {
+				throw new SQLException(
+						String.format("Expected %,d rows, but the query returned %,d rows", expectedRows, rows));
+			}
+		};
+	}
+}
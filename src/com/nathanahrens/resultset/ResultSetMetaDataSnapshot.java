@@ -0,0 +1,226 @@
+package com.nathanahrens.resultset;
+
+import java.io.Serializable;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * <p>A copy of the {@link ResultSetMetaData} of a query, that stays usable after the ResultSet and its connection
+ * are closed (i.e., for buffered or cached results).</p>
+ * @author nahrens
+ *
+ */
+public class ResultSetMetaDataSnapshot implements ResultSetMetaData, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final int columnCount;
+	private final String[] labels;
+	private final String[] names;
+	private final int[] types;
+	private final String[] typeNames;
+	private final String[] classNames;
+	private final int[] precisions;
+	private final int[] scales;
+	private final int[] displaySizes;
+	private final int[] nullables;
+	private final boolean[] signed;
+	private final boolean[] autoIncrement;
+	private final boolean[] caseSensitive;
+	private final boolean[] currency;
+	private final String[] schemaNames;
+	private final String[] tableNames;
+	private final String[] catalogNames;
+
+	/**
+	 * Copy the metadata of every column.
+	 * @param rsmd Metadata to copy.
+	 * @throws SQLException If the metadata could not be read.
+	 */
+	public ResultSetMetaDataSnapshot(ResultSetMetaData rsmd) throws SQLException {
+		this.columnCount = rsmd.getColumnCount();
+		this.labels = new String[this.columnCount];
+		this.names = new String[this.columnCount];
+		this.types = new int[this.columnCount];
+		this.typeNames = new String[this.columnCount];
+		this.classNames = new String[this.columnCount];
+		this.precisions = new int[this.columnCount];
+		this.scales = new int[this.columnCount];
+		this.displaySizes = new int[this.columnCount];
+		this.nullables = new int[this.columnCount];
+		this.signed = new boolean[this.columnCount];
+		this.autoIncrement = new boolean[this.columnCount];
+		this.caseSensitive = new boolean[this.columnCount];
+		this.currency = new boolean[this.columnCount];
+		this.schemaNames = new String[this.columnCount];
+		this.tableNames = new String[this.columnCount];
+		this.catalogNames = new String[this.columnCount];
+		for (int i = 0; i < this.columnCount; i++) {
+			int column = i + 1;
+			this.labels[i] = rsmd.getColumnLabel(column);
+			this.names[i] = rsmd.getColumnName(column);
+			this.types[i] = rsmd.getColumnType(column);
+			this.typeNames[i] = rsmd.getColumnTypeName(column);
+			this.classNames[i] = rsmd.getColumnClassName(column);
+			this.precisions[i] = rsmd.getPrecision(column);
+			this.scales[i] = rsmd.getScale(column);
+			this.displaySizes[i] = rsmd.getColumnDisplaySize(column);
+			this.nullables[i] = rsmd.isNullable(column);
+			this.signed[i] = rsmd.isSigned(column);
+			this.autoIncrement[i] = rsmd.isAutoIncrement(column);
+			this.caseSensitive[i] = rsmd.isCaseSensitive(column);
+			this.currency[i] = rsmd.isCurrency(column);
+			// Not every driver knows where a column comes from
+			try {
+				this.schemaNames[i] = rsmd.getSchemaName(column);
+				this.tableNames[i] = rsmd.getTableName(column);
+				this.catalogNames[i] = rsmd.getCatalogName(column);
+			} catch (SQLException e) {
+				this.schemaNames[i] = "";
+				this.tableNames[i] = "";
+				this.catalogNames[i] = "";
+			}
+		}
+	}
+
+	/**
+	 * Get a snapshot of the metadata, without copying it again if it already is one.
+	 * @param rsmd Metadata to copy.
+	 * @return ResultSetMetaDataSnapshot The snapshot.
+	 * @throws SQLException If the metadata could not be read.
+	 */
+	public static ResultSetMetaDataSnapshot of(ResultSetMetaData rsmd) throws SQLException {
+		if (rsmd instanceof ResultSetMetaDataSnapshot) {
+			return (ResultSetMetaDataSnapshot) rsmd;
+		}
+		return new ResultSetMetaDataSnapshot(rsmd);
+	}
+
+	private int index(int column) throws SQLException {
+		if (column < 1 || column > this.columnCount) {
+			throw new SQLException("Invalid column index: " + column);
+		}
+		return column - 1;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return this.columnCount;
+	}
+
+	@Override
+	public boolean isAutoIncrement(int column) throws SQLException {
+		return this.autoIncrement[this.index(column)];
+	}
+
+	@Override
+	public boolean isCaseSensitive(int column) throws SQLException {
+		return this.caseSensitive[this.index(column)];
+	}
+
+	@Override
+	public boolean isSearchable(int column) throws SQLException {
+		this.index(column);
+		return false;
+	}
+
+	@Override
+	public boolean isCurrency(int column) throws SQLException {
+		return this.currency[this.index(column)];
+	}
+
+	@Override
+	public int isNullable(int column) throws SQLException {
+		return this.nullables[this.index(column)];
+	}
+
+	@Override
+	public boolean isSigned(int column) throws SQLException {
+		return this.signed[this.index(column)];
+	}
+
+	@Override
+	public int getColumnDisplaySize(int column) throws SQLException {
+		return this.displaySizes[this.index(column)];
+	}
+
+	@Override
+	public String getColumnLabel(int column) throws SQLException {
+		return this.labels[this.index(column)];
+	}
+
+	@Override
+	public String getColumnName(int column) throws SQLException {
+		return this.names[this.index(column)];
+	}
+
+	@Override
+	public String getSchemaName(int column) throws SQLException {
+		return this.schemaNames[this.index(column)];
+	}
+
+	@Override
+	public int getPrecision(int column) throws SQLException {
+		return this.precisions[this.index(column)];
+	}
+
+	@Override
+	public int getScale(int column) throws SQLException {
+		return this.scales[this.index(column)];
+	}
+
+	@Override
+	public String getTableName(int column) throws SQLException {
+		return this.tableNames[this.index(column)];
+	}
+
+	@Override
+	public String getCatalogName(int column) throws SQLException {
+		return this.catalogNames[this.index(column)];
+	}
+
+	@Override
+	public int getColumnType(int column) throws SQLException {
+		return this.types[this.index(column)];
+	}
+
+	@Override
+	public String getColumnTypeName(int column) throws SQLException {
+		return this.typeNames[this.index(column)];
+	}
+
+	@Override
+	public boolean isReadOnly(int column) throws SQLException {
+		this.index(column);
+		return true;
+	}
+
+	@Override
+	public boolean isWritable(int column) throws SQLException {
+		this.index(column);
+		return false;
+	}
+
+	@Override
+	public boolean isDefinitelyWritable(int column) throws SQLException {
+		this.index(column);
+		return false;
+	}
+
+	@Override
+	public String getColumnClassName(int column) throws SQLException {
+		return this.classNames[this.index(column)];
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("Not a wrapper for " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+}
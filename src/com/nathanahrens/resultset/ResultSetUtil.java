@@ -1,9 +1,12 @@
 package com.nathanahrens.resultset;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -14,6 +17,11 @@ import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 public class ResultSetUtil {
+	/**
+	 * Size of the buffer rows are printed to before they are written to stdout.
+	 */
+	private static final int PRINT_BUFFER_SIZE = 64 * 1024;
+
 	/**
 	 * 
 	 * @param rs        {@link ResultSet} to print headers
@@ -22,6 +30,13 @@ public class ResultSetUtil {
 	 * @throws SQLException
 	 */
 	public static void printHeaders(ResultSet rs, String separator, boolean divider) throws SQLException {
+		PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), PRINT_BUFFER_SIZE));
+		printHeaders(rs, separator, divider, out);
+		out.flush();
+	}
+
+	private static void printHeaders(ResultSet rs, String separator, boolean divider, PrintWriter out)
+			throws SQLException {
 		ResultSetMetaData rsmd = rs.getMetaData();
 		int colCount = rsmd.getColumnCount();
 		int lengths[] = new int[colCount + 1];
@@ -29,36 +44,68 @@ public class ResultSetUtil {
 		for (int i = 1; i <= colCount; i++) {
 			String colName = rsmd.getColumnName(i);
 			lengths[i] = colName.length();
-			System.out.print(colName + separator);
+			out.print(colName);
+			out.print(separator);
 		}
-		System.out.println();
+		out.println();
 
 		if (divider) {
 			for (int i = 1; i <= colCount; i++) {
 				for (int j = 0; j < lengths[i]; j++) {
-					System.out.print("-");
+					out.print('-');
 				}
-				System.out.print(separator);
+				out.print(separator);
 			}
-			System.out.println();
+			out.println();
 		}
 	}
 
-	public static void printResultSet(ResultSet rs, String separator) {
+	/**
+	 * Print a {@link ResultSet} to stdout, headers first.
+	 * 
+	 * @param rs        Result set to print.
+	 * @param separator String to use as column separator.
+	 * @throws SQLException If reading the results fails (i.e., the query is cancelled or times out); the rows printed
+	 *                      so far are flushed first.
+	 */
+	public static void printResultSet(ResultSet rs, String separator) throws SQLException {
+		// Rows are buffered rather than printed cell by cell, stdout is only flushed once the buffer is full
+		PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), PRINT_BUFFER_SIZE));
 		try {
 			ResultSetMetaData rsmd = rs.getMetaData();
 			int colCount = rsmd.getColumnCount();
 
-			printHeaders(rs, separator, true);
+			printHeaders(rs, separator, true, out);
 			while (rs.next()) {
 				for (int i = 1; i <= colCount; i++) {
-					System.out.print(rs.getString(i) + separator);
+					out.print(rs.getString(i));
+					out.print(separator);
 				}
-				System.out.println();
+				out.println();
 			}
+		} finally {
+			out.flush();
+		}
+	}
+
+	/**
+	 * Saves a {@link ResultSet} to a delimited text file.
+	 * 
+	 * @param rs        Result set to save.
+	 * @param filePath  File path to save to.
+	 * @param delimiter Character to separate fields with, i.e. {@link DataExportDelimitedWriter#CSV}.
+	 * @param gzip      If true, the file is compressed with gzip.
+	 * @see DataExportDelimitedWriter
+	 */
+	public static void saveDelimited(ResultSet rs, String filePath, char delimiter, boolean gzip) {
+		try {
+			new DataExportDelimitedWriter(delimiter, gzip).saveDelimited(rs, filePath);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.out.println("Unable to write to file path: " + filePath);
 		} catch (SQLException e) {
 			e.printStackTrace();
-			System.out.println("Unable to parse ResultSet to print...");
+			System.out.println("Unable to parse ResultSet to file...");
 		}
 	}
 
@@ -0,0 +1,61 @@
+package com.nathanahrens.resultset;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <p>Forward-only cursor over batches of rows read by a {@link RowReader}, taken from a queue as they are needed. The
+ * producer ends the rows with {@link #END}, or with {@link #FAILED} if it could not read all of them.</p>
+ * @author nahrens
+ *
+ */
+class RowQueueResultSet extends ForwardOnlyResultSet {
+	static final List<Object[]> END = Collections.unmodifiableList(new ArrayList<>(0));
+	static final List<Object[]> FAILED = Collections.unmodifiableList(new ArrayList<>(0));
+
+	private final ResultSetMetaData metaData;
+	private final BlockingQueue<List<Object[]>> batches;
+	private List<Object[]> batch;
+	private Object[] row;
+	private int index;
+
+	RowQueueResultSet(ResultSetMetaData metaData, BlockingQueue<List<Object[]>> batches) {
+		this.metaData = metaData;
+		this.batches = batches;
+	}
+
+	@Override
+	protected boolean advance() throws SQLException {
+		while (this.batch == null || this.index >= this.batch.size()) {
+			if (this.batch == END) {
+				return false;
+			}
+			try {
+				this.batch = this.batches.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting for rows", e);
+			}
+			if (this.batch == FAILED) {
+				throw new SQLException("Unable to read all rows of the source ResultSet");
+			}
+			this.index = 0;
+		}
+		this.row = this.batch.get(this.index++);
+		return true;
+	}
+
+	@Override
+	protected Object getValue(int column) {
+		return this.row[column - 1];
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() {
+		return this.metaData;
+	}
+}
@@ -0,0 +1,104 @@
+package com.nathanahrens.resultset;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+
+/**
+ * <p>Copies the current row of a {@link ResultSet} into an array, using the getter that matches the type of each
+ * column, so the values can be read again from a {@link ForwardOnlyResultSet} after the cursor has moved on.</p>
+ * <p>Values are the types a JDBC driver returns for the column (i.e., Long for BIGINT, BigDecimal for NUMERIC,
+ * Timestamp for TIMESTAMP), or String for types without a standard mapping.</p>
+ * @author nahrens
+ *
+ */
+public class RowReader {
+	/**
+	 * Reads the value of one column, or null.
+	 */
+	private interface ValueReader {
+		Object read(ResultSet rs, int column) throws SQLException;
+	}
+
+	private final ValueReader[] readers;
+
+	/**
+	 *
+	 * @param rsmd Metadata of the {@link ResultSet} rows will be read from.
+	 * @throws SQLException When unable to read the metadata.
+	 */
+	public RowReader(ResultSetMetaData rsmd) throws SQLException {
+		this.readers = new ValueReader[rsmd.getColumnCount()];
+		for (int i = 0; i < this.readers.length; i++) {
+			this.readers[i] = createReader(rsmd.getColumnType(i + 1));
+		}
+	}
+
+	/**
+	 * Read the row the {@link ResultSet} is on.
+	 * @param rs Result set positioned on a row.
+	 * @return Object[] Value of each column, the first column at index 0.
+	 * @throws SQLException When unable to read a value.
+	 */
+	public Object[] read(ResultSet rs) throws SQLException {
+		Object[] row = new Object[this.readers.length];
+		for (int i = 0; i < row.length; i++) {
+			row[i] = this.readers[i].read(rs, i + 1);
+		}
+		return row;
+	}
+
+	private static ValueReader createReader(int type) {
+		switch (type) {
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return (rs, column) -> {
+				boolean value = rs.getBoolean(column);
+				return rs.wasNull() ? null : value;
+			};
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+			return (rs, column) -> {
+				int value = rs.getInt(column);
+				return rs.wasNull() ? null : value;
+			};
+		case Types.BIGINT:
+			return (rs, column) -> {
+				long value = rs.getLong(column);
+				return rs.wasNull() ? null : value;
+			};
+		case Types.REAL:
+			return (rs, column) -> {
+				float value = rs.getFloat(column);
+				return rs.wasNull() ? null : value;
+			};
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return (rs, column) -> {
+				double value = rs.getDouble(column);
+				return rs.wasNull() ? null : value;
+			};
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			return ResultSet::getBigDecimal;
+		case Types.DATE:
+			return ResultSet::getDate;
+		case Types.TIME:
+			return ResultSet::getTime;
+		case Types.TIMESTAMP:
+			return ResultSet::getTimestamp;
+		case Types.TIMESTAMP_WITH_TIMEZONE:
+			return (rs, column) -> rs.getObject(column, OffsetDateTime.class);
+		case Types.BINARY:
+		case Types.VARBINARY:
+		case Types.LONGVARBINARY:
+		case Types.BLOB:
+			return ResultSet::getBytes;
+		default:
+			return ResultSet::getString;
+		}
+	}
+}
@@ -44,6 +44,25 @@ public class TwofishPws {
 
 	}
 
+	/**
+	 * Processes <code>length</code> bytes (a multiple of the block size) in CBC
+	 * mode, chaining from the previous call. <code>in</code> and
+	 * <code>out</code> may be the same array, so data can be decrypted in
+	 * place.
+	 * 
+	 * @param in the input data
+	 * @param inOff offset of the first input byte
+	 * @param out the array to write the output to
+	 * @param outOff offset of the first output byte
+	 * @param length number of bytes to process
+	 */
+	public void processCBC(byte[] in, int inOff, byte[] out, int outOff, int length) {
+		final int blockSize = cipher.getBlockSize();
+		for (int i = 0; i < length; i += blockSize) {
+			cipher.processBlock(in, inOff + i, out, outOff + i);
+		}
+	}
+
 	public static byte[] processECB(byte[] key, boolean forEncryption, byte[] input) {
 
 		final BufferedBlockCipher cipher = new BufferedBlockCipher(new TwofishEngine());
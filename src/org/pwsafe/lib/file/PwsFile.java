@@ -9,18 +9,25 @@
  */
 package org.pwsafe.lib.file;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -71,6 +78,14 @@ import org.pwsafe.lib.exception.UnsupportedFileVersionException;
 public abstract class PwsFile {
 	private static final Log LOG = Log.getInstance(PwsFile.class.getPackage().getName());
 
+	/**
+	 * The number of records each load thread may have queued before reading
+	 * waits for the oldest one.
+	 */
+	private static final int RECORDS_IN_FLIGHT_PER_THREAD = 16;
+
+	private static volatile int loadParallelism = Runtime.getRuntime().availableProcessors();
+
 	/**
 	 * Length of RandStuff in bytes.
 	 */
@@ -137,6 +152,17 @@ public abstract class PwsFile {
 
 	private final List<PwsLoadListener> loadListeners = new ArrayList<PwsLoadListener>();
 
+	/**
+	 * The ciphers for the current memory key and IV, one pair per thread.
+	 */
+	private final ThreadLocal<CipherPair> cipherCache = new ThreadLocal<CipherPair>();
+
+	/**
+	 * Incremented whenever the memory key is disposed, so that ciphers cached
+	 * by other threads are not used any more.
+	 */
+	private volatile int keyGeneration;
+
 	/**
 	 * Constructs and initialises a new, empty PasswordSafe database in memory.
 	 */
@@ -190,9 +216,12 @@ public abstract class PwsFile {
 	protected void add(final PwsRecord rec, final Cipher aCipher) {
 
 		// TODO validate the record before adding it
+		sealedRecords.add(seal(rec, aCipher));
+	}
+
+	private static SealedObject seal(final PwsRecord rec, final Cipher aCipher) {
 		try {
-			final SealedObject sealedRecord = new SealedObject(rec, aCipher);
-			sealedRecords.add(sealedRecord);
+			return new SealedObject(rec, aCipher);
 		} catch (final IllegalBlockSizeException e) {
 			throw new MemoryKeyException(e);
 		} catch (final IOException e) {
@@ -274,6 +303,8 @@ public abstract class PwsFile {
 	 */
 	public void dispose() {
 		passphrase = null;
+		keyGeneration++;
+		cipherCache.remove();
 		if (memoryKey != null) {
 			memoryKey.dispose();
 		}
@@ -283,11 +314,40 @@ public abstract class PwsFile {
 		}
 	}
 
+	/**
+	 * Returns the cipher used to seal (<code>forWriting</code>) or unseal the
+	 * in-memory records. Cipher instances are cached per thread and only
+	 * created and initialised again when the memory key is disposed or the IV
+	 * changes, as provider lookup and key schedule setup are expensive
+	 * compared to sealing a single record.
+	 * <p>
+	 * The returned cipher must be used for complete operations only (as
+	 * {@link SealedObject} does), since it is shared by subsequent calls on the
+	 * same thread.
+	 * </p>
+	 * 
+	 * @param forWriting <code>true</code> for an encrypting cipher,
+	 *        <code>false</code> for a decrypting one.
+	 * @return the initialised cipher
+	 */
 	protected Cipher getCipher(final boolean forWriting) {
 		if (memoryIv == null) {
 			memoryIv = new byte[8];
 			Util.newRandBytes(memoryIv);
 		}
+		if (memoryKey == null) {
+			memoryKey = new InMemoryKey(16);
+			memoryKey.init();
+		}
+		CipherPair ciphers = cipherCache.get();
+		if (ciphers == null || ciphers.generation != keyGeneration || ciphers.iv != memoryIv) {
+			ciphers = new CipherPair(keyGeneration, memoryIv);
+			cipherCache.set(ciphers);
+		}
+		return forWriting ? ciphers.encrypt : ciphers.decrypt;
+	}
+
+	private Cipher createCipher(final int mode) {
 		// TODO: use BouncyCastle Provider!
 		final SecretKeySpec key = new SecretKeySpec(getKeyBytes(), "Blowfish");
 		final IvParameterSpec ivSpec = new IvParameterSpec(memoryIv);
@@ -303,11 +363,7 @@ public abstract class PwsFile {
 		}
 
 		try {
-			if (forWriting) {
-				cipher.init(Cipher.ENCRYPT_MODE, key, ivSpec);
-			} else {
-				cipher.init(Cipher.DECRYPT_MODE, key, ivSpec);
-			}
+			cipher.init(mode, key, ivSpec);
 		} catch (final InvalidKeyException e) {
 			throw new MemoryKeyException("memory key generation failed", e);
 		} catch (final InvalidAlgorithmParameterException e) {
@@ -325,6 +381,21 @@ public abstract class PwsFile {
 		return memoryKey.getKey();
 	}
 
+	/**
+	 * Opens a stream over the (encrypted) contents of the storage. A
+	 * {@link PwsMappedFileStorage} is read straight from its mapping, other
+	 * storages are loaded into memory.
+	 * 
+	 * @return a stream positioned at the start of the storage
+	 * @throws IOException
+	 */
+	protected InputStream openStorageStream() throws IOException {
+		if (storage instanceof PwsMappedFileStorage) {
+			return new ByteBufferInputStream(((PwsMappedFileStorage) storage).getBuffer());
+		}
+		return new ByteArrayInputStream(storage.load());
+	}
+
 	/**
 	 * Returns the storage implementation for this file
 	 */
@@ -398,7 +469,6 @@ public abstract class PwsFile {
 	 * @return the PwsRecord at that index
 	 */
 	public PwsRecord getRecord(final int index) {
-		getCipher(true);
 		SealedObject sealedRecord;
 		try {
 			sealedRecord = sealedRecords.get(index);
@@ -468,31 +538,155 @@ public abstract class PwsFile {
 	protected abstract void open(final String aPassphrase) throws EndOfFileException, IOException,
 	UnsupportedFileVersionException, NoSuchAlgorithmException;
 
+	/**
+	 * Sets the number of threads used to parse and seal records while a file
+	 * is read. A value of 1 reads the file on the calling thread only.
+	 * Defaults to the number of available processors.
+	 * 
+	 * @param threads the number of threads, at least 1.
+	 */
+	public static void setLoadParallelism(final int threads) {
+		loadParallelism = Math.max(1, threads);
+	}
+
 	/**
 	 * Reads all records from the file.
+	 * <p>
+	 * Reading is pipelined: the calling thread decrypts the records in file
+	 * order (which the CBC chaining and the HMAC require), while the records
+	 * are parsed and sealed in parallel. Records are added and the
+	 * {@link PwsLoadListener}s notified in file order, as when reading
+	 * serially.
 	 * 
 	 * @throws IOException If an error occurs reading from the file.
 	 * @throws UnsupportedFileVersionException If the file is an unsupported
 	 *         version
 	 */
 	void readAll() throws IOException, UnsupportedFileVersionException {
+		final int threads = loadParallelism;
+		if (threads <= 1) {
+			readAllSerially();
+			return;
+		}
+		final ForkJoinPool pool = new ForkJoinPool(threads);
+		final ArrayDeque<Future<LoadedRecord>> inFlight = new ArrayDeque<Future<LoadedRecord>>();
+		try {
+			try {
+				for (;;) {
+					final PwsRecord rec = readUnparsedRecord();
+					inFlight.add(pool.submit(new Callable<LoadedRecord>() {
+						public LoadedRecord call() throws IOException {
+							parseRecord(rec);
+							return new LoadedRecord(rec, rec.isValid() ? seal(rec, getCipher(true)) : null);
+						}
+					}));
+					// Bounds the number of decrypted records held in memory
+					if (inFlight.size() >= threads * RECORDS_IN_FLIGHT_PER_THREAD) {
+						loaded(inFlight.remove());
+					}
+				}
+			} catch (final EndOfFileException e) {
+				// OK
+			}
+			while (!inFlight.isEmpty()) {
+				loaded(inFlight.remove());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void readAllSerially() throws IOException, UnsupportedFileVersionException {
 		try {
 			final Cipher c = getCipher(true);
 			for (;;) {
-				final PwsRecord rec = PwsRecord.read(this);
+				final PwsRecord rec = readUnparsedRecord();
+				parseRecord(rec);
 
 				if (rec.isValid()) {
 					this.add(rec, c);
 				}
-				for (final PwsLoadListener loadListener : loadListeners) {
-					loadListener.loaded(rec);
-				}
+				fireLoaded(rec);
 			}
 		} catch (final EndOfFileException e) {
 			// OK
 		}
 	}
 
+	private void loaded(final Future<LoadedRecord> future) throws IOException {
+		final LoadedRecord loaded;
+		try {
+			loaded = future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading records");
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+		if (loaded.sealed != null) {
+			sealedRecords.add(loaded.sealed);
+		}
+		fireLoaded(loaded.record);
+	}
+
+	private void fireLoaded(final PwsRecord rec) {
+		for (final PwsLoadListener loadListener : loadListeners) {
+			loadListener.loaded(rec);
+		}
+	}
+
+	/**
+	 * Reads the next record from the file, leaving any work that does not
+	 * depend on the order of the file to {@link #parseRecord(PwsRecord)}.
+	 * 
+	 * @return the record read.
+	 * 
+	 * @throws EndOfFileException If there are no more records.
+	 * @throws IOException If an error occurs reading from the file.
+	 * @throws UnsupportedFileVersionException If the file is an unsupported
+	 *         version
+	 */
+	protected PwsRecord readUnparsedRecord() throws EndOfFileException, IOException,
+	UnsupportedFileVersionException {
+		return PwsRecord.read(this);
+	}
+
+	/**
+	 * Completes a record returned by {@link #readUnparsedRecord()}. May be
+	 * called on any thread.
+	 * 
+	 * @param rec the record to complete.
+	 * 
+	 * @throws IOException If the data of the record cannot be decoded.
+	 */
+	protected void parseRecord(final PwsRecord rec) throws IOException {
+		// Records are complete once read
+	}
+
+	/**
+	 * A record parsed by the load pipeline, with its sealed form if it is to be
+	 * added to the file.
+	 */
+	private static final class LoadedRecord {
+		private final PwsRecord record;
+		private final SealedObject sealed;
+
+		private LoadedRecord(final PwsRecord record, final SealedObject sealed) {
+			this.record = record;
+			this.sealed = sealed;
+		}
+	}
+
 	/**
 	 * Allocates a block of <code>BLOCK_LENGTH</code> bytes then reads and
 	 * decrypts this many bytes from the file.
@@ -521,16 +715,32 @@ public abstract class PwsFile {
 	 * @throws IOException If an error occurs whilst reading the file.
 	 */
 	public void readBytes(final byte[] bytes) throws IOException, EndOfFileException {
+		readBytes(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Reads <code>length</code> raw (undecrypted) bytes from the file into
+	 * <code>bytes</code>, starting at <code>offset</code>.
+	 * 
+	 * @param bytes the array to be filled from the file.
+	 * @param offset the position in <code>bytes</code> of the first byte read.
+	 * @param length the number of bytes to read.
+	 * 
+	 * @throws EndOfFileException If end of file occurs whilst reading the data.
+	 * @throws IOException If an error occurs whilst reading the file.
+	 */
+	public void readBytes(final byte[] bytes, final int offset, final int length)
+			throws IOException, EndOfFileException {
 		int count;
 
-		count = inStream.read(bytes);
+		count = inStream.read(bytes, offset, length);
 
 		if (count == -1) {
 			LOG.debug1("END OF FILE");
 			throw new EndOfFileException();
-		} else if (count < bytes.length) {
+		} else if (count < length) {
 			LOG.info(I18nHelper.getInstance().formatMessage("I00003",
-					new Object[] { new Integer(bytes.length), new Integer(count) }));
+					new Object[] { new Integer(length), new Integer(count) }));
 			throw new IOException(I18nHelper.getInstance().formatMessage("E00006"));
 		}
 		LOG.debug1("Read " + count + " bytes");
@@ -803,6 +1013,24 @@ public abstract class PwsFile {
 		}
 	}
 
+	/**
+	 * An encrypting and a decrypting cipher initialised with the same memory
+	 * key and IV.
+	 */
+	private class CipherPair {
+		private final int generation;
+		private final byte[] iv;
+		private final Cipher encrypt;
+		private final Cipher decrypt;
+
+		private CipherPair(final int generation, final byte[] iv) {
+			this.generation = generation;
+			this.iv = iv;
+			encrypt = createCipher(Cipher.ENCRYPT_MODE);
+			decrypt = createCipher(Cipher.DECRYPT_MODE);
+		}
+	}
+
 	public void addLoadListener(final PwsLoadListener aLoadListener) {
 		if (aLoadListener != null) {
 			loadListeners.add(aLoadListener);
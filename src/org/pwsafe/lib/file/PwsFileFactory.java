@@ -234,7 +234,7 @@ public class PwsFileFactory {
 		fis.close();
 		if (Util.bytesAreEqual("PWS3".getBytes(), first4Bytes)) {
 			LOG.debug1("This is a V3 format file.");
-			file = new PwsFileV3(new PwsFileStorage(filename), passphrase);
+			file = new PwsFileV3(PwsMappedFileStorage.createStorage(filename), passphrase);
 			readRecords(file);
 			return file;
 		}
@@ -325,7 +325,7 @@ public class PwsFileFactory {
 		fis.close();
 		if (Util.bytesAreEqual("PWS3".getBytes(), first4Bytes)) {
 			LOG.debug1("This is a V3 format file.");
-			file = new PwsFileV3(new PwsFileStorage(filename), passphrase);
+			file = new PwsFileV3(PwsMappedFileStorage.createStorage(filename), passphrase);
 			entryStore = readRecords(file);
 			return entryStore;
 		}
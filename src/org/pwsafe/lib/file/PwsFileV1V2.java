@@ -9,7 +9,6 @@
  */
 package org.pwsafe.lib.file;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
@@ -137,7 +136,7 @@ public abstract class PwsFileV1V2 extends PwsFile {
 		setPassphrase(new StringBuilder(aPassphrase));
 
 		if (storage != null) {
-			inStream = new ByteArrayInputStream(storage.load());
+			inStream = openStorageStream();
 			lastStorageChange = storage.getModifiedDate();
 		}
 		header = new PwsFileHeader(this);
@@ -9,7 +9,6 @@
  */
 package org.pwsafe.lib.file;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.CharBuffer;
@@ -137,7 +136,7 @@ public final class PwsFileV3 extends PwsFile {
 		setPassphrase(new StringBuilder(aPassphrase));
 
 		if (storage != null) {
-			inStream = new ByteArrayInputStream(storage.load());
+			inStream = openStorageStream();
 			lastStorageChange = storage.getModifiedDate();
 		}
 		final PwsFileHeaderV3 theHeaderV3 = new PwsFileHeaderV3(this);
@@ -292,6 +291,33 @@ public final class PwsFileV3 extends PwsFile {
 		headerRecord = new PwsRecordV3(this, true);
 	}
 
+	/**
+	 * Reads and decrypts the next record, leaving its fields to be parsed by
+	 * {@link #parseRecord(PwsRecord)}.
+	 *
+	 * @return the record read.
+	 *
+	 * @throws EndOfFileException If end of file is reached.
+	 * @throws IOException If an error occurs whilst reading.
+	 */
+	@Override
+	protected PwsRecord readUnparsedRecord() throws EndOfFileException, IOException {
+		return PwsRecordV3.readUnparsed(this);
+	}
+
+	/**
+	 * Converts the items of a record read by {@link #readUnparsedRecord()} to
+	 * fields.
+	 *
+	 * @param rec the record to parse.
+	 *
+	 * @throws IOException If the data of a field cannot be decoded.
+	 */
+	@Override
+	protected void parseRecord(final PwsRecord rec) throws IOException {
+		((PwsRecordV3) rec).parseItems();
+	}
+
 	/**
 	 * Writes the extra version 3 header.
 	 * 
@@ -318,25 +344,54 @@ public final class PwsFileV3 extends PwsFile {
 	 */
 	@Override
 	public void readDecryptedBytes(final byte[] buff) throws EndOfFileException, IOException {
-		if ((buff.length == 0) || ((buff.length % getBlockSize()) != 0)) {
+		readDecryptedBytes(buff, 0, buff.length);
+	}
+
+	/**
+	 * Reads <code>length</code> bytes from the file and decrypts them in place
+	 * into <code>buff</code>, starting at <code>offset</code>.
+	 * <code>length</code> may be any multiple of the block size.
+	 * 
+	 * @param buff the buffer to read the bytes into.
+	 * @param offset the position in <code>buff</code> of the first byte read.
+	 * @param length the number of bytes to read.
+	 * 
+	 * @throws EndOfFileException If end of file has been reached.
+	 * @throws IOException If a read error occurs.
+	 * @throws IllegalArgumentException If <code>length</code> is not an
+	 *         integral multiple of the block size.
+	 */
+	public void readDecryptedBytes(final byte[] buff, final int offset, final int length)
+			throws EndOfFileException, IOException {
+		final int blockSize = getBlockSize();
+		if ((length == 0) || ((length % blockSize) != 0)) {
 			throw new IllegalArgumentException(I18nHelper.getInstance().formatMessage("E00001"));
 		}
-		readBytes(buff);
-		if (Util.bytesAreEqual(buff, EOF_BYTES_RAW)) {
-			throw new EndOfFileException();
+		readBytes(buff, offset, length);
+		for (int i = offset; i < offset + length; i += blockSize) {
+			if (isEofBlock(buff, i)) {
+				throw new EndOfFileException();
+			}
 		}
 
-		byte[] decrypted;
 		try {
-			decrypted = twofishCbc.processCBC(buff);
+			twofishCbc.processCBC(buff, offset, buff, offset, length);
 		} catch (final Exception e) {
 			e.printStackTrace();
 			throw new IOException("Error decrypting field");
 		}
-		Util.copyBytes(decrypted, buff);
 		// Algorithm.decrypt( buff );
 	}
 
+	private static boolean isEofBlock(final byte[] buff, final int offset) {
+		for (int i = 0; i < EOF_BYTES_RAW.length; i++) {
+			if (buff[offset + i] != EOF_BYTES_RAW[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Encrypts then writes the contents of <code>buff</code> to the file.
 	 * 
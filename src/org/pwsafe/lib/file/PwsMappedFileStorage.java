@@ -0,0 +1,95 @@
+/*
+ * $Id:$
+ * 
+ * Copyright (c) 2008-2014 David Muller <roxon@users.sourceforge.net>.
+ * All rights reserved. Use of the code is allowed under the
+ * Artistic License 2.0 terms, as specified in the LICENSE file
+ * distributed with this code, or available from
+ * http://www.opensource.org/licenses/artistic-license-2.0.php
+ */
+package org.pwsafe.lib.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.pwsafe.lib.Log;
+
+/**
+ * An implementation of the PwsStorage class that reads files through a
+ * read-only memory mapping instead of copying them onto the heap. Saving is
+ * inherited from {@link PwsFileStorage}.
+ * <p>
+ * The mapping is created afresh by every call to {@link #getBuffer()} and is
+ * released once the buffer is no longer referenced. On some platforms (e.g.
+ * Windows) the file cannot be replaced while a mapping is still alive, so the
+ * buffer should not be held on to after the file has been read.
+ * </p>
+ * 
+ * @see #createStorage(String)
+ */
+public class PwsMappedFileStorage extends PwsFileStorage {
+
+	/**
+	 * Files at least this large are mapped by {@link #createStorage(String)};
+	 * for smaller files, the cost of setting up the mapping outweighs the copy.
+	 */
+	public static final long MAPPING_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * An object for logging activity in this class.
+	 */
+	private static final Log LOG = Log.getInstance(PwsMappedFileStorage.class.getPackage().getName());
+
+	public PwsMappedFileStorage(String filename) throws IOException {
+		super(filename);
+	}
+
+	/**
+	 * Creates a mapped storage for files of at least
+	 * {@link #MAPPING_THRESHOLD} bytes, and a heap based
+	 * {@link PwsFileStorage} for smaller files.
+	 * 
+	 * @param filename the name of the file to use as storage
+	 * @return the storage for the file
+	 * @throws IOException
+	 */
+	public static PwsFileStorage createStorage(String filename) throws IOException {
+		final long length = new File(filename).length();
+		if (length >= MAPPING_THRESHOLD && length <= Integer.MAX_VALUE) {
+			LOG.debug1("Mapping " + length + " bytes of " + filename);
+			return new PwsMappedFileStorage(filename);
+		}
+		return new PwsFileStorage(filename);
+	}
+
+	/**
+	 * Maps the whole file read-only.
+	 * 
+	 * @return a read-only buffer over the (encrypted) contents of the file
+	 * @throws IOException
+	 */
+	public ByteBuffer getBuffer() throws IOException {
+		try (FileChannel channel = FileChannel.open(new File(getFilename()).toPath(), StandardOpenOption.READ)) {
+			final long length = channel.size();
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("File is too large to map: " + getFilename());
+			}
+			// The mapping stays valid after the channel is closed
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			return buffer;
+		}
+	}
+
+	/** Grab all the bytes in the file, copying them out of the mapping */
+	@Override
+	public byte[] load() throws IOException {
+		final ByteBuffer buffer = getBuffer();
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+}
@@ -484,6 +484,14 @@ public abstract class PwsRecord implements Comparable, Serializable, Cloneable {
 		}
 	}
 
+	/**
+	 * Marks the record as completely loaded, for records whose fields are set
+	 * after construction (see {@link PwsRecordV3#parseItems()}).
+	 */
+	void setLoaded() {
+		isLoaded = true;
+	}
+
 	/**
 	 * Sets the modified flag on this record, and also on the file this record
 	 * belongs to.
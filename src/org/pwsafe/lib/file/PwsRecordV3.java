@@ -10,9 +10,11 @@
 package org.pwsafe.lib.file;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -156,6 +158,13 @@ public class PwsRecordV3 extends PwsRecord {
 			new Object[] { Integer.valueOf(PASSWORD_EXPIRY_INTERVAL), "PASSWORD_EXPIRY_INTERVAL",
 					PwsStringUnicodeField.class }, };
 
+	/**
+	 * Items read by {@link #readUnparsed(PwsFileV3)} that are still to be
+	 * converted to fields. Never serialized, since it is cleared before the
+	 * record is sealed.
+	 */
+	private transient List<Item> unparsedItems;
+
 	static public Set<PwsFieldTypeV3> MANDATORY_FIELDS = EnumSet.of(PwsFieldTypeV3.UUID,
 			PwsFieldTypeV3.TITLE, PwsFieldTypeV3.PASSWORD, PwsFieldTypeV3.CREATION_TIME);
 
@@ -206,6 +215,15 @@ public class PwsRecordV3 extends PwsRecord {
 		super(base);
 	}
 
+	/**
+	 * Create an empty record, for records whose fields are read later.
+	 * 
+	 * @param validTypes the types allowable in the incoming data
+	 */
+	private PwsRecordV3(Object[] validTypes) {
+		super(validTypes);
+	}
+
 	/**
 	 * The V3 format allows and requires the ability to add formerly unknown
 	 * fields.
@@ -328,32 +346,25 @@ public class PwsRecordV3 extends PwsRecord {
 
 			length = Util.getIntFromByteArray(rawData, 0);
 			type = rawData[4] & 0x000000ff; // rest of header is now random data
+			// Size the field once from its length and decrypt straight into it
 			data = new byte[length];
-			final byte[] remainingDataInRecord = Util.getBytes(rawData, 5, 11);
-			if (length <= 11) {
-				Util.copyBytes(Util.getBytes(remainingDataInRecord, 0, length), data);
-			} else if (length > 11) {
+			System.arraycopy(rawData, 5, data, 0, Math.min(length, 11));
+			if (length > 11) {
+				final int blockSize = file.getBlockSize();
 				final int bytesToRead = length - 11;
-				int blocksToRead = bytesToRead / file.getBlockSize();
+				final int wholeBlockBytes = bytesToRead - (bytesToRead % blockSize);
 
-				// if blocksToRead doesn't fit neatly into current block
-				// size, add an extra block for the remaining bytes
-				if (bytesToRead % file.getBlockSize() != 0) {
-					blocksToRead++;
+				if (wholeBlockBytes > 0) {
+					file.readDecryptedBytes(data, 11, wholeBlockBytes);
 				}
-
-				byte[] remainingRecords = new byte[0];
-				for (int i = 0; i < blocksToRead; i++) {
-					byte[] nextBlock = new byte[file.getBlockSize()];
-					file.readDecryptedBytes(nextBlock);
-					if (i == blocksToRead - 1) {
-						// last block, do magic
-						nextBlock = Util.getBytes(nextBlock, 0, bytesToRead
-								- remainingRecords.length);
-					}
-					remainingRecords = Util.mergeBytes(remainingRecords, nextBlock);
+				// if bytesToRead doesn't fit neatly into current block
+				// size, the remaining bytes come from an extra block
+				if (wholeBlockBytes < bytesToRead) {
+					final byte[] lastBlock = new byte[blockSize];
+					file.readDecryptedBytes(lastBlock);
+					System.arraycopy(lastBlock, 0, data, 11 + wholeBlockBytes, bytesToRead
+							- wholeBlockBytes);
 				}
-				data = Util.mergeBytes(remainingDataInRecord, remainingRecords);
 			}
 			final byte[] dataToHash = data;
 			file.hasher.digest(dataToHash);
@@ -371,17 +382,59 @@ public class PwsRecordV3 extends PwsRecord {
 	 */
 	@Override
 	protected void loadRecord(PwsFile file) throws EndOfFileException, IOException {
-		Item item;
-		PwsField itemVal = null;
+		parseItems(readItems((PwsFileV3) file));
+	}
+
+	/**
+	 * Reads a record from <code>file</code> without converting its items to
+	 * fields yet. Only the decryption and HMAC, which depend on the order of
+	 * the file, are done here; {@link #parseItems()} must be called before
+	 * the record is used and may run on another thread.
+	 * 
+	 * @param file the file to read the data from.
+	 * @return the record holding its unparsed items.
+	 * 
+	 * @throws EndOfFileException
+	 * @throws IOException
+	 */
+	static PwsRecordV3 readUnparsed(PwsFileV3 file) throws EndOfFileException, IOException {
+		final PwsRecordV3 rec = new PwsRecordV3(VALID_TYPES);
+		rec.unparsedItems = rec.readItems(file);
+		return rec;
+	}
+
+	/**
+	 * Converts the items read by {@link #readUnparsed(PwsFileV3)} to fields.
+	 * 
+	 * @throws IOException If the data of an item cannot be decoded.
+	 */
+	void parseItems() throws IOException {
+		final List<Item> items = unparsedItems;
+		unparsedItems = null;
+		parseItems(items);
+		setLoaded();
+	}
 
+	/**
+	 * Reads and decrypts the items of a record up to the end of record marker.
+	 */
+	private List<Item> readItems(PwsFileV3 file) throws EndOfFileException, IOException {
+		final List<Item> items = new ArrayList<Item>();
 		for (;;) {
-			item = new ItemV3((PwsFileV3) file);
+			final Item item = new ItemV3(file);
 
 			if (item.getType() == END_OF_RECORD) {
 				LOG.debug2("-- END OF RECORD --");
-				break; // out of the for loop
+				return items;
 			}
+			items.add(item);
+		}
+	}
+
+	private void parseItems(List<Item> items) throws IOException {
+		PwsField itemVal = null;
 
+		for (final Item item : items) {
 			if (ignoreFieldTypes) {
 				// header record has no valid types...
 				itemVal = new PwsUnknownField(item.getType(), item.getByteData());